@@ -0,0 +1,45 @@
+package com.chip8.chip8.benchmarks;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import com.chip8.chip8.system.ROM;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+final class BenchmarkRoms {
+
+    private BenchmarkRoms() {
+    }
+
+    static byte[] load(String name) {
+        try (InputStream in = BenchmarkRoms.class.getResourceAsStream("/roms/" + name + ".ch8")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown benchmark ROM: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] assemble(int... instructions) {
+        byte[] romData = new byte[instructions.length * 2];
+        for (int i = 0; i < instructions.length; i++) {
+            romData[i * 2] = (byte) (instructions[i] >>> 8);
+            romData[i * 2 + 1] = (byte) instructions[i];
+        }
+        return romData;
+    }
+
+    static Chip8 machine(byte[] romData, ExecutionMode executionMode) {
+        Chip8 chip8 = new Chip8();
+        chip8.setRom(new ROM(romData));
+        chip8.reset();
+        chip8.setExecutionMode(executionMode);
+        // Skipped idle loop iterations would count as executed instructions in the scores
+        chip8.setIdleSkipping(false);
+        return chip8;
+    }
+}
@@ -0,0 +1,74 @@
+package com.chip8.chip8.benchmarks;
+
+import com.chip8.chip8.system.FrameConverter;
+import com.chip8.chip8.system.FrameExchange;
+import com.chip8.chip8.system.VideoMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+// Converts alternating frames that differ in changedRows rows, mirroring what the renderer does per pulse
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameConversionBenchmark {
+
+    @Param({"64x32", "128x64"})
+    public String size;
+
+    @Param({"1", "ALL"})
+    public String changedRows;
+
+    private final FrameExchange.Frame[] frames = new FrameExchange.Frame[2];
+    private FrameConverter converter;
+    private IntBuffer pixels;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        int rows = changedRows.equals("ALL") ? height : Integer.parseInt(changedRows);
+        Random random = new Random(42);
+        VideoMemory videoMemory = new VideoMemory(width, height);
+        FrameExchange frameExchange = new FrameExchange();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += 8) {
+                videoMemory.drawSpriteRow(x, y, random.nextInt(256), 8);
+            }
+        }
+        for (int i = 0; i < frames.length; i++) {
+            frameExchange.publish(videoMemory);
+            frames[i] = frameExchange.acquire();
+            for (int y = 0; y < rows; y++) {
+                videoMemory.drawSpriteRow(0, y, 0xFF, 8);
+            }
+        }
+
+        converter = new FrameConverter(0xFFFFFFFF, 0xFF000000);
+        pixels = ByteBuffer.allocateDirect(width * height * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        converter.convert(frames[1], pixels);
+    }
+
+    @Benchmark
+    public boolean convert() {
+        next ^= 1;
+        return converter.convert(frames[next], pixels);
+    }
+}
@@ -0,0 +1,56 @@
+package com.chip8.chip8.benchmarks;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Each opcode group runs as a short loop closed by a 1NNN jump, so scores are instructions/second
+// including that jump.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    private static final int INSTRUCTIONS = 10_000;
+
+    @Param({"ALU", "DRAW_1", "DRAW_8", "DRAW_15", "STORE_LOAD", "CLEAR"})
+    public String group;
+
+    @Param({"INTERPRETER", "TIERED"})
+    public ExecutionMode executionMode;
+
+    private Chip8 chip8;
+
+    @Setup
+    public void setUp() {
+        byte[] romData = switch (group) {
+            case "ALU" -> BenchmarkRoms.assemble(0x6001, 0x6103, 0x8010, 0x8011, 0x8012, 0x8013, 0x8014, 0x8015,
+                    0x8016, 0x8017, 0x801E, 0x1204);
+            case "DRAW_1" -> BenchmarkRoms.assemble(0x6008, 0x6104, 0xA000, 0xD011, 0x1206);
+            case "DRAW_8" -> BenchmarkRoms.assemble(0x6008, 0x6104, 0xA000, 0xD018, 0x1206);
+            case "DRAW_15" -> BenchmarkRoms.assemble(0x6008, 0x6104, 0xA000, 0xD01F, 0x1206);
+            case "STORE_LOAD" -> BenchmarkRoms.assemble(0xA300, 0xFF55, 0xFF65, 0x1202);
+            case "CLEAR" -> BenchmarkRoms.assemble(0x00E0, 0x1200);
+            default -> throw new IllegalArgumentException("Unknown opcode group: " + group);
+        };
+        chip8 = BenchmarkRoms.machine(romData, executionMode);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public Chip8 execute() {
+        chip8.runInstructions(INSTRUCTIONS);
+        return chip8;
+    }
+}
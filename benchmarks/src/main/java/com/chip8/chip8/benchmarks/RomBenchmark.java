@@ -0,0 +1,49 @@
+package com.chip8.chip8.benchmarks;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Runs the bundled ROMs headlessly through whole frames (instructions, timer tick and frame publish)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RomBenchmark {
+    private static final int INSTRUCTIONS_PER_FRAME = 1000;
+    private static final int FRAMES = 100;
+
+    @Param({"alu", "sprites", "counter"})
+    public String rom;
+
+    @Param({"INTERPRETER", "TIERED"})
+    public ExecutionMode executionMode;
+
+    private Chip8 chip8;
+
+    @Setup
+    public void setUp() {
+        chip8 = BenchmarkRoms.machine(BenchmarkRoms.load(rom), executionMode);
+        chip8.setInstructionsPerFrame(INSTRUCTIONS_PER_FRAME);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS_PER_FRAME * FRAMES)
+    public Chip8 run() {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            chip8.runFrame();
+        }
+        return chip8;
+    }
+}
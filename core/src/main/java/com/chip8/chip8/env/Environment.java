@@ -0,0 +1,198 @@
+package com.chip8.chip8.env;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.Memory;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.system.VideoMemory;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// One machine driven a step at a time, for training code: reset(seed) starts an episode, and
+// step(keys, frames) holds the keys down for that many frames and returns the reward earned. The
+// screen is written into the same direct buffer after every reset and step, so a caller (or native
+// code reading the buffer's address) sees the new observation without anything being allocated.
+//
+// An episode ends when the terminal condition is met or the ROM touches memory out of range.
+public class Environment {
+    private final Chip8 chip8;
+    private final ObservationFormat format;
+    private final int width;
+    private final int height;
+    private final ByteBuffer observation;
+    private final RewardProbe[] probes;
+    private final long[] probeValues;
+    private int terminalAddress;
+    private int terminalValue;
+    private boolean done;
+    private boolean faulted;
+    private double episodeReward;
+
+    public Environment(ROM rom, MachineProfile profile, ObservationFormat format, List<RewardProbe> probes) {
+        this(rom, profile, format, probes, ByteBuffer.allocateDirect(format.size(profile)));
+    }
+
+    // The batch passes each environment its slice of one shared buffer
+    Environment(ROM rom, MachineProfile profile, ObservationFormat format, List<RewardProbe> probes, ByteBuffer observation) {
+        for (RewardProbe probe : probes) {
+            if (probe.address() + probe.length() > profile.getMemorySize()) {
+                throw new IllegalArgumentException(String.format("Probe at 0x%X is outside %s memory", probe.address(), profile));
+            }
+        }
+        chip8 = new Chip8();
+        chip8.setRom(rom);
+        chip8.setRewindSeconds(0);
+        chip8.setProfile(profile);
+        this.format = format;
+        width = ObservationFormat.width(profile);
+        height = ObservationFormat.height(profile);
+        this.observation = observation;
+        this.probes = probes.toArray(new RewardProbe[0]);
+        probeValues = new long[this.probes.length];
+        terminalAddress = -1;
+        reset(0);
+    }
+
+    public Chip8 getChip8() {
+        return chip8;
+    }
+
+    public ObservationFormat getFormat() {
+        return format;
+    }
+
+    public ByteBuffer getObservation() {
+        return observation;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        chip8.setExecutionMode(executionMode);
+    }
+
+    // The episode ends on the first frame after which the byte at address equals value; an address
+    // of -1 turns the condition off. Checked from the next step on.
+    public void setTerminalCondition(int address, int value) {
+        if (address >= chip8.getProfile().getMemorySize()) {
+            throw new IllegalArgumentException(String.format("Terminal address 0x%X is outside memory", address));
+        }
+        terminalAddress = address;
+        terminalValue = value & 0xFF;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public boolean isFaulted() {
+        return faulted;
+    }
+
+    // Reward summed since the last reset
+    public double getEpisodeReward() {
+        return episodeReward;
+    }
+
+    public void reset(long seed) {
+        chip8.reset(seed);
+        done = false;
+        faulted = false;
+        episodeReward = 0;
+        Memory memory = chip8.getMemory();
+        for (int p = 0; p < probes.length; p++) {
+            probeValues[p] = probes[p].read(memory);
+        }
+        observe();
+    }
+
+    // Stops early if the episode ends part way through the frames
+    public double step(int actionMask, int frames) {
+        if (done) {
+            throw new IllegalStateException("The episode is over; call reset first");
+        }
+        double reward = 0;
+        try {
+            for (int frame = 0; frame < frames && !done; frame++) {
+                chip8.getInput().setKeyMask(actionMask);
+                chip8.runFrame();
+                reward += collectReward();
+                done = terminalAddress >= 0 && chip8.getMemory().getMemory(terminalAddress) == terminalValue;
+            }
+        } catch (IllegalArgumentException e) {
+            faulted = true;
+            done = true;
+        }
+        episodeReward += reward;
+        observe();
+        return reward;
+    }
+
+    private double collectReward() {
+        Memory memory = chip8.getMemory();
+        double reward = 0;
+        for (int p = 0; p < probes.length; p++) {
+            long value = probes[p].read(memory);
+            reward += probes[p].scale() * (value - probeValues[p]);
+            probeValues[p] = value;
+        }
+        return reward;
+    }
+
+    private void observe() {
+        VideoMemory video = chip8.getMemory().getVideoMemory();
+        int scale = width / video.getWidth();
+        if (format == ObservationFormat.BITS) {
+            observeBits(video, scale);
+        } else {
+            observeBytes(video, scale);
+        }
+    }
+
+    // Whole row words at a time; at scale 2 each source word doubles into two and each row repeats
+    private void observeBits(VideoMemory video, int scale) {
+        int at = 0;
+        for (int plane = 0; plane < video.getPlanes(); plane++) {
+            for (int y = 0; y < height; y++) {
+                int sourceY = y / scale;
+                for (int word = 0; word < video.getWordsPerRow(); word++) {
+                    long bits = video.getRowWord(plane, sourceY, word);
+                    if (scale == 1) {
+                        observation.putLong(at, bits);
+                        at += Long.BYTES;
+                    } else {
+                        observation.putLong(at, doubled(bits >>> 32));
+                        observation.putLong(at + Long.BYTES, doubled(bits & 0xFFFFFFFFL));
+                        at += 2 * Long.BYTES;
+                    }
+                }
+            }
+        }
+    }
+
+    private void observeBytes(VideoMemory video, int scale) {
+        int planes = video.getPlanes();
+        for (int y = 0; y < height; y++) {
+            int sourceY = y / scale;
+            for (int x = 0; x < width; x++) {
+                int sourceX = x / scale;
+                int value = 0;
+                for (int plane = 0; plane < planes; plane++) {
+                    long bits = video.getRowWord(plane, sourceY, sourceX >>> 6);
+                    value |= (int) (bits >>> (63 - (sourceX & 63)) & 1) << plane;
+                }
+                observation.put(y * width + x, (byte) value);
+            }
+        }
+    }
+
+    // Each of the low 32 bits becomes two adjacent bits of the result
+    private static long doubled(long bits) {
+        bits = (bits | bits << 16) & 0x0000FFFF0000FFFFL;
+        bits = (bits | bits << 8) & 0x00FF00FF00FF00FFL;
+        bits = (bits | bits << 4) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | bits << 2) & 0x3333333333333333L;
+        bits = (bits | bits << 1) & 0x5555555555555555L;
+        return bits | bits << 1;
+    }
+}
@@ -0,0 +1,267 @@
+package com.chip8.chip8.env;
+
+import com.chip8.chip8.library.RomLibrary;
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.ROM;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Many environments on one ROM, stepped together over a work-stealing pool. The observations sit
+// back to back in one direct buffer, environment i at i * getObservationSize(), and rewards and
+// done flags in arrays that are refilled by every stepBatch(). The pool's tasks are created once
+// and reinitialised for each batch, so a step allocates nothing.
+//
+// With auto-reset on, an environment whose episode ended is reset straight after that step, its
+// done flag still reporting the end, and the observation showing the new episode.
+public class EnvironmentBatch implements AutoCloseable {
+    private final Environment[] environments;
+    private final int observationSize;
+    private final ByteBuffer observations;
+    private final double[] rewards;
+    private final boolean[] done;
+    private final long[] episodes;
+    private final ForkJoinPool pool;
+    private final Range[] ranges;
+    private final RecursiveAction all;
+    private boolean autoReset;
+    private long seed;
+    private int[] actions;
+    private int frames;
+
+    private final class Range extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                step(i);
+            }
+        }
+    }
+
+    // A parallelism of 1 steps every environment on the calling thread
+    public EnvironmentBatch(ROM rom, MachineProfile profile, int count, ObservationFormat format,
+                            List<RewardProbe> probes, int parallelism) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one environment is needed");
+        }
+        environments = new Environment[count];
+        observationSize = format.size(profile);
+        observations = ByteBuffer.allocateDirect(count * observationSize);
+        for (int i = 0; i < count; i++) {
+            environments[i] = new Environment(rom, profile, format, probes, observations.slice(i * observationSize, observationSize));
+        }
+        rewards = new double[count];
+        done = new boolean[count];
+        episodes = new long[count];
+
+        // A few ranges per worker so one that draws slow episodes doesn't hold up the batch
+        int rangeCount = parallelism > 1 ? Math.min(count, parallelism * 4) : 1;
+        ranges = new Range[rangeCount];
+        for (int r = 0; r < rangeCount; r++) {
+            ranges[r] = new Range(r * count / rangeCount, (r + 1) * count / rangeCount);
+        }
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        all = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(ranges);
+            }
+        };
+    }
+
+    public int size() {
+        return environments.length;
+    }
+
+    public Environment getEnvironment(int i) {
+        return environments[i];
+    }
+
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    public ByteBuffer getObservations() {
+        return observations;
+    }
+
+    public ByteBuffer getObservation(int i) {
+        return environments[i].getObservation();
+    }
+
+    public double[] getRewards() {
+        return rewards;
+    }
+
+    public boolean[] getDone() {
+        return done;
+    }
+
+    public boolean isAutoReset() {
+        return autoReset;
+    }
+
+    public void setAutoReset(boolean autoReset) {
+        this.autoReset = autoReset;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        for (Environment environment : environments) {
+            environment.setExecutionMode(executionMode);
+        }
+    }
+
+    public void setTerminalCondition(int address, int value) {
+        for (Environment environment : environments) {
+            environment.setTerminalCondition(address, value);
+        }
+    }
+
+    // Environment i's first episode gets seed + i and its n-th (counting from 0) seed + i + n * size()
+    public void reset(long seed) {
+        this.seed = seed;
+        for (int i = 0; i < environments.length; i++) {
+            episodes[i] = 0;
+            environments[i].reset(seed + i);
+            rewards[i] = 0;
+            done[i] = false;
+        }
+    }
+
+    // Holds actionMasks[i] down on environment i for the given frames. Environments whose episode is
+    // over, and that are not auto-reset, sit the step out with no reward. Returns getRewards().
+    public double[] stepBatch(int[] actionMasks, int frames) {
+        if (actionMasks.length != environments.length) {
+            throw new IllegalArgumentException(String.format("%d actions for %d environments", actionMasks.length, environments.length));
+        }
+        actions = actionMasks;
+        this.frames = frames;
+        if (pool == null) {
+            ranges[0].compute();
+        } else {
+            for (Range range : ranges) {
+                range.reinitialize();
+            }
+            all.reinitialize();
+            pool.invoke(all);
+        }
+        return rewards;
+    }
+
+    private void step(int i) {
+        Environment environment = environments[i];
+        if (environment.isDone()) {
+            rewards[i] = 0;
+            return;
+        }
+        rewards[i] = environment.step(actions[i], frames);
+        done[i] = environment.isDone();
+        if (done[i] && autoReset) {
+            episodes[i]++;
+            environment.reset(seed + i + episodes[i] * environments.length);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Steps a batch with random key presses and reports environment steps and frames per second
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: EnvironmentBatch <rom> [--envs N] [--steps N] [--frames N] [--threads N] [--seed N]"
+                    + " [--format bits|bytes] [--machine CHIP8|SCHIP|XOCHIP] [--probe spec]... [--done address=value]");
+            System.exit(2);
+        }
+
+        Path file = Path.of(args[0]);
+        int count = 64;
+        long steps = 1000;
+        int frames = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        ObservationFormat format = ObservationFormat.BITS;
+        MachineProfile profile = null;
+        List<RewardProbe> probes = new ArrayList<>();
+        String terminal = null;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--envs" -> count = Integer.parseInt(value);
+                case "--steps" -> steps = Long.parseLong(value);
+                case "--frames" -> frames = Integer.parseInt(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--format" -> format = ObservationFormat.valueOf(value.toUpperCase(Locale.ROOT));
+                case "--machine" -> profile = MachineProfile.valueOf(value.toUpperCase(Locale.ROOT));
+                case "--probe" -> probes.add(RewardProbe.parse(value));
+                case "--done" -> terminal = value;
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (profile == null) {
+            profile = RomLibrary.profile(file, MachineProfile.CHIP8);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] actions = new int[count];
+        long episodes = 0;
+        double totalReward = 0;
+        try (EnvironmentBatch batch = new EnvironmentBatch(new ROM(Files.readAllBytes(file)), profile, count, format, probes, threads)) {
+            if (terminal != null) {
+                String[] parts = terminal.split("=");
+                batch.setTerminalCondition(Integer.decode(parts[0]), Integer.decode(parts[1]));
+            }
+            batch.setAutoReset(true);
+            batch.reset(seed);
+
+            long start = System.nanoTime();
+            for (long step = 0; step < steps; step++) {
+                for (int i = 0; i < count; i++) {
+                    actions[i] = random.nextBoolean() ? 1 << random.nextInt(Chip8.KEY_COUNT) : 0;
+                }
+                double[] rewards = batch.stepBatch(actions, frames);
+                for (int i = 0; i < count; i++) {
+                    totalReward += rewards[i];
+                    if (batch.getDone()[i]) {
+                        episodes++;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+            System.out.printf("%d environments, %d steps of %d frames on %d threads: %.0f steps/s, %.0f frames/s%n",
+                    count, steps, frames, threads, count * steps / seconds, count * steps * frames / seconds);
+            System.out.printf("%d episodes ended, total reward %.2f%n", episodes, totalReward);
+        }
+    }
+}
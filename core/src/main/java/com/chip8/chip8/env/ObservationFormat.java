@@ -0,0 +1,27 @@
+package com.chip8.chip8.env;
+
+import com.chip8.chip8.system.MachineProfile;
+
+// How an environment lays out the screen in its observation buffer. Both are row-major at the
+// machine's largest resolution (64x32, or 128x64 for SUPER-CHIP and XO-CHIP), so a low resolution
+// screen on an extended machine is scaled up 2x and the observation shape never changes.
+// - BITS: 1 bit per pixel, 8 pixels per byte with the leftmost in the highest bit; a second
+//   XO-CHIP plane follows the first
+// - BYTES: 1 byte per pixel, holding the pixel's bit from each plane (plane 0 in bit 0)
+public enum ObservationFormat {
+    BITS,
+    BYTES;
+
+    public static int width(MachineProfile profile) {
+        return profile.isExtended() ? 128 : 64;
+    }
+
+    public static int height(MachineProfile profile) {
+        return profile.isExtended() ? 64 : 32;
+    }
+
+    public int size(MachineProfile profile) {
+        int pixels = width(profile) * height(profile);
+        return this == BITS ? pixels / Byte.SIZE * profile.getPlanes() : pixels;
+    }
+}
@@ -0,0 +1,47 @@
+package com.chip8.chip8.env;
+
+import com.chip8.chip8.system.Memory;
+
+import java.util.Locale;
+
+// A number a ROM keeps in memory, typically its score. After every frame the environment reads each
+// probe and adds scale times the change since the previous frame to the reward. Values are length
+// bytes from address, either big-endian binary or one decimal digit per byte as FX33 stores them.
+public record RewardProbe(int address, int length, Encoding encoding, double scale) {
+    public enum Encoding {
+        BINARY,
+        BCD
+    }
+
+    public RewardProbe {
+        if (address < 0 || length < 1 || length > 7) {
+            throw new IllegalArgumentException(String.format("Invalid probe: %d bytes at %d", length, address));
+        }
+    }
+
+    public RewardProbe(int address) {
+        this(address, 1, Encoding.BINARY, 1.0);
+    }
+
+    // address[:length[:binary|bcd[:scale]]], e.g. 0x2F0:3:bcd:0.1. The address may be decimal or hex.
+    public static RewardProbe parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            return new RewardProbe(Integer.decode(parts[0]),
+                    parts.length > 1 ? Integer.parseInt(parts[1]) : 1,
+                    parts.length > 2 ? Encoding.valueOf(parts[2].toUpperCase(Locale.ROOT)) : Encoding.BINARY,
+                    parts.length > 3 ? Double.parseDouble(parts[3]) : 1.0);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid probe: " + spec, e);
+        }
+    }
+
+    public long read(Memory memory) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = memory.getMemory(address + i);
+            value = encoding == Encoding.BCD ? value * 10 + b : value << 8 | b;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,189 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.library.RomAnalysis.Block;
+import com.chip8.chip8.library.RomAnalysis.DataRegion;
+import com.chip8.chip8.library.RomAnalysis.Edge;
+import com.chip8.chip8.library.RomAnalysis.EdgeKind;
+import com.chip8.chip8.library.RomAnalysis.IdleKind;
+import com.chip8.chip8.library.RomAnalysis.IdleLoop;
+import com.chip8.chip8.library.RomAnalysis.Write;
+import com.chip8.chip8.system.MachineProfile;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Analyses keyed by the SHA-1 of the ROM's contents and the machine profile, held in memory and in
+// one small file per ROM under the cache directory. A file from an older format, or one that fails
+// to parse, is simply analysed again and replaced.
+public class AnalysisCache {
+    public static final int CACHE_MAGIC = 0x43384346;
+    public static final short CACHE_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    private final Path directory;
+    private final Map<String, RomAnalysis> analyses;
+    private final AtomicInteger hits;
+
+    // With a null directory nothing is written to disk
+    public AnalysisCache(Path directory) {
+        this.directory = directory;
+        analyses = new ConcurrentHashMap<>();
+        hits = new AtomicInteger();
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".chip8", "analysis");
+    }
+
+    // Lookups answered from memory or disk without analysing
+    public int getHits() {
+        return hits.get();
+    }
+
+    public RomAnalysis get(byte[] romData, MachineProfile profile) throws IOException {
+        return get(romData, hash(romData), profile);
+    }
+
+    // For callers that already hold the ROM's SHA-1, such as a RomEntry, which saves hashing it again
+    public RomAnalysis get(byte[] romData, byte[] hash, MachineProfile profile) throws IOException {
+        String key = HexFormat.of().formatHex(hash) + "-" + profile.name().toLowerCase(Locale.ROOT);
+        RomAnalysis analysis = analyses.get(key);
+        if (analysis != null) {
+            hits.incrementAndGet();
+            return analysis;
+        }
+
+        Path file = directory == null ? null : directory.resolve(key + ".cfa");
+        if (file != null && Files.exists(file)) {
+            analysis = read(file, romData, profile, hash);
+        }
+        if (analysis != null) {
+            hits.incrementAndGet();
+        } else {
+            analysis = RomAnalyzer.analyze(romData, profile, hash);
+            if (file != null) {
+                write(file, analysis);
+            }
+        }
+        analyses.put(key, analysis);
+        return analysis;
+    }
+
+    private static RomAnalysis read(Path file, byte[] romData, MachineProfile profile, byte[] hash) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (in.getInt() != CACHE_MAGIC || in.getShort() != CACHE_VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[in.get() & 0xFF];
+            in.get(stored);
+            if (!Arrays.equals(stored, hash)) {
+                return null;
+            }
+
+            List<Block> blocks = new ArrayList<>();
+            for (int b = in.getInt(); b > 0; b--) {
+                int start = in.getInt();
+                int end = in.getInt();
+                List<Edge> successors = new ArrayList<>();
+                for (int e = in.getShort(); e > 0; e--) {
+                    successors.add(new Edge(in.getInt(), EdgeKind.values()[in.get()]));
+                }
+                blocks.add(new Block(start, end, List.copyOf(successors)));
+            }
+            List<Integer> indirectJumps = new ArrayList<>();
+            for (int j = in.getInt(); j > 0; j--) {
+                indirectJumps.add(in.getInt());
+            }
+            List<DataRegion> dataRegions = new ArrayList<>();
+            for (int d = in.getInt(); d > 0; d--) {
+                dataRegions.add(new DataRegion(in.getInt(), in.getInt(), in.get() != 0));
+            }
+            List<Write> writes = new ArrayList<>();
+            for (int w = in.getInt(); w > 0; w--) {
+                writes.add(new Write(in.getInt(), in.getInt(), in.getInt(), in.get() != 0));
+            }
+            List<IdleLoop> idleLoops = new ArrayList<>();
+            for (int l = in.getInt(); l > 0; l--) {
+                idleLoops.add(new IdleLoop(in.getInt(), in.getInt(), IdleKind.values()[in.get()]));
+            }
+            return new RomAnalysis(romData, profile, hash, blocks, indirectJumps, dataRegions, writes, idleLoops);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    // Written to a temporary file first so a concurrent reader never sees half an entry
+    private void write(Path file, RomAnalysis analysis) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeShort(CACHE_VERSION);
+            byte[] hash = analysis.getHash();
+            out.writeByte(hash.length);
+            out.write(hash);
+
+            out.writeInt(analysis.getBlocks().size());
+            for (Block block : analysis.getBlocks()) {
+                out.writeInt(block.start());
+                out.writeInt(block.end());
+                out.writeShort(block.successors().size());
+                for (Edge edge : block.successors()) {
+                    out.writeInt(edge.target());
+                    out.writeByte(edge.kind().ordinal());
+                }
+            }
+            out.writeInt(analysis.getIndirectJumps().size());
+            for (int address : analysis.getIndirectJumps()) {
+                out.writeInt(address);
+            }
+            out.writeInt(analysis.getDataRegions().size());
+            for (DataRegion region : analysis.getDataRegions()) {
+                out.writeInt(region.start());
+                out.writeInt(region.end());
+                out.writeBoolean(region.referenced());
+            }
+            out.writeInt(analysis.getWrites().size());
+            for (Write write : analysis.getWrites()) {
+                out.writeInt(write.address());
+                out.writeInt(write.target());
+                out.writeInt(write.length());
+                out.writeBoolean(write.selfModifying());
+            }
+            out.writeInt(analysis.getIdleLoops().size());
+            for (IdleLoop loop : analysis.getIdleLoops()) {
+                out.writeInt(loop.start());
+                out.writeInt(loop.end());
+                out.writeByte(loop.kind().ordinal());
+            }
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] hash(byte[] romData) {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM).digest(romData);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.CPU;
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.system.RomRunner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Runs every ROM under a directory headless for a cycle budget, one machine per ROM, spread over a
+// work-stealing pool. Machines share nothing, so throughput grows with the number of cores until
+// the pool runs out of ROMs.
+public class BatchRunner {
+    public static final long DEFAULT_CYCLES = 1_000_000;
+
+    public record Result(Path rom, MachineProfile profile, long cycles, long frames, long hash, CPU cpu,
+                         long elapsedNanos, String error) {
+    }
+
+    private final Path root;
+    private final Map<String, Long> budgets;
+    private long defaultCycles;
+    private MachineProfile defaultProfile;
+    private ExecutionMode executionMode;
+    private long seed;
+    private int parallelism;
+    private long elapsedNanos;
+
+    public BatchRunner(Path root, Map<String, Long> budgets) {
+        this.root = root;
+        this.budgets = budgets;
+        defaultCycles = DEFAULT_CYCLES;
+        defaultProfile = MachineProfile.CHIP8;
+        executionMode = ExecutionMode.TIERED;
+        parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    // Budget files are properties files mapping a ROM's path, relative to the corpus root and with
+    // '/' separators, to the number of cycles it should run for
+    public static Map<String, Long> loadBudgets(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        Map<String, Long> budgets = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            budgets.put(name, Long.parseLong(properties.getProperty(name).trim()));
+        }
+        return budgets;
+    }
+
+    public void setDefaultCycles(long defaultCycles) {
+        this.defaultCycles = defaultCycles;
+    }
+
+    public void setDefaultProfile(MachineProfile defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Results come back sorted by path, whatever order the pool finished them in
+    public List<Result> run() throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(RomLibrary::isRom).sorted().toList();
+        }
+
+        // Longest budgets first, so a big ROM picked up last doesn't leave the other workers idle
+        List<Callable<Result>> jobs = new ArrayList<>();
+        files.stream()
+                .sorted(Comparator.comparingLong(this::budget).reversed())
+                .forEach(file -> jobs.add(() -> run(file)));
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> future : pool.invokeAll(jobs)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        results.sort(Comparator.comparing(Result::rom));
+        return results;
+    }
+
+    private Result run(Path file) {
+        long cycles = budget(file);
+        MachineProfile profile = RomLibrary.profile(file, defaultProfile);
+        long start = System.nanoTime();
+        try {
+            RomRunner runner = new RomRunner(new ROM(Files.readAllBytes(file)), profile, seed);
+            Chip8 chip8 = runner.getChip8();
+            chip8.setExecutionMode(executionMode);
+            runner.runCycles(cycles);
+            return new Result(file, profile, cycles, chip8.getFrameCount(), runner.getFramebufferHash(),
+                    new CPU(chip8.getCpu()), System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(file, profile, cycles, 0, 0, null, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    private long budget(Path file) {
+        return budgets.getOrDefault(relativeName(file), defaultCycles);
+    }
+
+    private String relativeName(Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    public void writeCsv(List<Result> results, PrintStream out) {
+        out.println("rom,machine,cycles,frames,hash,pc,i,sp,dt,st,v,nanos,error");
+        for (Result result : results) {
+            CPU cpu = result.cpu();
+            out.printf("%s,%s,%d,%d,%016x,%s,%s,%s,%s,%s,%s,%d,%s%n", csv(relativeName(result.rom())), result.profile(),
+                    result.cycles(), result.frames(), result.hash(),
+                    cpu == null ? "" : hex(cpu.getPC() & 0xFFFF, 4), cpu == null ? "" : hex(cpu.getI() & 0xFFFF, 4),
+                    cpu == null ? "" : String.valueOf(cpu.getSp()), cpu == null ? "" : hex(cpu.getDT() & 0xFF, 2),
+                    cpu == null ? "" : hex(cpu.getST() & 0xFF, 2), cpu == null ? "" : registers(cpu),
+                    result.elapsedNanos(), result.error() == null ? "" : csv(result.error()));
+        }
+    }
+
+    public void writeJson(List<Result> results, PrintStream out) {
+        out.println("[");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            CPU cpu = result.cpu();
+            out.printf("  {\"rom\": %s, \"machine\": \"%s\", \"cycles\": %d, \"frames\": %d, \"hash\": \"%016x\", ",
+                    json(relativeName(result.rom())), result.profile(), result.cycles(), result.frames(), result.hash());
+            if (cpu != null) {
+                out.printf("\"pc\": %d, \"i\": %d, \"sp\": %d, \"dt\": %d, \"st\": %d, \"v\": [", cpu.getPC() & 0xFFFF,
+                        cpu.getI() & 0xFFFF, cpu.getSp(), cpu.getDT() & 0xFF, cpu.getST() & 0xFF);
+                for (int i = 0; i < Chip8.REGISTER_COUNT; i++) {
+                    out.print((i > 0 ? ", " : "") + (cpu.getV(i) & 0xFF));
+                }
+                out.print("], ");
+            }
+            out.printf("\"nanos\": %d%s}%s%n", result.elapsedNanos(),
+                    result.error() == null ? "" : ", \"error\": " + json(result.error()), r + 1 < results.size() ? "," : "");
+        }
+        out.println("]");
+    }
+
+    private static String hex(int value, int digits) {
+        return String.format("%0" + digits + "x", value);
+    }
+
+    private static String registers(CPU cpu) {
+        byte[] v = new byte[Chip8.REGISTER_COUNT];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = cpu.getV(i);
+        }
+        return HexFormat.of().formatHex(v);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchRunner <directory> [--cycles N] [--budgets file] [--threads N] [--format csv|json] "
+                    + "[--output file] [--mode INTERPRETER|TIERED] [--machine CHIP8|SCHIP|XOCHIP] [--seed N]");
+            System.exit(2);
+        }
+
+        Path root = Path.of(args[0]);
+        Map<String, Long> budgets = Map.of();
+        long cycles = DEFAULT_CYCLES;
+        int threads = -1;
+        String format = "csv";
+        Path output = null;
+        ExecutionMode mode = ExecutionMode.TIERED;
+        MachineProfile profile = MachineProfile.CHIP8;
+        long seed = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--cycles" -> cycles = Long.parseLong(value);
+                case "--budgets" -> budgets = loadBudgets(Path.of(value));
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--format" -> format = value;
+                case "--output" -> output = Path.of(value);
+                case "--mode" -> mode = ExecutionMode.valueOf(value);
+                case "--machine" -> profile = MachineProfile.valueOf(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        BatchRunner batch = new BatchRunner(root, budgets);
+        batch.setDefaultCycles(cycles);
+        batch.setDefaultProfile(profile);
+        batch.setExecutionMode(mode);
+        batch.setSeed(seed);
+        if (threads > 0) {
+            batch.setParallelism(threads);
+        }
+        List<Result> results = batch.run();
+
+        PrintStream out = output == null ? System.out : new PrintStream(Files.newOutputStream(output));
+        switch (format) {
+            case "csv" -> batch.writeCsv(results, out);
+            case "json" -> batch.writeJson(results, out);
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+        if (output != null) {
+            out.close();
+        }
+
+        long totalCycles = results.stream().filter(result -> result.error() == null).mapToLong(Result::cycles).sum();
+        double seconds = batch.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        System.err.printf("%d ROMs, %d cycles in %.3f s on %d threads (%.1f M cycles/s)%n", results.size(), totalCycles,
+                seconds, batch.getParallelism(), totalCycles / seconds / 1e6);
+    }
+}
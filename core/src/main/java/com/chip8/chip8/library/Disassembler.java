@@ -0,0 +1,72 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.Instruction;
+
+// Mnemonics in the usual Cowgod style. XO-CHIP's F000 NNNN carries its address in the following
+// word, so it is passed in separately.
+public class Disassembler {
+    private Disassembler() {
+    }
+
+    public static String disassemble(Instruction instruction) {
+        return disassemble(instruction, 0);
+    }
+
+    public static String disassemble(Instruction instruction, int nextWord) {
+        int x = instruction.getX();
+        int y = instruction.getY();
+        return switch (instruction.getOpcode()) {
+            case CLS -> "CLS";
+            case RET -> "RET";
+            case JP -> String.format("JP 0x%03X", instruction.getNNN());
+            case CALL -> String.format("CALL 0x%03X", instruction.getNNN());
+            case SE_VX_NN -> String.format("SE V%X, 0x%02X", x, instruction.getNN());
+            case SNE_VX_NN -> String.format("SNE V%X, 0x%02X", x, instruction.getNN());
+            case SE_VX_VY -> String.format("SE V%X, V%X", x, y);
+            case LD_VX_NN -> String.format("LD V%X, 0x%02X", x, instruction.getNN());
+            case ADD_VX_NN -> String.format("ADD V%X, 0x%02X", x, instruction.getNN());
+            case LD_VX_VY -> String.format("LD V%X, V%X", x, y);
+            case OR_VX_VY -> String.format("OR V%X, V%X", x, y);
+            case AND_VX_VY -> String.format("AND V%X, V%X", x, y);
+            case XOR_VX_VY -> String.format("XOR V%X, V%X", x, y);
+            case ADD_VX_VY -> String.format("ADD V%X, V%X", x, y);
+            case SUB_VX_VY -> String.format("SUB V%X, V%X", x, y);
+            case SHR_VX -> String.format("SHR V%X", x);
+            case SUBN_VX_VY -> String.format("SUBN V%X, V%X", x, y);
+            case SHL_VX -> String.format("SHL V%X", x);
+            case SNE_VX_VY -> String.format("SNE V%X, V%X", x, y);
+            case LD_I_NNN -> String.format("LD I, 0x%03X", instruction.getNNN());
+            case JP_V0_NNN -> String.format("JP V0, 0x%03X", instruction.getNNN());
+            case RND_VX_NN -> String.format("RND V%X, 0x%02X", x, instruction.getNN());
+            case DRW -> String.format("DRW V%X, V%X, %d", x, y, instruction.getN());
+            case SKP_VX -> String.format("SKP V%X", x);
+            case SKNP_VX -> String.format("SKNP V%X", x);
+            case LD_VX_DT -> String.format("LD V%X, DT", x);
+            case LD_VX_K -> String.format("LD V%X, K", x);
+            case LD_DT_VX -> String.format("LD DT, V%X", x);
+            case LD_ST_VX -> String.format("LD ST, V%X", x);
+            case ADD_I_VX -> String.format("ADD I, V%X", x);
+            case LD_F_VX -> String.format("LD F, V%X", x);
+            case LD_B_VX -> String.format("LD B, V%X", x);
+            case LD_I_VX -> String.format("LD [I], V%X", x);
+            case LD_VX_I -> String.format("LD V%X, [I]", x);
+            case SCD_N -> String.format("SCD %d", instruction.getN());
+            case SCU_N -> String.format("SCU %d", instruction.getN());
+            case SCR -> "SCR";
+            case SCL -> "SCL";
+            case EXIT -> "EXIT";
+            case LOW -> "LOW";
+            case HIGH -> "HIGH";
+            case SAVE_VX_VY -> String.format("SAVE V%X-V%X", x, y);
+            case LOAD_VX_VY -> String.format("LOAD V%X-V%X", x, y);
+            case LD_I_LONG -> String.format("LD I, 0x%04X", nextWord & 0xFFFF);
+            case PLANE -> String.format("PLANE %d", x);
+            case LD_AUDIO -> "AUDIO";
+            case LD_HF_VX -> String.format("LD HF, V%X", x);
+            case LD_R_VX -> String.format("LD R, V%X", x);
+            case LD_VX_R -> String.format("LD V%X, R", x);
+            case LD_PITCH_VX -> String.format("PITCH V%X", x);
+            case UNKNOWN -> String.format("DW 0x%04X", instruction.getRaw());
+        };
+    }
+}
@@ -0,0 +1,242 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.Instruction;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.Opcode;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// What RomAnalyzer found in a ROM: its basic blocks and the edges between them, the bytes no path
+// reaches, every memory write with its target where I is known, and loops that only wait. Addresses
+// are absolute, so the ROM starts at PC_START. Blocks are sorted by start address.
+public class RomAnalysis {
+    public enum EdgeKind {
+        FALLTHROUGH,
+        JUMP,
+        CALL,
+        SKIP,
+        TABLE
+    }
+
+    public enum IdleKind {
+        // A jump to itself
+        SPIN,
+        // LD Vx, DT / SE or SNE Vx, NN / JP back
+        DELAY_POLL,
+        // FX0A
+        KEY_WAIT
+    }
+
+    public record Edge(int target, EdgeKind kind) {
+    }
+
+    // end is exclusive
+    public record Block(int start, int end, List<Edge> successors) {
+        public boolean covers(int address) {
+            return address >= start && address < end;
+        }
+    }
+
+    // referenced is true when a known I points into the region
+    public record DataRegion(int start, int end, boolean referenced) {
+    }
+
+    // target is -1 when I cannot be worked out statically; selfModifying means the target overlaps code
+    public record Write(int address, int target, int length, boolean selfModifying) {
+    }
+
+    public record IdleLoop(int start, int end, IdleKind kind) {
+    }
+
+    private final byte[] romData;
+    private final MachineProfile profile;
+    private final byte[] hash;
+    private final List<Block> blocks;
+    private final List<Integer> indirectJumps;
+    private final List<DataRegion> dataRegions;
+    private final List<Write> writes;
+    private final List<IdleLoop> idleLoops;
+    private final int[] blockStarts;
+    private final Map<Integer, Write> writesByAddress;
+
+    RomAnalysis(byte[] romData, MachineProfile profile, byte[] hash, List<Block> blocks, List<Integer> indirectJumps,
+                List<DataRegion> dataRegions, List<Write> writes, List<IdleLoop> idleLoops) {
+        this.romData = romData;
+        this.profile = profile;
+        this.hash = hash;
+        this.blocks = List.copyOf(blocks);
+        this.indirectJumps = List.copyOf(indirectJumps);
+        this.dataRegions = List.copyOf(dataRegions);
+        this.writes = List.copyOf(writes);
+        this.idleLoops = List.copyOf(idleLoops);
+        blockStarts = blocks.stream().mapToInt(Block::start).toArray();
+        writesByAddress = new HashMap<>();
+        for (Write write : writes) {
+            writesByAddress.put(write.address(), write);
+        }
+    }
+
+    public MachineProfile getProfile() {
+        return profile;
+    }
+
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    public String getHashString() {
+        return HexFormat.of().formatHex(hash);
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    // BNNN instructions; their targets depend on V0 and only jump tables at NNN are followed
+    public List<Integer> getIndirectJumps() {
+        return indirectJumps;
+    }
+
+    public List<DataRegion> getDataRegions() {
+        return dataRegions;
+    }
+
+    public List<Write> getWrites() {
+        return writes;
+    }
+
+    public List<IdleLoop> getIdleLoops() {
+        return idleLoops;
+    }
+
+    public boolean isBlockStart(int address) {
+        return Arrays.binarySearch(blockStarts, address) >= 0;
+    }
+
+    // The block starting at or covering address, or null if no reachable code is there
+    public Block getBlock(int address) {
+        int index = Arrays.binarySearch(blockStarts, address);
+        if (index >= 0) {
+            return blocks.get(index);
+        }
+        int before = -index - 2;
+        return before >= 0 && blocks.get(before).covers(address) ? blocks.get(before) : null;
+    }
+
+    public boolean isSelfModifying() {
+        return writes.stream().anyMatch(Write::selfModifying);
+    }
+
+    private int memory(int address) {
+        int offset = address - Chip8.PC_START;
+        return offset >= 0 && offset < romData.length ? romData[offset] & 0xFF : 0;
+    }
+
+    private Instruction instruction(int address) {
+        return Instruction.decode(memory(address) << 8 | memory(address + 1), profile);
+    }
+
+    private String disassemble(int address) {
+        return Disassembler.disassemble(instruction(address), memory(address + 2) << 8 | memory(address + 3));
+    }
+
+    private int length(int address) {
+        return instruction(address).getOpcode() == Opcode.LD_I_LONG ? 4 : 2;
+    }
+
+    public void writeListing(PrintStream out) {
+        out.printf("; %s, %d bytes, %s%n", getHashString(), romData.length, profile);
+        out.printf("; %d blocks, %d data regions, %d writes (%d to code), %d idle loops%n", blocks.size(),
+                dataRegions.size(), writes.size(), writes.stream().filter(Write::selfModifying).count(), idleLoops.size());
+        for (IdleLoop loop : idleLoops) {
+            out.printf("; idle %s at %03X-%03X%n", loop.kind(), loop.start(), loop.end() - 1);
+        }
+
+        // Blocks and data regions interleaved by address
+        int region = 0;
+        for (Block block : blocks) {
+            while (region < dataRegions.size() && dataRegions.get(region).start() < block.start()) {
+                writeData(out, dataRegions.get(region++));
+            }
+            writeBlock(out, block);
+        }
+        while (region < dataRegions.size()) {
+            writeData(out, dataRegions.get(region++));
+        }
+    }
+
+    private void writeBlock(PrintStream out, Block block) {
+        out.printf("%nblock_%03X:%n", block.start());
+        for (int address = block.start(); address < block.end(); address += length(address)) {
+            out.printf("  %03X  %02X%02X  %s", address, memory(address), memory(address + 1), disassemble(address));
+            if (instruction(address).getOpcode() == Opcode.JP_V0_NNN) {
+                out.print("  ; indirect");
+            }
+            Write write = writesByAddress.get(address);
+            if (write != null) {
+                out.print(write.target() < 0 ? "  ; writes to unknown I"
+                        : String.format("  ; writes %03X-%03X%s", write.target(), write.target() + write.length() - 1,
+                        write.selfModifying() ? " (code)" : ""));
+            }
+            out.println();
+        }
+        if (!block.successors().isEmpty()) {
+            StringBuilder line = new StringBuilder("  ; ->");
+            for (Edge edge : block.successors()) {
+                line.append(String.format(" %s %03X", edge.kind().name().toLowerCase(Locale.ROOT), edge.target()));
+            }
+            out.println(line);
+        }
+    }
+
+    private void writeData(PrintStream out, DataRegion region) {
+        out.printf("%ndata_%03X:%s%n", region.start(), region.referenced() ? "" : "  ; unreferenced");
+        for (int address = region.start(); address < region.end(); address += 8) {
+            StringBuilder line = new StringBuilder(String.format("  %03X  DB", address));
+            for (int a = address; a < Math.min(address + 8, region.end()); a++) {
+                line.append(a > address ? ", " : " ").append(String.format("0x%02X", memory(a)));
+            }
+            out.println(line);
+        }
+    }
+
+    // Graphviz: one box per block listing its instructions. Idle loops are filled grey and blocks that
+    // write to code are outlined red.
+    public void writeDot(PrintStream out) {
+        out.println("digraph rom {");
+        out.println("  node [shape=box, fontname=\"monospace\"];");
+        for (Block block : blocks) {
+            StringBuilder label = new StringBuilder();
+            boolean writesCode = false;
+            for (int address = block.start(); address < block.end(); address += length(address)) {
+                label.append(String.format("%03X: %s\\l", address, disassemble(address)));
+                Write write = writesByAddress.get(address);
+                writesCode |= write != null && write.selfModifying();
+            }
+            boolean idle = idleLoops.stream().anyMatch(loop -> block.start() < loop.end() && loop.start() < block.end());
+            out.printf("  b%03X [label=\"%s\"%s%s];%n", block.start(), label, idle ? ", style=filled, fillcolor=lightgrey" : "",
+                    writesCode ? ", color=red" : "");
+        }
+        Set<Integer> outside = new HashSet<>();
+        for (Block block : blocks) {
+            for (Edge edge : block.successors()) {
+                if (!isBlockStart(edge.target()) && outside.add(edge.target())) {
+                    out.printf("  x%03X [label=\"%03X\", shape=ellipse];%n", edge.target(), edge.target());
+                }
+                out.printf("  b%03X -> %s%03X%s;%n", block.start(), isBlockStart(edge.target()) ? "b" : "x", edge.target(),
+                        edge.kind() == EdgeKind.FALLTHROUGH ? ""
+                                : " [label=\"" + edge.kind().name().toLowerCase(Locale.ROOT) + "\"]");
+            }
+        }
+        out.println("}");
+    }
+}
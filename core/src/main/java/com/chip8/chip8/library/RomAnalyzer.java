@@ -0,0 +1,355 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.library.RomAnalysis.Block;
+import com.chip8.chip8.library.RomAnalysis.DataRegion;
+import com.chip8.chip8.library.RomAnalysis.Edge;
+import com.chip8.chip8.library.RomAnalysis.EdgeKind;
+import com.chip8.chip8.library.RomAnalysis.IdleKind;
+import com.chip8.chip8.library.RomAnalysis.IdleLoop;
+import com.chip8.chip8.library.RomAnalysis.Write;
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.Instruction;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.Opcode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Static analysis of a ROM without running it. Code is found by recursive descent from PC_START,
+// following jumps, calls and both sides of every skip, and split into basic blocks at every branch
+// target. The value of I is then propagated over the graph so memory writes can be placed; a write
+// that lands on reachable code is self-modifying. Anything the descent never reaches is data.
+// BNNN depends on V0, so only NNN itself and a jump table of 1NNN entries starting there are followed.
+public class RomAnalyzer {
+    public static final int MAX_JUMP_TABLE = 128;
+
+    // I states during propagation: a block not reached yet, or I differs between paths
+    private static final int UNREACHED = -1;
+    private static final int VARYING = -2;
+
+    private final int[] memory;
+    private final int end;
+    private final MachineProfile profile;
+
+    private RomAnalyzer(byte[] romData, MachineProfile profile) {
+        this.profile = profile;
+        end = Math.min(profile.getMemorySize(), Chip8.PC_START + romData.length);
+        memory = new int[end];
+        for (int address = Chip8.PC_START; address < end; address++) {
+            memory[address] = romData[address - Chip8.PC_START] & 0xFF;
+        }
+    }
+
+    public static RomAnalysis analyze(byte[] romData, MachineProfile profile, byte[] hash) {
+        return new RomAnalyzer(romData, profile).analyze(romData, hash);
+    }
+
+    private RomAnalysis analyze(byte[] romData, byte[] hash) {
+        boolean[] instructionStart = new boolean[end];
+        boolean[] code = new boolean[end];
+        BitSet leaders = new BitSet(end);
+        List<Integer> indirectJumps = new ArrayList<>();
+
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push((int) Chip8.PC_START);
+        leaders.set(Chip8.PC_START);
+        while (!pending.isEmpty()) {
+            int pc = pending.pop();
+            if (!isInstruction(pc) || instructionStart[pc]) {
+                continue;
+            }
+            instructionStart[pc] = true;
+            Instruction instruction = instruction(pc);
+            for (int a = pc; a < Math.min(pc + length(instruction), end); a++) {
+                code[a] = true;
+            }
+            if (instruction.getOpcode() == Opcode.JP_V0_NNN) {
+                indirectJumps.add(pc);
+            }
+
+            List<Edge> successors = successors(pc, instruction);
+            boolean endsBlock = endsBlock(successors);
+            for (Edge edge : successors) {
+                if (endsBlock) {
+                    leaders.set(edge.target());
+                }
+                pending.push(edge.target());
+            }
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        for (int start = leaders.nextSetBit(0); start >= 0; start = leaders.nextSetBit(start + 1)) {
+            if (start < end && instructionStart[start]) {
+                blocks.add(block(start, leaders));
+            }
+        }
+
+        int[] entryI = propagateI(blocks);
+        List<Write> writes = new ArrayList<>();
+        BitSet referenced = new BitSet(end);
+        for (int b = 0; b < blocks.size(); b++) {
+            scanAccesses(blocks.get(b), entryI[b], code, writes, referenced);
+        }
+
+        List<DataRegion> dataRegions = new ArrayList<>();
+        for (int start = Chip8.PC_START; start < end; start++) {
+            if (!code[start]) {
+                int regionEnd = start;
+                while (regionEnd < end && !code[regionEnd]) {
+                    regionEnd++;
+                }
+                int next = referenced.nextSetBit(start);
+                dataRegions.add(new DataRegion(start, regionEnd, next >= 0 && next < regionEnd));
+                start = regionEnd;
+            }
+        }
+
+        indirectJumps.sort(null);
+        return new RomAnalysis(romData, profile, hash, blocks, indirectJumps, dataRegions, writes, idleLoops(instructionStart));
+    }
+
+    private boolean isInstruction(int address) {
+        return address >= Chip8.PC_START && address + 1 < end;
+    }
+
+    private Instruction instruction(int address) {
+        return Instruction.decode(memory[address] << 8 | memory[address + 1], profile);
+    }
+
+    private boolean isJump(int address) {
+        return isInstruction(address) && instruction(address).getOpcode() == Opcode.JP;
+    }
+
+    private int word(int address) {
+        return address + 1 < end ? memory[address] << 8 | memory[address + 1] : 0;
+    }
+
+    private static int length(Instruction instruction) {
+        return instruction.getOpcode() == Opcode.LD_I_LONG ? 4 : 2;
+    }
+
+    // Same rule as Chip8.skip(): XO-CHIP skips the whole of F000 NNNN
+    private int skipTarget(int pc) {
+        return profile == MachineProfile.XOCHIP && word(pc + 2) == 0xF000 ? pc + 6 : pc + 4;
+    }
+
+    private List<Edge> successors(int pc, Instruction instruction) {
+        List<Edge> edges = new ArrayList<>(2);
+        switch (instruction.getOpcode()) {
+            case JP -> edges.add(new Edge(instruction.getNNN(), EdgeKind.JUMP));
+            case CALL -> {
+                edges.add(new Edge(instruction.getNNN(), EdgeKind.CALL));
+                edges.add(new Edge(pc + 2, EdgeKind.FALLTHROUGH));
+            }
+            case RET, EXIT, UNKNOWN -> {
+            }
+            case SE_VX_NN, SNE_VX_NN, SE_VX_VY, SNE_VX_VY, SKP_VX, SKNP_VX -> {
+                edges.add(new Edge(pc + 2, EdgeKind.FALLTHROUGH));
+                edges.add(new Edge(skipTarget(pc), EdgeKind.SKIP));
+            }
+            case JP_V0_NNN -> {
+                // NNN is always a target; if it holds a jump, so does every jump that follows it
+                int table = instruction.getNNN();
+                edges.add(new Edge(table, EdgeKind.TABLE));
+                for (int entry = table; entry < table + MAX_JUMP_TABLE * 2 && isJump(entry) && isJump(entry + 2); entry += 2) {
+                    edges.add(new Edge(entry + 2, EdgeKind.TABLE));
+                }
+            }
+            default -> edges.add(new Edge(pc + length(instruction), EdgeKind.FALLTHROUGH));
+        }
+        return edges;
+    }
+
+    private static boolean endsBlock(List<Edge> successors) {
+        return successors.size() != 1 || successors.get(0).kind() != EdgeKind.FALLTHROUGH;
+    }
+
+    // Follows straight-line code from a leader until a branch or the next leader
+    private Block block(int start, BitSet leaders) {
+        int pc = start;
+        while (true) {
+            Instruction instruction = instruction(pc);
+            List<Edge> successors = successors(pc, instruction);
+            int next = pc + length(instruction);
+            if (endsBlock(successors) || leaders.get(next) || !isInstruction(next)) {
+                return new Block(start, Math.min(next, end), successors);
+            }
+            pc = next;
+        }
+    }
+
+    // Forward dataflow of I over the block graph. A subroutine may change I, so the return site of a
+    // CALL starts with I unknown.
+    private int[] propagateI(List<Block> blocks) {
+        int[] entry = new int[blocks.size()];
+        Arrays.fill(entry, UNREACHED);
+        if (blocks.isEmpty() || blocks.get(0).start() != Chip8.PC_START) {
+            return entry;
+        }
+        entry[0] = Chip8.I_START;
+
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.add(0);
+        while (!pending.isEmpty()) {
+            int b = pending.poll();
+            Block block = blocks.get(b);
+            int i = entry[b];
+            for (int pc = block.start(); pc < block.end(); pc += length(instruction(pc))) {
+                i = transferI(pc, instruction(pc), i);
+            }
+            boolean call = block.successors().stream().anyMatch(edge -> edge.kind() == EdgeKind.CALL);
+            for (Edge edge : block.successors()) {
+                int target = blockIndex(blocks, edge.target());
+                if (target < 0) {
+                    continue;
+                }
+                int incoming = call && edge.kind() == EdgeKind.FALLTHROUGH ? VARYING : i;
+                int merged = entry[target] == UNREACHED || entry[target] == incoming ? incoming : VARYING;
+                if (merged != entry[target]) {
+                    entry[target] = merged;
+                    pending.add(target);
+                }
+            }
+        }
+        return entry;
+    }
+
+    private int transferI(int pc, Instruction instruction, int i) {
+        return switch (instruction.getOpcode()) {
+            case LD_I_NNN -> instruction.getNNN();
+            case LD_I_LONG -> word(pc + 2);
+            case ADD_I_VX, LD_F_VX, LD_HF_VX -> i == UNREACHED ? UNREACHED : VARYING;
+            default -> i;
+        };
+    }
+
+    private static int blockIndex(List<Block> blocks, int start) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = blocks.get(middle).start();
+            if (value < start) {
+                low = middle + 1;
+            } else if (value > start) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void scanAccesses(Block block, int i, boolean[] code, List<Write> writes, BitSet referenced) {
+        for (int pc = block.start(); pc < block.end(); pc += length(instruction(pc))) {
+            Instruction instruction = instruction(pc);
+            int length = switch (instruction.getOpcode()) {
+                case LD_B_VX -> 3;
+                case LD_I_VX -> instruction.getX() + 1;
+                case SAVE_VX_VY -> Math.abs(instruction.getX() - instruction.getY()) + 1;
+                default -> 0;
+            };
+            boolean known = i >= 0;
+            if (length > 0) {
+                boolean selfModifying = false;
+                for (int a = i; known && a < Math.min(i + length, end); a++) {
+                    selfModifying |= code[a];
+                }
+                writes.add(new Write(pc, known ? i : -1, length, selfModifying));
+            }
+            if (known && i < end && (length > 0 || reads(instruction.getOpcode()))) {
+                referenced.set(i);
+            }
+            i = transferI(pc, instruction, i);
+        }
+    }
+
+    private static boolean reads(Opcode opcode) {
+        return switch (opcode) {
+            case DRW, LD_VX_I, LOAD_VX_VY, LD_AUDIO -> true;
+            default -> false;
+        };
+    }
+
+    // The loop shapes Chip8 fast-forwards, plus FX0A
+    private List<IdleLoop> idleLoops(boolean[] instructionStart) {
+        List<IdleLoop> loops = new ArrayList<>();
+        for (int pc = Chip8.PC_START; pc < end; pc++) {
+            if (!instructionStart[pc]) {
+                continue;
+            }
+            Instruction instruction = instruction(pc);
+            if (instruction.getOpcode() == Opcode.LD_VX_K) {
+                loops.add(new IdleLoop(pc, pc + 2, IdleKind.KEY_WAIT));
+            } else if (instruction.getOpcode() == Opcode.JP && instruction.getNNN() == pc) {
+                loops.add(new IdleLoop(pc, pc + 2, IdleKind.SPIN));
+            } else if (instruction.getOpcode() == Opcode.JP && instruction.getNNN() == pc - 4 && isInstruction(pc - 4)) {
+                Instruction load = instruction(pc - 4);
+                Instruction test = instruction(pc - 2);
+                if (load.getOpcode() == Opcode.LD_VX_DT && test.getX() == load.getX()
+                        && (test.getOpcode() == Opcode.SE_VX_NN || test.getOpcode() == Opcode.SNE_VX_NN)) {
+                    loops.add(new IdleLoop(pc - 4, pc + 2, IdleKind.DELAY_POLL));
+                }
+            }
+        }
+        return loops;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: RomAnalyzer <rom> [--format text|dot] [--output file] [--machine CHIP8|SCHIP|XOCHIP] "
+                    + "[--cache directory|none]");
+            System.exit(2);
+        }
+
+        Path rom = Path.of(args[0]);
+        String format = "text";
+        Path output = null;
+        MachineProfile profile = RomLibrary.profile(rom, MachineProfile.CHIP8);
+        String cache = AnalysisCache.defaultDirectory().toString();
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--format" -> format = value;
+                case "--output" -> output = Path.of(value);
+                case "--machine" -> profile = MachineProfile.valueOf(value);
+                case "--cache" -> cache = value;
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        byte[] romData = Files.readAllBytes(rom);
+        AnalysisCache analyses = new AnalysisCache(cache.equals("none") ? null : Path.of(cache));
+        RomAnalysis analysis = analyses.get(romData, profile);
+        long elapsed = System.nanoTime() - start;
+
+        PrintStream out = output == null ? System.out : new PrintStream(Files.newOutputStream(output));
+        switch (format) {
+            case "text" -> analysis.writeListing(out);
+            case "dot" -> analysis.writeDot(out);
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+        if (output != null) {
+            out.close();
+        }
+        System.err.printf("%d blocks in %.1f ms (%s)%n", analysis.getBlocks().size(),
+                elapsed / (double) TimeUnit.MILLISECONDS.toNanos(1), analyses.getHits() > 0 ? "cached" : "analysed");
+    }
+}
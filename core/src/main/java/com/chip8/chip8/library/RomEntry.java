@@ -0,0 +1,106 @@
+package com.chip8.chip8.library;
+
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+public class RomEntry {
+    private final String location;
+    private Path path;
+    private final long size;
+    private final long modified;
+    private final byte[] hash;
+    private String title;
+    private long lastPlayed;
+    private int instructionsPerSecond;
+    private int quirks;
+
+    // Paths are kept as strings and only turned into Path objects when used, which keeps loading
+    // a large index cheap
+    RomEntry(String location, long size, long modified, byte[] hash, String title) {
+        this.location = location;
+        this.size = size;
+        this.modified = modified;
+        this.hash = hash;
+        this.title = title;
+    }
+
+    // Copy for a moved or modified file that keeps the user's settings
+    RomEntry withFile(String location, long size, long modified, byte[] hash) {
+        RomEntry entry = new RomEntry(location, size, modified, hash, title);
+        entry.lastPlayed = lastPlayed;
+        entry.instructionsPerSecond = instructionsPerSecond;
+        entry.quirks = quirks;
+        return entry;
+    }
+
+    public Path getPath() {
+        if (path == null) {
+            path = Path.of(location);
+        }
+        return path;
+    }
+
+    String getLocation() {
+        return location;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    byte[] hash() {
+        return hash;
+    }
+
+    public String getHashString() {
+        return HexFormat.of().formatHex(hash);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    // Milliseconds since the epoch, 0 if never played
+    public long getLastPlayed() {
+        return lastPlayed;
+    }
+
+    public void setLastPlayed(long lastPlayed) {
+        this.lastPlayed = lastPlayed;
+    }
+
+    // 0 means the emulator default
+    public int getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    public void setInstructionsPerSecond(int instructionsPerSecond) {
+        this.instructionsPerSecond = instructionsPerSecond;
+    }
+
+    // Quirks flags to run the ROM with, applied when it is started from the library
+    public int getQuirks() {
+        return quirks;
+    }
+
+    public void setQuirks(int quirks) {
+        this.quirks = quirks;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
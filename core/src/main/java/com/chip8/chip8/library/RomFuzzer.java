@@ -0,0 +1,458 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.Coverage;
+import com.chip8.chip8.system.Coverage.Fault;
+import com.chip8.chip8.system.InputMovie;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.ROM;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Coverage-guided fuzzing of a ROM's key input. An input is the key mask for each frame from reset.
+// Workers take inputs from the corpus, mutate them and run them with coverage on; an input that
+// reaches a new edge, hit count class or PC joins the corpus, and one that ends in a fault is
+// shrunk to the shortest, simplest input with the same fault at the same PC and kept as a crash.
+//
+// Every worker has its own machine, restored from a snapshot taken after reset before each run, and
+// its own copy of the coverage seen so far, so the shared totals are only locked when a run looks
+// new to the worker that made it.
+public class RomFuzzer {
+    public static final int DEFAULT_FRAMES = 600;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // frame is the frame the fault happened in, counting from 0
+    public record Crash(Fault fault, int pc, int[] masks, int frame, long foundAt) {
+    }
+
+    public record Progress(long executions, int corpusSize, int edges, int pcs, int crashes) {
+    }
+
+    private final ROM rom;
+    private final MachineProfile profile;
+    private final long seed;
+    private final byte[] snapshot;
+    private final List<int[]> corpus;
+    private final byte[] seenEdges;
+    private final long[] seenPcs;
+    private final Map<String, Crash> crashes;
+    private final AtomicLong executions;
+    private int maxFrames;
+    private int parallelism;
+    private volatile boolean stopped;
+
+    public RomFuzzer(ROM rom, MachineProfile profile, long seed) {
+        this.rom = rom;
+        this.profile = profile;
+        this.seed = seed;
+        Chip8 chip8 = machine();
+        ByteBuffer state = ByteBuffer.allocate(chip8.getStateSize());
+        chip8.saveState(state);
+        snapshot = Arrays.copyOf(state.array(), state.position());
+
+        Coverage coverage = Coverage.forProfile(profile);
+        corpus = new ArrayList<>();
+        seenEdges = new byte[coverage.getMapSize()];
+        seenPcs = coverage.newPcSet();
+        crashes = new ConcurrentHashMap<>();
+        executions = new AtomicLong();
+        maxFrames = DEFAULT_FRAMES;
+        parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setMaxFrames(int maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public synchronized Progress getProgress() {
+        int edges = 0;
+        for (byte seen : seenEdges) {
+            edges += seen != 0 ? 1 : 0;
+        }
+        int pcs = 0;
+        for (long seen : seenPcs) {
+            pcs += Long.bitCount(seen);
+        }
+        return new Progress(executions.get(), corpus.size(), edges, pcs, crashes.size());
+    }
+
+    // Ordered by where they were found
+    public List<Crash> getCrashes() {
+        List<Crash> found = new ArrayList<>(crashes.values());
+        found.sort(Comparator.comparingLong(Crash::foundAt));
+        return found;
+    }
+
+    public synchronized List<int[]> getCorpus() {
+        return List.copyOf(corpus);
+    }
+
+    // Runs until the execution budget is spent, the time is up or stop() is called; 0 means no limit
+    public void run(long maxExecutions, long maxNanos) throws InterruptedException {
+        stopped = false;
+        synchronized (this) {
+            if (corpus.isEmpty()) {
+                corpus.add(new int[maxFrames]);
+            }
+        }
+        long deadline = maxNanos > 0 ? System.nanoTime() + maxNanos : Long.MAX_VALUE;
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < parallelism; w++) {
+            long workerSeed = seed ^ (w + 1) * GOLDEN_GAMMA;
+            workers.add(() -> {
+                new Worker(workerSeed).run(maxExecutions, deadline);
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> future : pool.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    // The machine every run starts from; a crash replays as a movie with the same seed
+    private Chip8 machine() {
+        Chip8 chip8 = new Chip8();
+        chip8.setRom(rom);
+        chip8.setRewindSeconds(0);
+        chip8.setProfile(profile);
+        chip8.reset(seed);
+        return chip8;
+    }
+
+    public InputMovie toMovie(int[] masks) {
+        Chip8 chip8 = machine();
+        InputMovie movie = new InputMovie(seed, InputMovie.checksum(rom), chip8.getInstructionsPerFrame(), profile,
+                chip8.getQuirks());
+        for (int frame = 0; frame < masks.length; frame++) {
+            movie.record(frame, masks[frame]);
+        }
+        return movie;
+    }
+
+    // A fresh worker's view of one input, for checking a crash found earlier
+    public Crash reproduce(int[] masks) {
+        Worker worker = new Worker(seed);
+        int frame = worker.execute(masks);
+        Coverage coverage = worker.coverage;
+        return coverage.getFault() == null ? null : new Crash(coverage.getFault(), coverage.getFaultPc(), masks, frame, 0);
+    }
+
+    private synchronized boolean addToCorpus(Coverage coverage, int[] masks) {
+        if (!coverage.mergeInto(seenEdges, seenPcs)) {
+            return false;
+        }
+        corpus.add(masks);
+        return true;
+    }
+
+    private synchronized int[] pickFromCorpus(SplittableRandom random) {
+        // Favour recent entries, which are the ones at the edge of what has been reached
+        int size = corpus.size();
+        int index = random.nextInt(4) == 0 ? random.nextInt(size) : size - 1 - random.nextInt(Math.min(size, 16));
+        return corpus.get(index);
+    }
+
+    private final class Worker {
+        private final SplittableRandom random;
+        private final Chip8 chip8;
+        private final ByteBuffer state;
+        private final Coverage coverage;
+        private final byte[] localEdges;
+        private final long[] localPcs;
+
+        private Worker(long workerSeed) {
+            random = new SplittableRandom(workerSeed);
+            chip8 = machine();
+            state = ByteBuffer.wrap(snapshot);
+            coverage = Coverage.forProfile(profile);
+            chip8.setCoverage(coverage);
+            localEdges = new byte[coverage.getMapSize()];
+            localPcs = coverage.newPcSet();
+        }
+
+        private void run(long maxExecutions, long deadline) {
+            while (!stopped && (maxExecutions <= 0 || executions.get() < maxExecutions) && System.nanoTime() < deadline) {
+                int[] masks = mutate(pickFromCorpus(random));
+                int frame = execute(masks);
+                long count = executions.incrementAndGet();
+
+                if (coverage.getFault() != null) {
+                    String key = coverage.getFault() + "@" + coverage.getFaultPc();
+                    if (!crashes.containsKey(key)) {
+                        Fault fault = coverage.getFault();
+                        int pc = coverage.getFaultPc();
+                        int[] minimal = minimize(masks, frame, fault, pc);
+                        crashes.putIfAbsent(key, new Crash(fault, pc, minimal, execute(minimal), count));
+                    }
+                } else if (coverage.mergeInto(localEdges, localPcs)) {
+                    addToCorpus(coverage, masks);
+                }
+            }
+        }
+
+        // Returns the frame the run faulted in, or -1
+        private int execute(int[] masks) {
+            chip8.loadState(state.rewind());
+            coverage.clear();
+            for (int frame = 0; frame < masks.length; frame++) {
+                chip8.getInput().setKeyMask(masks[frame]);
+                chip8.runFrame();
+                if (coverage.getFault() != null) {
+                    return frame;
+                }
+            }
+            return -1;
+        }
+
+        private boolean reproduces(int[] masks, Fault fault, int pc) {
+            execute(masks);
+            return coverage.getFault() == fault && coverage.getFaultPc() == pc;
+        }
+
+        // Cuts the input off at the faulting frame, removes ever smaller runs of frames and then
+        // clears the keys of single frames, keeping each change that still faults the same way
+        private int[] minimize(int[] masks, int frame, Fault fault, int pc) {
+            int[] current = Arrays.copyOf(masks, frame + 1);
+            for (int chunk = current.length / 2; chunk >= 1; chunk /= 2) {
+                for (int start = 0; start + chunk <= current.length && current.length > 1; ) {
+                    int[] candidate = new int[current.length - chunk];
+                    System.arraycopy(current, 0, candidate, 0, start);
+                    System.arraycopy(current, start + chunk, candidate, start, current.length - start - chunk);
+                    if (reproduces(candidate, fault, pc)) {
+                        current = candidate;
+                    } else {
+                        start += chunk;
+                    }
+                }
+            }
+            for (int f = 0; f < current.length; f++) {
+                for (int key = 0; key < Chip8.KEY_COUNT; key++) {
+                    if ((current[f] & 1 << key) == 0) {
+                        continue;
+                    }
+                    int[] candidate = current.clone();
+                    candidate[f] &= ~(1 << key);
+                    if (reproduces(candidate, fault, pc)) {
+                        current = candidate;
+                    }
+                }
+            }
+            int faultFrame = execute(current);
+            return Arrays.copyOf(current, faultFrame + 1);
+        }
+
+        // One to four stacked changes, AFL havoc style
+        private int[] mutate(int[] parent) {
+            int[] masks = parent.clone();
+            for (int n = 1 + random.nextInt(4); n > 0; n--) {
+                masks = mutateOnce(masks);
+            }
+            return masks;
+        }
+
+        private int[] mutateOnce(int[] masks) {
+            int length = masks.length;
+            int start = length == 0 ? 0 : random.nextInt(length);
+            int span = 1 + random.nextInt(Math.max(1, Math.min(64, length - start)));
+            switch (random.nextInt(length == 0 ? 1 : 6)) {
+                case 0 -> {
+                    // Grow with a run of one key, which is how most games are steered
+                    int extra = Math.min(span, maxFrames - length);
+                    int[] grown = Arrays.copyOf(masks, length + extra);
+                    Arrays.fill(grown, length, length + extra, randomMask());
+                    return grown;
+                }
+                case 1 -> Arrays.fill(masks, start, Math.min(length, start + span), randomMask());
+                case 2 -> {
+                    int key = 1 << random.nextInt(Chip8.KEY_COUNT);
+                    for (int f = start; f < Math.min(length, start + span); f++) {
+                        masks[f] ^= key;
+                    }
+                }
+                case 3 -> {
+                    int end = Math.min(length, start + span);
+                    int[] shorter = new int[length - (end - start)];
+                    System.arraycopy(masks, 0, shorter, 0, start);
+                    System.arraycopy(masks, end, shorter, start, length - end);
+                    return shorter;
+                }
+                case 4 -> {
+                    // Repeat a run of frames, e.g. to press a key again
+                    int end = Math.min(length, start + span);
+                    int copied = Math.min(end - start, maxFrames - length);
+                    int[] longer = new int[length + copied];
+                    System.arraycopy(masks, 0, longer, 0, end);
+                    System.arraycopy(masks, start, longer, end, copied);
+                    System.arraycopy(masks, end, longer, end + copied, length - end);
+                    return longer;
+                }
+                default -> {
+                    // Splice: this input up to start, another one from there on
+                    int[] other = pickFromCorpus(random);
+                    if (other.length > start) {
+                        int[] spliced = Arrays.copyOf(masks, Math.min(maxFrames, other.length));
+                        System.arraycopy(other, start, spliced, start, spliced.length - start);
+                        return spliced;
+                    }
+                }
+            }
+            return masks;
+        }
+
+        private int randomMask() {
+            int choice = random.nextInt(8);
+            if (choice == 0) {
+                return 0;
+            }
+            return choice == 1 ? random.nextInt(1 << Chip8.KEY_COUNT) : 1 << random.nextInt(Chip8.KEY_COUNT);
+        }
+    }
+
+    // Key changes only: "@12 5 @14 - @20 4+6"
+    public static String describe(int[] masks) {
+        StringBuilder text = new StringBuilder();
+        int previous = 0;
+        for (int frame = 0; frame < masks.length; frame++) {
+            if (masks[frame] == previous) {
+                continue;
+            }
+            previous = masks[frame];
+            text.append(text.isEmpty() ? "" : " ").append('@').append(frame).append(' ');
+            if (previous == 0) {
+                text.append('-');
+            }
+            for (int key = 0, keys = 0; key < Chip8.KEY_COUNT; key++) {
+                if ((previous & 1 << key) != 0) {
+                    text.append(keys++ > 0 ? "+" : "").append(Integer.toHexString(key).toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return text.isEmpty() ? "no keys" : text.toString();
+    }
+
+    private static void report(PrintStream out, Progress progress, long startNanos, long previousExecutions, long intervalNanos) {
+        double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("%7.1fs  %10d runs  %8.0f runs/s  corpus %5d  edges %5d  pcs %5d  crashes %d%n", seconds,
+                progress.executions(), (progress.executions() - previousExecutions) * (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos,
+                progress.corpusSize(), progress.edges(), progress.pcs(), progress.crashes());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: RomFuzzer <rom> [--seconds N] [--runs N] [--frames N] [--threads N] [--seed N]"
+                    + " [--machine CHIP8|SCHIP|XOCHIP] [--output dir]");
+            System.exit(2);
+        }
+
+        Path file = Path.of(args[0]);
+        long seconds = 60;
+        long runs = 0;
+        int frames = DEFAULT_FRAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        MachineProfile profile = null;
+        Path output = null;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--seconds" -> seconds = Long.parseLong(value);
+                case "--runs" -> runs = Long.parseLong(value);
+                case "--frames" -> frames = Integer.parseInt(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--machine" -> profile = MachineProfile.valueOf(value.toUpperCase(Locale.ROOT));
+                case "--output" -> output = Path.of(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (profile == null) {
+            profile = RomLibrary.profile(file, MachineProfile.CHIP8);
+        }
+
+        RomFuzzer fuzzer = new RomFuzzer(new ROM(Files.readAllBytes(file)), profile, seed);
+        fuzzer.setMaxFrames(frames);
+        fuzzer.setParallelism(threads);
+
+        long maxRuns = runs;
+        long maxNanos = TimeUnit.SECONDS.toNanos(seconds);
+        Thread fuzzing = new Thread(() -> {
+            try {
+                fuzzer.run(maxRuns, maxNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "fuzzer");
+        long start = System.nanoTime();
+        fuzzing.start();
+        long interval = TimeUnit.SECONDS.toNanos(1);
+        long previous = 0;
+        long last = start;
+        while (fuzzing.isAlive()) {
+            fuzzing.join(TimeUnit.NANOSECONDS.toMillis(interval));
+            Progress progress = fuzzer.getProgress();
+            long now = System.nanoTime();
+            report(System.out, progress, start, previous, now - last);
+            previous = progress.executions();
+            last = now;
+        }
+
+        List<Crash> found = fuzzer.getCrashes();
+        System.out.printf("%d distinct crashes%n", found.size());
+        if (output != null && !found.isEmpty()) {
+            Files.createDirectories(output);
+        }
+        for (Crash crash : found) {
+            System.out.printf("%s at 0x%03X, frame %d: %s%n", crash.fault(), crash.pc(), crash.frame(), describe(crash.masks()));
+            if (output != null) {
+                Path movie = output.resolve(String.format("%s-%03x.c8m", crash.fault().name().toLowerCase(Locale.ROOT), crash.pc()));
+                fuzzer.toMovie(crash.masks()).save(movie);
+            }
+        }
+        System.exit(found.isEmpty() ? 0 : 1);
+    }
+}
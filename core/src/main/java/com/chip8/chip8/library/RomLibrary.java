@@ -0,0 +1,336 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.utils.RomUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Persistent index of the ROMs found under one or more directories. Files are hashed once; later
+// scans only hash files whose size or modification time changed, and per-ROM settings follow a ROM
+// across renames by matching its hash.
+public class RomLibrary {
+    private static final Logger log = Logger.getLogger(RomLibrary.class.getName());
+
+    public static final int INDEX_MAGIC = 0x43384C42;
+    public static final short INDEX_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-1";
+    private static final Set<String> ROM_EXTENSIONS = Set.of("ch8", "c8", "sc8", "xo8");
+
+    private final Path indexFile;
+    private final Map<String, RomEntry> entries;
+    private final Set<Path> roots;
+
+    public RomLibrary(Path indexFile) {
+        this.indexFile = indexFile;
+        entries = new ConcurrentHashMap<>();
+        roots = ConcurrentHashMap.newKeySet();
+    }
+
+    public static Path defaultIndexFile() {
+        return Path.of(System.getProperty("user.home"), ".chip8", "library.idx");
+    }
+
+    public List<RomEntry> getEntries() {
+        List<RomEntry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparing(RomEntry::getTitle, String.CASE_INSENSITIVE_ORDER));
+        return list;
+    }
+
+    public List<RomEntry> getRecentlyPlayed() {
+        List<RomEntry> list = new ArrayList<>();
+        for (RomEntry entry : entries.values()) {
+            if (entry.getLastPlayed() != 0) {
+                list.add(entry);
+            }
+        }
+        list.sort(Comparator.comparingLong(RomEntry::getLastPlayed).reversed());
+        return list;
+    }
+
+    public Set<Path> getRoots() {
+        return Set.copyOf(roots);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // The index is read with a single bulk read and parsed in memory, so opening a large library
+    // costs little more than reading the file
+    public void load() throws IOException {
+        entries.clear();
+        roots.clear();
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        try {
+            if (in.getInt() != INDEX_MAGIC) {
+                throw new IOException("Not a ROM library index: " + indexFile);
+            }
+            short version = in.getShort();
+            if (version != INDEX_VERSION) {
+                throw new IOException("Unsupported library index version: " + version);
+            }
+
+            int rootCount = in.getInt();
+            for (int i = 0; i < rootCount; i++) {
+                roots.add(Path.of(getString(in)));
+            }
+
+            int entryCount = in.getInt();
+            for (int i = 0; i < entryCount; i++) {
+                String location = getString(in);
+                long size = in.getLong();
+                long modified = in.getLong();
+                byte[] hash = new byte[in.get() & 0xFF];
+                in.get(hash);
+                RomEntry entry = new RomEntry(location, size, modified, hash, getString(in));
+                entry.setLastPlayed(in.getLong());
+                entry.setInstructionsPerSecond(in.getInt());
+                entry.setQuirks(in.getInt());
+                entries.put(location, entry);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated ROM library index: " + indexFile, e);
+        }
+    }
+
+    // Writes to a temporary file first so a crash never leaves a truncated index behind
+    public synchronized void save() throws IOException {
+        Files.createDirectories(indexFile.toAbsolutePath().getParent());
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeShort(INDEX_VERSION);
+
+            out.writeInt(roots.size());
+            for (Path root : roots) {
+                putString(out, root.toString());
+            }
+
+            List<RomEntry> list = new ArrayList<>(entries.values());
+            out.writeInt(list.size());
+            for (RomEntry entry : list) {
+                putString(out, entry.getLocation());
+                out.writeLong(entry.getSize());
+                out.writeLong(entry.getModified());
+                out.writeByte(entry.hash().length);
+                out.write(entry.hash());
+                putString(out, entry.getTitle());
+                out.writeLong(entry.getLastPlayed());
+                out.writeInt(entry.getInstructionsPerSecond());
+                out.writeInt(entry.getQuirks());
+            }
+        }
+
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Adds the directory to the library and brings its entries up to date. Returns the number of
+    // files that had to be hashed.
+    public int scan(Path directory) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(RomLibrary::isRom).toList();
+        }
+        roots.add(root);
+
+        Set<String> found = new HashSet<>();
+        for (Path file : files) {
+            found.add(file.toString());
+        }
+        String prefix = root.toString().endsWith(root.getFileSystem().getSeparator()) ? root.toString() : root + root.getFileSystem().getSeparator();
+        Map<String, RomEntry> removed = new HashMap<>();
+        for (RomEntry entry : entries.values()) {
+            if (entry.getLocation().startsWith(prefix) && !found.contains(entry.getLocation())) {
+                entries.remove(entry.getLocation());
+                removed.put(entry.getHashString(), entry);
+            }
+        }
+
+        AtomicInteger hashed = new AtomicInteger();
+        try {
+            files.parallelStream().forEach(file -> {
+                try {
+                    if (update(file, removed)) {
+                        hashed.incrementAndGet();
+                    }
+                } catch (NoSuchFileException e) {
+                    entries.remove(file.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info(String.format("Scanned %s: %d ROMs, %d hashed", root, files.size(), hashed.get()));
+        return hashed.get();
+    }
+
+    public int rescan() throws IOException {
+        int hashed = 0;
+        for (Path root : getRoots()) {
+            if (Files.isDirectory(root)) {
+                hashed += scan(root);
+            }
+        }
+        return hashed;
+    }
+
+    private boolean update(Path file, Map<String, RomEntry> removed) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        String location = file.toString();
+        RomEntry existing = entries.get(location);
+        if (existing != null && existing.getSize() == size && existing.getModified() == modified) {
+            return false;
+        }
+
+        byte[] hash = hash(file);
+        RomEntry moved = removed.get(HexFormat.of().formatHex(hash));
+        // Copies the settings of the entry as it is now, not as it was before hashing, so changes
+        // made through the library meanwhile carry over
+        entries.compute(location, (key, current) -> {
+            RomEntry template = current != null ? current : moved;
+            return template != null ? template.withFile(location, size, modified, hash) : new RomEntry(location, size, modified, hash, title(file));
+        });
+        return true;
+    }
+
+    // Reads the ROM through a memory-mapped view of the file
+    public ROM load(RomEntry entry) throws IOException {
+        return new ROM(RomUtils.mapRomFromFile(entry.getPath()));
+    }
+
+    public void markPlayed(RomEntry entry) {
+        long now = System.currentTimeMillis();
+        change(entry, current -> current.setLastPlayed(now));
+    }
+
+    public void setInstructionsPerSecond(RomEntry entry, int instructionsPerSecond) {
+        change(entry, current -> current.setInstructionsPerSecond(instructionsPerSecond));
+    }
+
+    public void setQuirks(RomEntry entry, int quirks) {
+        change(entry, current -> current.setQuirks(quirks));
+    }
+
+    // A rescan replaces the entry of a changed or moved file, so an entry handed out earlier may no
+    // longer be in the library. Changes go to the entry now at its location, or for a moved file to
+    // the one with the same hash, as well as to the entry the caller holds.
+    private void change(RomEntry entry, Consumer<RomEntry> change) {
+        change.accept(entry);
+        RomEntry current = entries.computeIfPresent(entry.getLocation(), (location, e) -> {
+            if (e != entry) {
+                change.accept(e);
+            }
+            return e;
+        });
+        if (current != null) {
+            return;
+        }
+        for (RomEntry moved : entries.values()) {
+            if (Arrays.equals(moved.hash(), entry.hash())) {
+                entries.computeIfPresent(moved.getLocation(), (location, e) -> {
+                    change.accept(e);
+                    return e;
+                });
+                return;
+            }
+        }
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                digest.update(buffer);
+            }
+        }
+        return digest.digest();
+    }
+
+    static boolean isRom(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && ROM_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT)) && Files.isRegularFile(file);
+    }
+
+    // .sc8 and .xo8 files name their machine, anything else runs on the fallback
+    public static MachineProfile profile(Path file, MachineProfile fallback) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xo8")) {
+            return MachineProfile.XOCHIP;
+        }
+        if (name.endsWith(".sc8")) {
+            return MachineProfile.SCHIP;
+        }
+        return fallback;
+    }
+
+    private static String title(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name).replace('_', ' ').trim();
+    }
+}
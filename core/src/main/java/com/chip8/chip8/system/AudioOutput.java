@@ -0,0 +1,213 @@
+package com.chip8.chip8.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Turns the sound timer into samples. The emulation thread submits one entry per frame (tone on or
+// off, plus the XO-CHIP pattern and pitch) into a small ring; a dedicated thread renders each entry
+// into a frame's worth of samples and hands them to the sink in chunks. Nothing is allocated once
+// running: the square wave tone is rendered once up front and the per-pitch pattern rates are
+// precomputed.
+//
+// For a real-time sink only the newest frame waits in the ring, and a frame that arrives while the
+// previous one is still being written cuts it short at the next chunk. A change of the sound timer
+// is therefore heard after at most one chunk plus the sink's buffer, 3.3 ms + 10 ms with the
+// default LineAudioSink.
+public class AudioOutput implements Closeable {
+    public static final int SAMPLE_RATE = 48000;
+    public static final int FRAME_SAMPLES = SAMPLE_RATE / EmulationLoop.FRAME_RATE;
+    // 160 samples, a fifth of a frame
+    public static final int CHUNK_SAMPLES = FRAME_SAMPLES / 5;
+    public static final int TONE_FREQUENCY = 440;
+    private static final short AMPLITUDE = 0x1800;
+    private static final int CAPACITY = 8;
+    // Frames a real-time sink may lag behind before older frames are dropped
+    private static final int MAX_QUEUED_FRAMES = 1;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FLAG_ON = 1;
+    private static final long FLAG_PATTERN = 2;
+
+    private final AudioSink sink;
+    private final boolean realTime;
+    private final long[] ring;
+    private final AtomicLong writeSequence;
+    private final AtomicLong readSequence;
+    private final short[] tone;
+    private final long[] patternSteps;
+    private final byte[] samples;
+    private final Thread renderer;
+    private long head;
+    private int tonePhase;
+    private long patternPhase;
+    private boolean audible;
+    private volatile long underruns;
+    private volatile long droppedFrames;
+    private volatile long overflowedFrames;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    public AudioOutput(AudioSink sink) throws IOException {
+        this.sink = sink;
+        sink.open(SAMPLE_RATE);
+        realTime = sink.isRealTime();
+        ring = new long[CAPACITY * 3];
+        writeSequence = new AtomicLong();
+        readSequence = new AtomicLong();
+        samples = new byte[CHUNK_SAMPLES * Short.BYTES];
+
+        tone = new short[SAMPLE_RATE / TONE_FREQUENCY];
+        for (int i = 0; i < tone.length; i++) {
+            tone[i] = i < tone.length / 2 ? AMPLITUDE : -AMPLITUDE;
+        }
+
+        // XO-CHIP plays the 128-bit pattern at 4000 * 2^((pitch - 64) / 48) bits per second. The
+        // steps are 32.32 fixed point bit positions per sample.
+        patternSteps = new long[256];
+        for (int pitch = 0; pitch < patternSteps.length; pitch++) {
+            double rate = 4000 * Math.pow(2, (pitch - 64) / 48.0);
+            patternSteps[pitch] = (long) (rate / SAMPLE_RATE * (1L << 32));
+        }
+
+        renderer = new Thread(this::render, "chip8-audio");
+        renderer.setDaemon(true);
+        renderer.start();
+    }
+
+    // Called by the emulation thread once per frame. pattern is only read when usePattern is set.
+    public void submitFrame(boolean on, boolean usePattern, byte[] pattern, int pitch) {
+        if (head - readSequence.get() >= CAPACITY) {
+            if (realTime) {
+                overflowedFrames++;
+                return;
+            }
+            while (head - readSequence.get() >= CAPACITY && !closing) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+            }
+        }
+
+        int offset = (int) (head % CAPACITY) * 3;
+        ring[offset] = (on ? FLAG_ON : 0) | (usePattern ? FLAG_PATTERN : 0) | (long) (pitch & 0xFF) << 8;
+        if (usePattern) {
+            ring[offset + 1] = packPattern(pattern, 0);
+            ring[offset + 2] = packPattern(pattern, 8);
+        }
+        writeSequence.lazySet(++head);
+        LockSupport.unpark(renderer);
+    }
+
+    private static long packPattern(byte[] pattern, int offset) {
+        long bits = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            bits = (bits << 8) | (pattern[offset + i] & 0xFF);
+        }
+        return bits;
+    }
+
+    // Times a real-time sink ran dry while a tone was playing
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    // Frames skipped because a real-time sink fell behind
+    public long getDroppedFrames() {
+        return droppedFrames + overflowedFrames;
+    }
+
+    // Renders whatever has been submitted, then closes the sink
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(renderer);
+        try {
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sink.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void render() {
+        try {
+            while (true) {
+                long tail = readSequence.get();
+                long available = writeSequence.get() - tail;
+
+                if (available == 0) {
+                    if (closing && writeSequence.get() == tail) {
+                        break;
+                    }
+                    if (audible && realTime && sink.isDrained()) {
+                        underruns++;
+                        audible = false;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                if (realTime && available > MAX_QUEUED_FRAMES) {
+                    droppedFrames += available - MAX_QUEUED_FRAMES;
+                    tail += available - MAX_QUEUED_FRAMES;
+                }
+
+                int offset = (int) (tail % CAPACITY) * 3;
+                long state = ring[offset];
+                long patternHigh = ring[offset + 1];
+                long patternLow = ring[offset + 2];
+                readSequence.lazySet(tail + 1);
+
+                if (audible && realTime && sink.isDrained()) {
+                    underruns++;
+                }
+                audible = (state & FLAG_ON) != 0;
+                for (int written = 0; written < FRAME_SAMPLES; written += CHUNK_SAMPLES) {
+                    renderChunk(state, patternHigh, patternLow);
+                    sink.write(samples, samples.length);
+                    if (realTime && writeSequence.get() != readSequence.get()) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            // Keep the emulation thread from blocking on a ring that will never drain
+            readSequence.set(Long.MAX_VALUE / 2);
+        }
+    }
+
+    private void renderChunk(long state, long patternHigh, long patternLow) {
+        if ((state & FLAG_ON) == 0) {
+            Arrays.fill(samples, (byte) 0);
+            return;
+        }
+
+        if ((state & FLAG_PATTERN) != 0) {
+            long step = patternSteps[(int) (state >>> 8) & 0xFF];
+            for (int i = 0; i < CHUNK_SAMPLES; i++) {
+                int bit = (int) (patternPhase >>> 32) & 127;
+                long word = bit < 64 ? patternHigh : patternLow;
+                short sample = (word << (bit & 63)) < 0 ? AMPLITUDE : -AMPLITUDE;
+                samples[2 * i] = (byte) sample;
+                samples[2 * i + 1] = (byte) (sample >> 8);
+                patternPhase += step;
+            }
+            return;
+        }
+
+        for (int i = 0; i < CHUNK_SAMPLES; i++) {
+            short sample = tone[tonePhase];
+            samples[2 * i] = (byte) sample;
+            samples[2 * i + 1] = (byte) (sample >> 8);
+            if (++tonePhase == tone.length) {
+                tonePhase = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.chip8.chip8.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination for the 16-bit signed little-endian mono samples rendered by AudioOutput
+public interface AudioSink extends Closeable {
+    void open(int sampleRate) throws IOException;
+
+    // May block until there is room for the samples
+    void write(byte[] samples, int length) throws IOException;
+
+    // True if everything written so far has been played
+    boolean isDrained();
+
+    // Real-time sinks play at the sound card's rate, so AudioOutput drops frames that arrive late
+    // instead of letting latency build up. Other sinks get every frame.
+    boolean isRealTime();
+}
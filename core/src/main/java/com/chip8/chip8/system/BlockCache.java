@@ -0,0 +1,81 @@
+package com.chip8.chip8.system;
+
+import java.util.Arrays;
+
+public class BlockCache implements MemoryWriteListener {
+    public static final int COMPILE_THRESHOLD = 256;
+    private static final int NOT_COMPILABLE = -1;
+
+    private final InstructionCache instructionCache;
+    private final BlockCompiler compiler;
+    private final CompiledBlock[] blocks;
+    private final int[] entryCounts;
+    private final int[] coverage;
+    private int compiledCount;
+
+    public BlockCache(InstructionCache instructionCache, BlockCompiler compiler) {
+        this.instructionCache = instructionCache;
+        this.compiler = compiler;
+        blocks = new CompiledBlock[instructionCache.getSize()];
+        entryCounts = new int[instructionCache.getSize()];
+        coverage = new int[instructionCache.getSize()];
+    }
+
+    public CompiledBlock enter(int pc) {
+        CompiledBlock block = blocks[pc];
+
+        if (block == null && entryCounts[pc] != NOT_COMPILABLE && ++entryCounts[pc] >= COMPILE_THRESHOLD) {
+            block = compiler.compile(pc, instructionCache);
+            if (block == null) {
+                entryCounts[pc] = NOT_COMPILABLE;
+            } else {
+                blocks[pc] = block;
+                compiledCount++;
+                for (int i = block.getStart(); i < block.getEnd(); i++) {
+                    coverage[i]++;
+                }
+            }
+        }
+
+        return block;
+    }
+
+    public void invalidate(int index) {
+        // A write can only turn a terminator into a compilable block if it lands in the first two instructions
+        for (int start = Math.max(0, index - 3); start <= index; start++) {
+            if (entryCounts[start] == NOT_COMPILABLE) {
+                entryCounts[start] = 0;
+            }
+        }
+
+        if (coverage[index] == 0) {
+            return;
+        }
+
+        for (int start = Math.max(0, index - BlockCompiler.MAX_BLOCK_LENGTH * 2 + 1); start <= index; start++) {
+            CompiledBlock block = blocks[start];
+            if (block != null && block.covers(index)) {
+                blocks[start] = null;
+                entryCounts[start] = 0;
+                for (int i = block.getStart(); i < block.getEnd(); i++) {
+                    coverage[i]--;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(blocks, null);
+        Arrays.fill(entryCounts, 0);
+        Arrays.fill(coverage, 0);
+    }
+
+    public int getCompiledCount() {
+        return compiledCount;
+    }
+
+    @Override
+    public void onWrite(int index) {
+        invalidate(index);
+    }
+}
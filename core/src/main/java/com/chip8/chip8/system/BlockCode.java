@@ -0,0 +1,8 @@
+package com.chip8.chip8.system;
+
+import java.util.Random;
+
+// Implemented by the hidden classes BlockCompiler generates
+interface BlockCode {
+    void run(CPU cpu, Memory memory, Random random);
+}
@@ -0,0 +1,298 @@
+package com.chip8.chip8.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Compiles runs of straight-line instructions into hidden classes implementing BlockCode.
+// The generated run method is a branch-free sequence of invokestatic calls into Operations
+// with the decoded operands as constants, followed by a single jump to the end of the block.
+public class BlockCompiler {
+    public static final int MIN_BLOCK_LENGTH = 2;
+    public static final int MAX_BLOCK_LENGTH = 64;
+
+    private static final String CLASS_NAME = "com/chip8/chip8/system/GeneratedBlock";
+    private static final String OPERATIONS = "com/chip8/chip8/system/Operations";
+    private static final String RUN_DESCRIPTOR = "(Lcom/chip8/chip8/system/CPU;Lcom/chip8/chip8/system/Memory;Ljava/util/Random;)V";
+
+    private enum Arg {
+        CPU("Lcom/chip8/chip8/system/CPU;"),
+        MEMORY("Lcom/chip8/chip8/system/Memory;"),
+        RANDOM("Ljava/util/Random;"),
+        X("I"),
+        Y("I"),
+        NN("I"),
+        NNN("I");
+
+        private final String descriptor;
+
+        Arg(String descriptor) {
+            this.descriptor = descriptor;
+        }
+    }
+
+    private record Call(String method, Arg... args) {
+        String descriptor() {
+            StringBuilder builder = new StringBuilder("(");
+            for (Arg arg : args) {
+                builder.append(arg.descriptor);
+            }
+            return builder.append(")V").toString();
+        }
+    }
+
+    private static final Map<Opcode, Call> CALLS = new EnumMap<>(Opcode.class);
+
+    static {
+        CALLS.put(Opcode.CLS, new Call("cls", Arg.MEMORY));
+        CALLS.put(Opcode.LD_VX_NN, new Call("ldVxNn", Arg.CPU, Arg.X, Arg.NN));
+        CALLS.put(Opcode.ADD_VX_NN, new Call("addVxNn", Arg.CPU, Arg.X, Arg.NN));
+        CALLS.put(Opcode.LD_VX_VY, new Call("ldVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.OR_VX_VY, new Call("orVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.AND_VX_VY, new Call("andVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.XOR_VX_VY, new Call("xorVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.ADD_VX_VY, new Call("addVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.SUB_VX_VY, new Call("subVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.SHR_VX, new Call("shrVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.SUBN_VX_VY, new Call("subnVxVy", Arg.CPU, Arg.X, Arg.Y));
+        CALLS.put(Opcode.SHL_VX, new Call("shlVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.LD_I_NNN, new Call("ldINnn", Arg.CPU, Arg.NNN));
+        CALLS.put(Opcode.RND_VX_NN, new Call("rndVxNn", Arg.CPU, Arg.RANDOM, Arg.X, Arg.NN));
+        CALLS.put(Opcode.LD_VX_DT, new Call("ldVxDt", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.LD_DT_VX, new Call("ldDtVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.LD_ST_VX, new Call("ldStVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.ADD_I_VX, new Call("addIVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.LD_F_VX, new Call("ldFVx", Arg.CPU, Arg.X));
+        CALLS.put(Opcode.LD_VX_I, new Call("ldVxI", Arg.CPU, Arg.MEMORY, Arg.X));
+    }
+
+    private record QuirkCall(int quirk, Call call) {
+    }
+
+    // Replacements for CALLS when the quirk is set
+    private static final Map<Opcode, QuirkCall> QUIRK_CALLS = new EnumMap<>(Opcode.class);
+
+    static {
+        QUIRK_CALLS.put(Opcode.OR_VX_VY, new QuirkCall(Quirks.VF_RESET, new Call("orVxVyResetVf", Arg.CPU, Arg.X, Arg.Y)));
+        QUIRK_CALLS.put(Opcode.AND_VX_VY, new QuirkCall(Quirks.VF_RESET, new Call("andVxVyResetVf", Arg.CPU, Arg.X, Arg.Y)));
+        QUIRK_CALLS.put(Opcode.XOR_VX_VY, new QuirkCall(Quirks.VF_RESET, new Call("xorVxVyResetVf", Arg.CPU, Arg.X, Arg.Y)));
+        QUIRK_CALLS.put(Opcode.SHR_VX, new QuirkCall(Quirks.SHIFT_VY, new Call("shrVxVy", Arg.CPU, Arg.X, Arg.Y)));
+        QUIRK_CALLS.put(Opcode.SHL_VX, new QuirkCall(Quirks.SHIFT_VY, new Call("shlVxVy", Arg.CPU, Arg.X, Arg.Y)));
+        QUIRK_CALLS.put(Opcode.LD_VX_I, new QuirkCall(Quirks.LOAD_STORE_INCREMENT_I, new Call("ldVxIIncrement", Arg.CPU, Arg.MEMORY, Arg.X)));
+    }
+
+    private final MethodHandles.Lookup lookup;
+    private int quirks;
+
+    public BlockCompiler() {
+        lookup = MethodHandles.lookup();
+    }
+
+    // Applies to blocks compiled from now on
+    public void setQuirks(int quirks) {
+        this.quirks = quirks;
+    }
+
+    public static boolean isStraightLine(Opcode opcode) {
+        return CALLS.containsKey(opcode);
+    }
+
+    public CompiledBlock compile(int start, InstructionCache instructionCache) {
+        List<Instruction> instructions = new ArrayList<>();
+
+        for (int pc = start; pc + 1 < instructionCache.getSize() && instructions.size() < MAX_BLOCK_LENGTH; pc += 2) {
+            Instruction instruction = instructionCache.get(pc);
+            if (!isStraightLine(instruction.getOpcode())) {
+                break;
+            }
+            instructions.add(instruction);
+        }
+
+        if (instructions.size() < MIN_BLOCK_LENGTH) {
+            return null;
+        }
+
+        try {
+            byte[] classBytes = generate(instructions, start + instructions.size() * 2, quirks);
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(classBytes, true);
+            BlockCode code = (BlockCode) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+
+            int[] familyHistogram = new int[Metrics.OPCODE_FAMILIES];
+            for (Instruction instruction : instructions) {
+                familyHistogram[instruction.getRaw() >>> 12]++;
+            }
+
+            return new CompiledBlock(start, instructions.size(), code, familyHistogram);
+        } catch (Throwable e) {
+            // Looked up here rather than held statically so a headless start never initialises logging
+            Logger.getLogger(BlockCompiler.class.getName()).warning(String.format("Unable to compile block at 0x%03X: %s", start, e));
+            return null;
+        }
+    }
+
+    private static byte[] generate(List<Instruction> instructions, int end, int quirks) throws IOException {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int blockCode = pool.classRef("com/chip8/chip8/system/BlockCode");
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int codeAttribute = pool.utf8("Code");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int runName = pool.utf8("run");
+        int runDescriptor = pool.utf8(RUN_DESCRIPTOR);
+
+        ByteArrayOutputStream runCode = new ByteArrayOutputStream();
+        int maxStack = 2;
+        for (Instruction instruction : instructions) {
+            Call call = CALLS.get(instruction.getOpcode());
+            QuirkCall quirkCall = QUIRK_CALLS.get(instruction.getOpcode());
+            if (quirkCall != null && Quirks.has(quirks, quirkCall.quirk())) {
+                call = quirkCall.call();
+            }
+            for (Arg arg : call.args()) {
+                switch (arg) {
+                    case CPU -> runCode.write(0x2B);
+                    case MEMORY -> runCode.write(0x2C);
+                    case RANDOM -> runCode.write(0x2D);
+                    case X -> pushInt(runCode, instruction.getX());
+                    case Y -> pushInt(runCode, instruction.getY());
+                    case NN -> pushInt(runCode, instruction.getNN());
+                    case NNN -> pushInt(runCode, instruction.getNNN());
+                }
+            }
+            maxStack = Math.max(maxStack, call.args().length);
+            invokeStatic(runCode, pool.methodRef(OPERATIONS, call.method(), call.descriptor()));
+        }
+        runCode.write(0x2B);
+        pushInt(runCode, end);
+        invokeStatic(runCode, pool.methodRef(OPERATIONS, "jump", "(Lcom/chip8/chip8/system/CPU;I)V"));
+        runCode.write(0xB1);
+
+        ByteArrayOutputStream initCode = new ByteArrayOutputStream();
+        initCode.write(0x2A);
+        initCode.write(0xB7);
+        initCode.write(objectInit >>> 8);
+        initCode.write(objectInit);
+        initCode.write(0xB1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(61);
+        pool.write(out);
+        out.writeShort(0x0031);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(blockCode);
+        out.writeShort(0);
+        out.writeShort(2);
+        writeMethod(out, 0x0001, initName, initDescriptor, codeAttribute, 1, 1, initCode.toByteArray());
+        writeMethod(out, 0x0001, runName, runDescriptor, codeAttribute, maxStack, 4, runCode.toByteArray());
+        out.writeShort(0);
+
+        return bytes.toByteArray();
+    }
+
+    private static void pushInt(ByteArrayOutputStream code, int value) {
+        if (value >= -1 && value <= 5) {
+            code.write(0x03 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.write(0x10);
+            code.write(value);
+        } else {
+            code.write(0x11);
+            code.write(value >>> 8);
+            code.write(value);
+        }
+    }
+
+    private static void invokeStatic(ByteArrayOutputStream code, int methodRef) {
+        code.write(0xB8);
+        code.write(methodRef >>> 8);
+        code.write(methodRef);
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(entries);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) throws IOException {
+            Integer index = indices.get("U" + value);
+            if (index == null) {
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        int classRef(String name) throws IOException {
+            Integer index = indices.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+                index = add("C" + name);
+            }
+            return index;
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + '.' + name + descriptor;
+            Integer index = indices.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+                int nameAndType = add("N" + name + descriptor);
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            indices.put(key, count);
+            return count++;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            target.write(entries.toByteArray());
+        }
+    }
+}
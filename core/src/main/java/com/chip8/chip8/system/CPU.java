@@ -1,9 +1,13 @@
 package com.chip8.chip8.system;
 
+import java.nio.ByteBuffer;
+
 public class CPU {
 
     private final byte[] V;
     private final short[] stack;
+    // SUPER-CHIP/XO-CHIP persistent flag registers (FX75/FX85)
+    private final byte[] flags;
     private short PC;
     private short I;
     private short sp;
@@ -13,6 +17,7 @@ public class CPU {
     public CPU() {
         V = new byte[Chip8.REGISTER_COUNT];
         stack = new short[Chip8.STACK_SIZE];
+        flags = new byte[Chip8.REGISTER_COUNT];
         PC = Chip8.PC_START;
         I = Chip8.I_START;
         sp = 0;
@@ -20,6 +25,17 @@ public class CPU {
         ST = 0x00;
     }
 
+    public CPU(CPU other) {
+        V = other.V.clone();
+        stack = other.stack.clone();
+        flags = other.flags.clone();
+        PC = other.PC;
+        I = other.I;
+        sp = other.sp;
+        DT = other.DT;
+        ST = other.ST;
+    }
+
     public byte getV(int index) {
         if (index >= Chip8.REGISTER_COUNT || index < 0) {
             throw new IllegalArgumentException(String.format("Invalid register index: %d", index));
@@ -48,6 +64,20 @@ public class CPU {
         stack[index] = value;
     }
 
+    public byte getFlag(int index) {
+        if (index >= Chip8.REGISTER_COUNT || index < 0) {
+            throw new IllegalArgumentException(String.format("Invalid flag index: %d", index));
+        }
+        return flags[index];
+    }
+
+    public void setFlag(int index, byte value) {
+        if (index >= Chip8.REGISTER_COUNT || index < 0) {
+            throw new IllegalArgumentException(String.format("Invalid flag index: %d", index));
+        }
+        flags[index] = value;
+    }
+
     public short getPC() {
         return PC;
     }
@@ -95,4 +125,34 @@ public class CPU {
     public void incrementProgramCounter() {
         incrementProgramCounter(1);
     }
+
+    static int stateSize() {
+        return 2 * Chip8.REGISTER_COUNT + Chip8.STACK_SIZE * Short.BYTES + 3 * Short.BYTES + 2;
+    }
+
+    void saveState(ByteBuffer buffer) {
+        buffer.put(V);
+        for (short value : stack) {
+            buffer.putShort(value);
+        }
+        buffer.putShort(PC);
+        buffer.putShort(I);
+        buffer.putShort(sp);
+        buffer.put(DT);
+        buffer.put(ST);
+        buffer.put(flags);
+    }
+
+    void loadState(ByteBuffer buffer) {
+        buffer.get(V);
+        for (int i = 0; i < stack.length; i++) {
+            stack[i] = buffer.getShort();
+        }
+        PC = buffer.getShort();
+        I = buffer.getShort();
+        sp = buffer.getShort();
+        DT = buffer.get();
+        ST = buffer.get();
+        buffer.get(flags);
+    }
 }
@@ -0,0 +1,1132 @@
+package com.chip8.chip8.system;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class Chip8 {
+
+    public static final short SCREEN_WIDTH = 64;
+    public static final short SCREEN_HEIGHT = 32;
+    public static final short MEMORY_SIZE = 4096;
+    public static final short REGISTER_COUNT = 16;
+    public static final short STACK_SIZE = 16;
+    public static final short PC_START = 0x200;
+    public static final short I_START = 0x0000;
+    public static final short KEY_COUNT = 16;
+    public static final int STATE_MAGIC = 0x43385354;
+    public static final short STATE_VERSION = 5;
+    public static final int IPS_SLOW = 300;
+    public static final int IPS_NORMAL = 600;
+    public static final int IPS_FAST = 1200;
+    public static final int[] FONT = {
+            0xF0, 0x90, 0x90, 0x90, 0xF0, // 0
+            0x20, 0x60, 0x20, 0x20, 0x70, // 1
+            0xF0, 0x10, 0xF0, 0x80, 0xF0, // 2
+            0xF0, 0x10, 0xF0, 0x10, 0xF0, // 3
+            0x90, 0x90, 0xF0, 0x10, 0x10, // 4
+            0xF0, 0x80, 0xF0, 0x10, 0xF0, // 5
+            0xF0, 0x80, 0xF0, 0x90, 0xF0, // 6
+            0xF0, 0x10, 0x20, 0x40, 0x50, // 7
+            0xF0, 0x90, 0xF0, 0x90, 0xF0, // 8
+            0xF0, 0x90, 0xF0, 0x10, 0xF0, // 9
+            0xF0, 0x90, 0xF0, 0x90, 0x90, // A
+            0xE0, 0x90, 0xE0, 0x90, 0xE0, // B
+            0xF0, 0x80, 0x80, 0x80, 0xF0, // C
+            0xE0, 0x90, 0x90, 0x90, 0xE0, // D
+            0xF0, 0x80, 0xF0, 0x80, 0xF0, // E
+            0xF0, 0x80, 0xF0, 0x80, 0x80  // F
+    };
+    public static final short BIG_FONT_START = 0x50;
+    public static final int[] BIG_FONT = {
+            0xFF, 0xFF, 0xC3, 0xC3, 0xC3, 0xC3, 0xC3, 0xC3, 0xFF, 0xFF, // 0
+            0x18, 0x78, 0x78, 0x18, 0x18, 0x18, 0x18, 0x18, 0xFF, 0xFF, // 1
+            0xFF, 0xFF, 0x03, 0x03, 0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, // 2
+            0xFF, 0xFF, 0x03, 0x03, 0xFF, 0xFF, 0x03, 0x03, 0xFF, 0xFF, // 3
+            0xC3, 0xC3, 0xC3, 0xC3, 0xFF, 0xFF, 0x03, 0x03, 0x03, 0x03, // 4
+            0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, 0x03, 0x03, 0xFF, 0xFF, // 5
+            0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, 0xC3, 0xC3, 0xFF, 0xFF, // 6
+            0xFF, 0xFF, 0x03, 0x03, 0x06, 0x0C, 0x18, 0x18, 0x18, 0x18, // 7
+            0xFF, 0xFF, 0xC3, 0xC3, 0xFF, 0xFF, 0xC3, 0xC3, 0xFF, 0xFF, // 8
+            0xFF, 0xFF, 0xC3, 0xC3, 0xFF, 0xFF, 0x03, 0x03, 0xFF, 0xFF, // 9
+            0x7E, 0xFF, 0xC3, 0xC3, 0xC3, 0xFF, 0xFF, 0xC3, 0xC3, 0xC3, // A
+            0xFC, 0xFC, 0xC3, 0xC3, 0xFC, 0xFC, 0xC3, 0xC3, 0xFC, 0xFC, // B
+            0x3C, 0xFF, 0xC3, 0xC0, 0xC0, 0xC0, 0xC0, 0xC3, 0xFF, 0x3C, // C
+            0xFC, 0xFE, 0xC3, 0xC3, 0xC3, 0xC3, 0xC3, 0xC3, 0xFE, 0xFC, // D
+            0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, // E
+            0xFF, 0xFF, 0xC0, 0xC0, 0xFF, 0xFF, 0xC0, 0xC0, 0xC0, 0xC0  // F
+    };
+    public static final int AUDIO_PATTERN_SIZE = 16;
+    // XO-CHIP's pitch register powers up at 64, which plays the pattern at 4000 bits per second
+    public static final int DEFAULT_PITCH = 64;
+
+    private CPU cpu;
+    private ROM rom;
+    private Memory memory;
+    private Input input;
+    private InstructionCache instructionCache;
+    private BlockCache blockCache;
+    private final BlockCompiler blockCompiler;
+    private ExecutionMode executionMode;
+    private boolean blockEntry;
+    // FX0A state: the key seen pressed and now awaited to be released (-1 if none), and whether the
+    // last FX0A executed is still waiting
+    private int heldKey;
+    private boolean waitingForKey;
+    private boolean idleSkipping;
+    private boolean halted;
+    private long skippedCycles;
+    private final MachineRandom random;
+    private final EmulationLoop emulationLoop;
+    private final FrameExchange frameExchange;
+    private volatile RewindBuffer rewindBuffer;
+    private volatile int rewindSeconds;
+    private volatile boolean rewinding;
+    private int instructionsPerFrame;
+    private volatile Metrics metrics;
+    private long[] opcodeCounter;
+    private volatile TraceRecorder traceRecorder;
+    private volatile Coverage coverage;
+    private volatile InputMovie movie;
+    private volatile AudioOutput audioOutput;
+    private long seed;
+    private long frameCount;
+    private MachineProfile profile;
+    private int quirks;
+    private final byte[] audioPattern;
+    private boolean audioPatternLoaded;
+    private int pitch;
+
+    public Chip8() {
+        this(null, null, null, null);
+    }
+
+    public Chip8(CPU cpu, ROM rom, Memory memory, Input input) {
+        this.cpu = cpu;
+        this.rom = rom;
+        this.input = input;
+        blockCompiler = new BlockCompiler();
+        executionMode = ExecutionMode.TIERED;
+        heldKey = -1;
+        idleSkipping = true;
+        profile = MachineProfile.CHIP8;
+        audioPattern = new byte[AUDIO_PATTERN_SIZE];
+        pitch = DEFAULT_PITCH;
+        if (memory != null) {
+            setMemory(memory);
+        }
+        seed = ThreadLocalRandom.current().nextLong();
+        random = new MachineRandom(seed);
+        emulationLoop = new EmulationLoop(this);
+        frameExchange = new FrameExchange();
+        rewindSeconds = RewindBuffer.DEFAULT_SECONDS;
+        setInstructionsPerSecond(IPS_NORMAL);
+    }
+
+    public ROM getRom() {
+        return rom;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public CPU getCpu() {
+        return cpu;
+    }
+
+    // Lets the conformance harness seed the generator and read it back without a reset
+    MachineRandom getRandom() {
+        return random;
+    }
+
+    public void setCpu(CPU cpu) {
+        this.cpu = cpu;
+    }
+
+    public void setRom(ROM rom) {
+        this.rom = rom;
+    }
+
+    public void setMemory(Memory memory) {
+        this.memory = memory;
+        instructionCache = new InstructionCache(memory, profile);
+        blockCache = null;
+        blockEntry = true;
+        memory.addWriteListener(instructionCache);
+    }
+
+    // Returns an independent copy of this machine. Memory pages are shared copy-on-write, so forking
+    // costs little more than copying the registers. The fork does not record rewind history.
+    public Chip8 fork() {
+        Chip8 fork = new Chip8(new CPU(cpu), rom, null, new Input(input));
+        fork.profile = profile;
+        fork.applyQuirks(quirks);
+        fork.setMemory(memory.fork());
+        System.arraycopy(audioPattern, 0, fork.audioPattern, 0, AUDIO_PATTERN_SIZE);
+        fork.audioPatternLoaded = audioPatternLoaded;
+        fork.pitch = pitch;
+        fork.random.setState(random.getState());
+        fork.seed = seed;
+        fork.frameCount = frameCount;
+        fork.skippedCycles = skippedCycles;
+        fork.waitingForKey = waitingForKey;
+        fork.halted = halted;
+        fork.executionMode = executionMode;
+        fork.heldKey = heldKey;
+        fork.idleSkipping = idleSkipping;
+        fork.instructionsPerFrame = instructionsPerFrame;
+        fork.rewindSeconds = 0;
+        return fork;
+    }
+
+    public MachineProfile getProfile() {
+        return profile;
+    }
+
+    // Takes effect on the next reset
+    public void setProfile(MachineProfile profile) {
+        this.profile = profile;
+    }
+
+    // Quirks flags in effect; they are kept across resets like the profile
+    public int getQuirks() {
+        return quirks;
+    }
+
+    // Takes effect from the next instruction; blocks compiled under the old flags are dropped
+    public void setQuirks(int quirks) {
+        boolean running = isRunning();
+        emulationLoop.stop();
+        applyQuirks(quirks);
+        if (running) {
+            emulationLoop.start();
+        }
+    }
+
+    private void applyQuirks(int quirks) {
+        this.quirks = quirks;
+        blockCompiler.setQuirks(quirks);
+        if (blockCache != null) {
+            blockCache.clear();
+        }
+        blockEntry = true;
+    }
+
+    // XO-CHIP audio pattern buffer and pitch register, as last set by F002 and FX3A
+    public byte[] getAudioPattern() {
+        return audioPattern;
+    }
+
+    public int getPitch() {
+        return pitch;
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    public void setInput(Input input) {
+        this.input = input;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public void setInstructionsPerFrame(int instructionsPerFrame) {
+        this.instructionsPerFrame = Math.max(1, instructionsPerFrame);
+    }
+
+    public int getInstructionsPerSecond() {
+        return instructionsPerFrame * EmulationLoop.FRAME_RATE;
+    }
+
+    public void setInstructionsPerSecond(int instructionsPerSecond) {
+        setInstructionsPerFrame(Math.round((float) instructionsPerSecond / EmulationLoop.FRAME_RATE));
+    }
+
+    public boolean isTurbo() {
+        return emulationLoop.isTurbo();
+    }
+
+    public void setTurbo(boolean turbo) {
+        emulationLoop.setTurbo(turbo);
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public boolean isIdleSkipping() {
+        return idleSkipping;
+    }
+
+    // When enabled, idle loops are fast-forwarded to the end of the frame; see idleCycles()
+    public void setIdleSkipping(boolean idleSkipping) {
+        this.idleSkipping = idleSkipping;
+    }
+
+    // Instructions skipped by idle loop detection since the last reset
+    public long getSkippedCycles() {
+        return skippedCycles;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Should be set while the emulation loop is stopped
+    // Pass null to detach a machine that is being discarded, or its opcode counter stays in the
+    // Metrics it was attached to
+    public void setMetrics(Metrics metrics) {
+        Metrics previous = this.metrics;
+        if (previous != null && opcodeCounter != null) {
+            previous.releaseOpcodeCounter(opcodeCounter);
+        }
+        this.metrics = metrics;
+        opcodeCounter = metrics == null ? null : metrics.newOpcodeCounter();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Frames run since the last reset
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public boolean isRecordingMovie() {
+        return movie != null;
+    }
+
+    // Restarts the ROM with a fresh seed and records the input of every frame from here on.
+    // Rewinding is ignored while recording, and the instructions per frame should not change.
+    public void startMovieRecording() {
+        int recordedInstructionsPerFrame = instructionsPerFrame;
+        reset(ThreadLocalRandom.current().nextLong());
+        setInstructionsPerFrame(recordedInstructionsPerFrame);
+        movie = new InputMovie(seed, InputMovie.checksum(rom), recordedInstructionsPerFrame, profile, quirks);
+        emulationLoop.start();
+    }
+
+    public InputMovie stopMovieRecording() {
+        boolean running = isRunning();
+        emulationLoop.stop();
+        InputMovie recorded = movie;
+        movie = null;
+        if (running) {
+            emulationLoop.start();
+        }
+        return recorded;
+    }
+
+    public AudioOutput getAudioOutput() {
+        return audioOutput;
+    }
+
+    public void setAudioOutput(AudioOutput audioOutput) {
+        this.audioOutput = audioOutput;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    // While a recorder is set every instruction goes through the interpreter so each one is traced.
+    // Use stopTrace() to remove one from a running machine.
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    // Detaches the recorder once the emulation thread has finished the frame it is tracing, so it
+    // can be closed without losing that frame's records
+    public TraceRecorder stopTrace() {
+        boolean running = isRunning();
+        emulationLoop.stop();
+        TraceRecorder recorder = traceRecorder;
+        traceRecorder = null;
+        if (running) {
+            emulationLoop.start();
+        }
+        return recorder;
+    }
+
+    public Coverage getCoverage() {
+        return coverage;
+    }
+
+    // While coverage is set every instruction goes through the interpreter so each one is recorded,
+    // and the machine stops at the first fault. It is not cleared on reset.
+    public void setCoverage(Coverage coverage) {
+        this.coverage = coverage;
+    }
+
+    // Created on first use so machines that never run tiered do not pay for it
+    public BlockCache getBlockCache() {
+        if (blockCache == null) {
+            blockCache = new BlockCache(instructionCache, blockCompiler);
+            memory.addWriteListener(blockCache);
+        }
+        return blockCache;
+    }
+
+    // Returns how many instructions actually ran, which is fewer than count when FX0A starts
+    // waiting, a coverage fault stops the machine or idle loop iterations are skipped
+    public int runInstructions(int count) {
+        TraceRecorder trace = traceRecorder;
+        waitingForKey = false;
+        halted = false;
+
+        Coverage covered = coverage;
+        if (covered != null) {
+            return runCovered(count, covered, trace);
+        }
+
+        int executed = 0;
+        if (trace != null) {
+            while (executed < count) {
+                int pc = cpu.getPC() & 0xFFFF;
+                Instruction instruction = instructionCache.get(pc);
+                execute(instruction);
+                executed++;
+                trace.record(pc, instruction, cpu);
+                if (waitingForKey) {
+                    break;
+                }
+            }
+            blockEntry = true;
+            return executed;
+        }
+
+        if (executionMode == ExecutionMode.INTERPRETER) {
+            for (int i = 0; i < count && !waitingForKey; i++) {
+                int pc = cpu.getPC() & 0xFFFF;
+                Instruction instruction = instructionCache.get(pc);
+                execute(instruction);
+                executed++;
+                if (instruction.getOpcode() == Opcode.JP) {
+                    i += idleCycles(pc, instruction, count - i - 1);
+                }
+            }
+            return executed;
+        }
+
+        BlockCache blockCache = getBlockCache();
+        int remaining = count;
+
+        while (remaining > 0) {
+            if (blockEntry) {
+                CompiledBlock block = blockCache.enter(cpu.getPC() & 0xFFFF);
+
+                if (block != null && block.getLength() <= remaining) {
+                    block.run(cpu, memory, random);
+                    if (opcodeCounter != null) {
+                        block.countOpcodes(opcodeCounter);
+                    }
+                    remaining -= block.getLength();
+                    executed += block.getLength();
+                    blockEntry = false;
+                    continue;
+                }
+            }
+
+            int pc = cpu.getPC() & 0xFFFF;
+            Instruction instruction = instructionCache.get(pc);
+            execute(instruction);
+            remaining--;
+            executed++;
+            if (instruction.getOpcode() == Opcode.JP) {
+                remaining -= idleCycles(pc, instruction, remaining);
+            }
+            blockEntry = !BlockCompiler.isStraightLine(instruction.getOpcode());
+            if (waitingForKey) {
+                break;
+            }
+        }
+        return executed;
+    }
+
+    private int runCovered(int count, Coverage covered, TraceRecorder trace) {
+        int executed = 0;
+        while (executed < count && !waitingForKey && covered.getFault() == null) {
+            int pc = cpu.getPC() & 0xFFFF;
+            try {
+                Instruction instruction = instructionCache.get(pc);
+                covered.record(pc);
+                Coverage.Fault fault = fault(instruction);
+                if (fault != null) {
+                    covered.fault(fault, pc);
+                    break;
+                }
+                execute(instruction);
+                executed++;
+                if (trace != null) {
+                    trace.record(pc, instruction, cpu);
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                covered.fault(Coverage.Fault.MEMORY_OUT_OF_RANGE, pc);
+            }
+        }
+        blockEntry = true;
+        return executed;
+    }
+
+    // The stalls execute() lets pass silently
+    private Coverage.Fault fault(Instruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case RET -> cpu.getSp() == 0 ? Coverage.Fault.STACK_UNDERFLOW : null;
+            case CALL -> cpu.getSp() == STACK_SIZE - 1 ? Coverage.Fault.STACK_OVERFLOW : null;
+            case UNKNOWN -> Coverage.Fault.INVALID_OPCODE;
+            default -> null;
+        };
+    }
+
+    // Called after the jump at pc has executed with remaining instructions left in the frame. Returns
+    // how many of them can be skipped without changing the outcome. Only the timers change between
+    // frames, so two loop shapes stay idle until the frame ends:
+    // - a jump to itself, which repeats forever
+    // - a delay timer poll, LD Vx, DT / SE or SNE Vx, NN / JP back, whose exit test cannot change
+    //   within the frame
+    // Only whole loop iterations are skipped and the leftover instructions still run, so the PC at
+    // the end of the frame is the same as without skipping.
+    private int idleCycles(int pc, Instruction jump, int remaining) {
+        if (!idleSkipping || remaining == 0) {
+            return 0;
+        }
+
+        int target = jump.getNNN();
+        if (target == pc) {
+            halted = true;
+            skippedCycles += remaining;
+            if (opcodeCounter != null) {
+                opcodeCounter[0x1] += remaining;
+            }
+            return remaining;
+        }
+
+        if (target != pc - 4) {
+            return 0;
+        }
+        Instruction load = instructionCache.get(target);
+        Instruction test = instructionCache.get(target + 2);
+        if (load.getOpcode() != Opcode.LD_VX_DT || test.getX() != load.getX()) {
+            return 0;
+        }
+        // The same comparison SE_VX_NN and SNE_VX_NN make, with Vx = DT
+        boolean equal = (cpu.getDT() & 0xFF) == test.getNN();
+        boolean loops = test.getOpcode() == Opcode.SE_VX_NN ? !equal : test.getOpcode() == Opcode.SNE_VX_NN && equal;
+        if (!loops) {
+            return 0;
+        }
+
+        int iterations = remaining / 3;
+        if (iterations > 0) {
+            // Vx may still hold the previous frame's DT if the frame began past the load
+            Operations.ldVxDt(cpu, load.getX());
+        }
+        skippedCycles += iterations * 3L;
+        if (opcodeCounter != null) {
+            opcodeCounter[0x1] += iterations;
+            opcodeCounter[0xF] += iterations;
+            opcodeCounter[test.getRaw() >>> 12] += iterations;
+        }
+        return iterations * 3;
+    }
+
+    private void execute(Instruction instruction) {
+        int x = instruction.getX();
+
+        if (opcodeCounter != null) {
+            opcodeCounter[instruction.getRaw() >>> 12]++;
+        }
+
+        switch (instruction.getOpcode()) {
+            case CLS -> {
+                Operations.cls(memory);
+                cpu.incrementProgramCounter();
+            }
+            case RET -> {
+                if ((cpu.getSp() - 1) < 0) {
+                    return;
+                }
+                cpu.setPC(cpu.getStack(cpu.getSp()));
+                cpu.setSp((short) (cpu.getSp() - 1));
+                cpu.incrementProgramCounter();
+            }
+            case JP -> cpu.setPC((short) instruction.getNNN());
+            case CALL -> {
+                if ((cpu.getSp() + 1) > 15) {
+                    return;
+                }
+                cpu.setSp((short) (cpu.getSp() + 1));
+                cpu.setStack(cpu.getSp(), cpu.getPC());
+                cpu.setPC((short) instruction.getNNN());
+            }
+            case SE_VX_NN ->
+                    cpu.setPC((short) ((cpu.getV(x) & 0xFF) == instruction.getNN() ? skip() : cpu.getPC() + 2));
+            case SNE_VX_NN ->
+                    cpu.setPC((short) ((cpu.getV(x) & 0xFF) != instruction.getNN() ? skip() : cpu.getPC() + 2));
+            case SE_VX_VY ->
+                    cpu.setPC((short) (cpu.getV(x) == cpu.getV(instruction.getY()) ? skip() : cpu.getPC() + 2));
+            case LD_VX_NN -> {
+                Operations.ldVxNn(cpu, x, instruction.getNN());
+                cpu.incrementProgramCounter();
+            }
+            case ADD_VX_NN -> {
+                Operations.addVxNn(cpu, x, instruction.getNN());
+                cpu.incrementProgramCounter();
+            }
+            case LD_VX_VY -> {
+                Operations.ldVxVy(cpu, x, instruction.getY());
+                cpu.incrementProgramCounter();
+            }
+            case OR_VX_VY -> {
+                if (Quirks.has(quirks, Quirks.VF_RESET)) {
+                    Operations.orVxVyResetVf(cpu, x, instruction.getY());
+                } else {
+                    Operations.orVxVy(cpu, x, instruction.getY());
+                }
+                cpu.incrementProgramCounter();
+            }
+            case AND_VX_VY -> {
+                if (Quirks.has(quirks, Quirks.VF_RESET)) {
+                    Operations.andVxVyResetVf(cpu, x, instruction.getY());
+                } else {
+                    Operations.andVxVy(cpu, x, instruction.getY());
+                }
+                cpu.incrementProgramCounter();
+            }
+            case XOR_VX_VY -> {
+                if (Quirks.has(quirks, Quirks.VF_RESET)) {
+                    Operations.xorVxVyResetVf(cpu, x, instruction.getY());
+                } else {
+                    Operations.xorVxVy(cpu, x, instruction.getY());
+                }
+                cpu.incrementProgramCounter();
+            }
+            case ADD_VX_VY -> {
+                Operations.addVxVy(cpu, x, instruction.getY());
+                cpu.incrementProgramCounter();
+            }
+            case SUB_VX_VY -> {
+                Operations.subVxVy(cpu, x, instruction.getY());
+                cpu.incrementProgramCounter();
+            }
+            case SHR_VX -> {
+                if (Quirks.has(quirks, Quirks.SHIFT_VY)) {
+                    Operations.shrVxVy(cpu, x, instruction.getY());
+                } else {
+                    Operations.shrVx(cpu, x);
+                }
+                cpu.incrementProgramCounter();
+            }
+            case SUBN_VX_VY -> {
+                Operations.subnVxVy(cpu, x, instruction.getY());
+                cpu.incrementProgramCounter();
+            }
+            case SHL_VX -> {
+                if (Quirks.has(quirks, Quirks.SHIFT_VY)) {
+                    Operations.shlVxVy(cpu, x, instruction.getY());
+                } else {
+                    Operations.shlVx(cpu, x);
+                }
+                cpu.incrementProgramCounter();
+            }
+            case SNE_VX_VY ->
+                    cpu.setPC((short) ((cpu.getV(x) != cpu.getV(instruction.getY())) ? skip() : cpu.getPC() + 2));
+            case LD_I_NNN -> {
+                Operations.ldINnn(cpu, instruction.getNNN());
+                cpu.incrementProgramCounter();
+            }
+            case JP_V0_NNN -> {
+                int offset = cpu.getV(Quirks.has(quirks, Quirks.JUMP_VX) ? x : 0) & 0xFF;
+                cpu.setPC((short) ((instruction.getNNN() + offset) & 0x0FFF));
+            }
+            case RND_VX_NN -> {
+                Operations.rndVxNn(cpu, random, x, instruction.getNN());
+                cpu.incrementProgramCounter();
+            }
+            case DRW -> {
+                if (profile.isExtended()) {
+                    drawExtended(x, instruction.getY(), instruction.getN());
+                    cpu.incrementProgramCounter();
+                    return;
+                }
+                // The sprite starts at Vx, Vy wrapped onto the screen and is clipped at the edges
+                VideoMemory videoMemory = memory.getVideoMemory();
+                int vx = (cpu.getV(x) & 0xFF) % videoMemory.getWidth();
+                int vy = (cpu.getV(instruction.getY()) & 0xFF) % videoMemory.getHeight();
+                int height = instruction.getN();
+                int address = cpu.getI() & 0xFFFF;
+                boolean collision = false;
+
+                for (int row = 0; row < height; row++) {
+                    collision |= videoMemory.drawSpriteRow(vx, vy + row, memory.getMemory(address + row), 8);
+                }
+                cpu.setV(0xF, (byte) (collision ? 1 : 0));
+                cpu.incrementProgramCounter();
+            }
+            case SKP_VX -> {
+                if (input.isPressed(cpu.getV(x) & 0xF)) {
+                    cpu.setPC((short) skip());
+                } else {
+                    cpu.incrementProgramCounter();
+                }
+            }
+            case SKNP_VX -> {
+                if (!input.isPressed(cpu.getV(x) & 0xF)) {
+                    cpu.setPC((short) skip());
+                } else {
+                    cpu.incrementProgramCounter();
+                }
+            }
+            case LD_VX_DT -> {
+                Operations.ldVxDt(cpu, x);
+                cpu.incrementProgramCounter();
+            }
+            case LD_VX_K -> {
+                // Waits for a key to be pressed and released again. The mask only changes between
+                // frames, so the rest of the frame is skipped while waiting.
+                int keys = input.getKeyMask();
+                waitingForKey = true;
+                if (heldKey < 0) {
+                    if (keys != 0) {
+                        heldKey = Integer.numberOfTrailingZeros(keys);
+                    }
+                } else if ((keys & (1 << heldKey)) == 0) {
+                    cpu.setV(x, (byte) heldKey);
+                    heldKey = -1;
+                    waitingForKey = false;
+                    cpu.incrementProgramCounter();
+                    memory.getVideoMemory().setFullUpdateFlag(true);
+                }
+            }
+            case LD_DT_VX -> {
+                Operations.ldDtVx(cpu, x);
+                cpu.incrementProgramCounter();
+            }
+            case LD_ST_VX -> {
+                Operations.ldStVx(cpu, x);
+                cpu.incrementProgramCounter();
+            }
+            case ADD_I_VX -> {
+                Operations.addIVx(cpu, x);
+                cpu.incrementProgramCounter();
+            }
+            case LD_F_VX -> {
+                Operations.ldFVx(cpu, x);
+                cpu.incrementProgramCounter();
+            }
+            case LD_B_VX -> {
+                int vx = cpu.getV(x) & 0xFF;
+                int i = cpu.getI() & 0xFFFF;
+
+                memory.setMemory(i, vx / 100);
+                memory.setMemory(i + 1, (vx / 10) % 10);
+                memory.setMemory(i + 2, vx % 10);
+                cpu.incrementProgramCounter();
+            }
+            case LD_I_VX -> {
+                for (int i = 0; i <= x; i++) {
+                    memory.setMemory((cpu.getI() & 0xFFFF) + i, cpu.getV(i));
+                }
+                if (Quirks.has(quirks, Quirks.LOAD_STORE_INCREMENT_I)) {
+                    cpu.setI((short) (cpu.getI() + x + 1));
+                }
+                cpu.incrementProgramCounter();
+            }
+            case LD_VX_I -> {
+                if (Quirks.has(quirks, Quirks.LOAD_STORE_INCREMENT_I)) {
+                    Operations.ldVxIIncrement(cpu, memory, x);
+                } else {
+                    Operations.ldVxI(cpu, memory, x);
+                }
+                cpu.incrementProgramCounter();
+            }
+            case SCD_N -> {
+                memory.getVideoMemory().scrollDown(instruction.getN());
+                cpu.incrementProgramCounter();
+            }
+            case SCU_N -> {
+                memory.getVideoMemory().scrollUp(instruction.getN());
+                cpu.incrementProgramCounter();
+            }
+            case SCR -> {
+                memory.getVideoMemory().scrollRight(4);
+                cpu.incrementProgramCounter();
+            }
+            case SCL -> {
+                memory.getVideoMemory().scrollLeft(4);
+                cpu.incrementProgramCounter();
+            }
+            case EXIT -> {
+                // Halts by staying on this instruction
+            }
+            case LOW -> {
+                memory.getVideoMemory().setResolution(SCREEN_WIDTH, SCREEN_HEIGHT);
+                cpu.incrementProgramCounter();
+            }
+            case HIGH -> {
+                memory.getVideoMemory().setResolution(VideoMemory.MAX_WIDTH, VideoMemory.MAX_HEIGHT);
+                cpu.incrementProgramCounter();
+            }
+            case SAVE_VX_VY -> {
+                int y = instruction.getY();
+                int step = x <= y ? 1 : -1;
+                int address = cpu.getI() & 0xFFFF;
+                for (int i = x; ; i += step) {
+                    memory.setMemory(address++, cpu.getV(i));
+                    if (i == y) {
+                        break;
+                    }
+                }
+                cpu.incrementProgramCounter();
+            }
+            case LOAD_VX_VY -> {
+                int y = instruction.getY();
+                int step = x <= y ? 1 : -1;
+                int address = cpu.getI() & 0xFFFF;
+                for (int i = x; ; i += step) {
+                    cpu.setV(i, (byte) memory.getMemory(address++));
+                    if (i == y) {
+                        break;
+                    }
+                }
+                cpu.incrementProgramCounter();
+            }
+            case LD_I_LONG -> {
+                int pc = cpu.getPC() & 0xFFFF;
+                cpu.setI((short) ((memory.getMemory(pc + 2) << 8) | memory.getMemory(pc + 3)));
+                cpu.incrementProgramCounter(2);
+            }
+            case PLANE -> {
+                memory.getVideoMemory().setPlaneMask(x);
+                cpu.incrementProgramCounter();
+            }
+            case LD_AUDIO -> {
+                for (int i = 0; i < AUDIO_PATTERN_SIZE; i++) {
+                    audioPattern[i] = (byte) memory.getMemory((cpu.getI() & 0xFFFF) + i);
+                }
+                audioPatternLoaded = true;
+                cpu.incrementProgramCounter();
+            }
+            case LD_HF_VX -> {
+                cpu.setI((short) (BIG_FONT_START + (cpu.getV(x) & 0xF) * 10));
+                cpu.incrementProgramCounter();
+            }
+            case LD_R_VX -> {
+                for (int i = 0; i <= x; i++) {
+                    cpu.setFlag(i, cpu.getV(i));
+                }
+                cpu.incrementProgramCounter();
+            }
+            case LD_VX_R -> {
+                for (int i = 0; i <= x; i++) {
+                    cpu.setV(i, cpu.getFlag(i));
+                }
+                cpu.incrementProgramCounter();
+            }
+            case LD_PITCH_VX -> {
+                pitch = cpu.getV(x) & 0xFF;
+                cpu.incrementProgramCounter();
+            }
+            case UNKNOWN -> {
+            }
+        }
+    }
+
+    // Address of the instruction after the next one. XO-CHIP skips over the whole of a four byte
+    // F000 NNNN instruction.
+    private int skip() {
+        int pc = cpu.getPC() & 0xFFFF;
+
+        if (profile == MachineProfile.XOCHIP && pc + 3 < memory.getSize()
+                && memory.getMemory(pc + 2) == 0xF0 && memory.getMemory(pc + 3) == 0x00) {
+            return pc + 6;
+        }
+        return pc + 4;
+    }
+
+    // SUPER-CHIP/XO-CHIP drawing: coordinates wrap, the sprite is clipped at the screen edges, DXY0
+    // draws a 16x16 sprite and every selected plane takes the next block of sprite data.
+    private void drawExtended(int x, int y, int n) {
+        VideoMemory videoMemory = memory.getVideoMemory();
+        int vx = (cpu.getV(x) & 0xFF) % videoMemory.getWidth();
+        int vy = (cpu.getV(y) & 0xFF) % videoMemory.getHeight();
+        int spriteWidth = n == 0 ? 16 : 8;
+        int rows = n == 0 ? 16 : n;
+        int address = cpu.getI() & 0xFFFF;
+        boolean collision = false;
+
+        for (int plane = 0; plane < videoMemory.getPlanes(); plane++) {
+            if ((videoMemory.getPlaneMask() & (1 << plane)) == 0) {
+                continue;
+            }
+            for (int row = 0; row < rows; row++) {
+                int bits = memory.getMemory(address++);
+                if (spriteWidth == 16) {
+                    bits = (bits << 8) | memory.getMemory(address++);
+                }
+                collision |= videoMemory.drawSpriteRow(plane, vx, vy + row, bits, spriteWidth);
+            }
+        }
+        cpu.setV(0xF, (byte) (collision ? 1 : 0));
+    }
+
+    // True while FX0A waits or the program sits in a jump to itself, and the timers have run out, so
+    // frames would change nothing until the keys change. Only meaningful on the emulation thread.
+    public boolean isIdleUntilInput() {
+        return (waitingForKey || halted) && cpu.getDT() == 0 && cpu.getST() == 0 && !rewinding && !input.hasChanged();
+    }
+
+    public int getStateSize() {
+        return Integer.BYTES + Short.BYTES + 2 * Byte.BYTES + memory.stateSize() + CPU.stateSize()
+                + memory.getVideoMemory().stateSize() + Long.BYTES + AUDIO_PATTERN_SIZE + Byte.BYTES + 3 * Long.BYTES
+                + Integer.BYTES;
+    }
+
+    // Writes the machine state at the buffer's position, including the seed, frame count, skipped
+    // cycle total and quirks, so a loaded machine runs on exactly as the saved one would have. Call
+    // while emulation is paused or from the emulation thread.
+    public void saveState(ByteBuffer buffer) {
+        buffer.putInt(STATE_MAGIC);
+        buffer.putShort(STATE_VERSION);
+        buffer.put((byte) profile.ordinal());
+        memory.saveState(buffer);
+        cpu.saveState(buffer);
+        memory.getVideoMemory().saveState(buffer);
+        buffer.putLong(random.getState());
+        buffer.put(audioPattern);
+        buffer.put((byte) pitch);
+        buffer.put((byte) heldKey);
+        buffer.putLong(seed);
+        buffer.putLong(frameCount);
+        buffer.putLong(skippedCycles);
+        buffer.putInt(quirks);
+    }
+
+    public void loadState(ByteBuffer buffer) {
+        if (buffer.getInt() != STATE_MAGIC) {
+            throw new IllegalArgumentException("Not a Chip-8 save state");
+        }
+        short version = buffer.getShort();
+        if (version != STATE_VERSION) {
+            throw new IllegalArgumentException("Unsupported save state version: " + version);
+        }
+
+        int stateProfile = buffer.get();
+        if (stateProfile < 0 || stateProfile >= MachineProfile.values().length) {
+            throw new IllegalArgumentException("Unknown machine profile: " + stateProfile);
+        }
+        if (memory == null || profile != MachineProfile.values()[stateProfile]) {
+            profile = MachineProfile.values()[stateProfile];
+            setMemory(new Memory(profile));
+        }
+        if (cpu == null) {
+            setCpu(new CPU());
+        }
+        memory.loadState(buffer);
+        cpu.loadState(buffer);
+        memory.getVideoMemory().loadState(buffer);
+        random.setState(buffer.getLong());
+        buffer.get(audioPattern);
+        audioPatternLoaded = false;
+        for (byte b : audioPattern) {
+            audioPatternLoaded |= b != 0;
+        }
+        pitch = buffer.get() & 0xFF;
+        heldKey = buffer.get();
+        seed = buffer.getLong();
+        frameCount = buffer.getLong();
+        skippedCycles = buffer.getLong();
+        applyQuirks(buffer.getInt());
+        // Both are worked out afresh by the next runInstructions()
+        waitingForKey = false;
+        halted = false;
+        instructionCache.clear();
+        if (blockCache != null) {
+            blockCache.clear();
+        }
+        blockEntry = true;
+    }
+
+    public void saveState(Path path, boolean memoryMapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (memoryMapped) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, getStateSize());
+                saveState(buffer);
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(getStateSize());
+                saveState(buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    public void loadState(Path path, boolean memoryMapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (memoryMapped) {
+                loadState(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("Truncated save state: " + path);
+                    }
+                }
+                buffer.flip();
+                loadState(buffer);
+            }
+        }
+    }
+
+    public FrameExchange getFrameExchange() {
+        return frameExchange;
+    }
+
+    public int getRewindSeconds() {
+        return rewindSeconds;
+    }
+
+    // 0 disables rewinding
+    public void setRewindSeconds(int rewindSeconds) {
+        this.rewindSeconds = rewindSeconds;
+        rewindBuffer = null;
+    }
+
+    public RewindBuffer getRewindBuffer() {
+        return rewindBuffer;
+    }
+
+    public boolean isRewinding() {
+        return rewinding;
+    }
+
+    public void setRewinding(boolean rewinding) {
+        this.rewinding = rewinding;
+        if (rewinding) {
+            emulationLoop.wake();
+        }
+    }
+
+    public void runFrame() {
+        RewindBuffer rewind = rewindBuffer;
+
+        InputMovie recording = movie;
+
+        if (rewinding && rewind != null && recording == null) {
+            rewind.stepBack(this);
+            publishFrame();
+            return;
+        }
+
+        input.latch();
+        if (recording != null) {
+            recording.record(frameCount, input.getKeyMask());
+        }
+        frameCount++;
+
+        long skippedBefore = skippedCycles;
+        int executed = runInstructions(instructionsPerFrame);
+        tickTimers();
+        publishFrame();
+
+        Metrics frameMetrics = metrics;
+        if (frameMetrics != null) {
+            frameMetrics.recordFrame(executed);
+            if (skippedCycles != skippedBefore) {
+                frameMetrics.recordSkippedCycles(skippedCycles - skippedBefore);
+            }
+        }
+
+        if (rewindSeconds > 0) {
+            if (rewind == null) {
+                rewind = new RewindBuffer(rewindSeconds, getStateSize());
+                rewindBuffer = rewind;
+            }
+            rewind.record(this);
+        }
+    }
+
+    private void publishFrame() {
+        VideoMemory videoMemory = memory.getVideoMemory();
+
+        if (videoMemory.takeDirtyRows() != 0) {
+            frameExchange.publish(videoMemory);
+        }
+    }
+
+    private void tickTimers() {
+        if (cpu.getDT() != 0) {
+            cpu.setDT((byte) (cpu.getDT() - 1));
+        }
+
+        AudioOutput audio = audioOutput;
+        if (audio != null) {
+            // XO-CHIP ROMs that never load a pattern get the plain tone
+            boolean usePattern = profile == MachineProfile.XOCHIP && audioPatternLoaded;
+            audio.submitFrame(cpu.getST() != 0, usePattern, audioPattern, pitch);
+        }
+
+        if (cpu.getST() != 0) {
+            cpu.setST((byte) (cpu.getST() - 1));
+        }
+    }
+
+    public void startEmulation(boolean reset) {
+        if (reset) {
+            reset();
+        }
+
+        emulationLoop.start();
+    }
+
+    public void pauseEmulation() {
+        emulationLoop.stop();
+    }
+
+    public boolean isRunning() {
+        return emulationLoop.isRunning();
+    }
+
+    public void reset() {
+        reset(ThreadLocalRandom.current().nextLong());
+    }
+
+    public void reset(long seed) {
+        emulationLoop.stop();
+        this.seed = seed;
+        random.setSeed(seed);
+        frameCount = 0;
+        skippedCycles = 0;
+        setMemory(new Memory(profile));
+        setCpu(new CPU());
+        memory.loadRom(getRom().getRomData());
+        setInput(new Input());
+        heldKey = -1;
+        waitingForKey = false;
+        Arrays.fill(audioPattern, (byte) 0);
+        audioPatternLoaded = false;
+        pitch = DEFAULT_PITCH;
+        setInstructionsPerSecond(profile.getDefaultInstructionsPerSecond());
+        setTurbo(false);
+        rewindBuffer = null;
+        rewinding = false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.chip8.chip8.system;
+
+import java.util.Random;
+
+public final class CompiledBlock {
+    private final int start;
+    private final int end;
+    private final int length;
+    private final BlockCode code;
+    // Opcode families present in the block and how often each occurs
+    private final byte[] families;
+    private final int[] familyCounts;
+
+    CompiledBlock(int start, int length, BlockCode code, int[] familyHistogram) {
+        this.start = start;
+        this.end = start + length * 2;
+        this.length = length;
+        this.code = code;
+
+        int present = 0;
+        for (int count : familyHistogram) {
+            if (count != 0) {
+                present++;
+            }
+        }
+        families = new byte[present];
+        familyCounts = new int[present];
+        for (int family = 0, i = 0; family < familyHistogram.length; family++) {
+            if (familyHistogram[family] != 0) {
+                families[i] = (byte) family;
+                familyCounts[i++] = familyHistogram[family];
+            }
+        }
+    }
+
+    void run(CPU cpu, Memory memory, Random random) {
+        code.run(cpu, memory, random);
+    }
+
+    void countOpcodes(long[] opcodeCounter) {
+        for (int i = 0; i < families.length; i++) {
+            opcodeCounter[families[i]] += familyCounts[i];
+        }
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean covers(int address) {
+        return address >= start && address < end;
+    }
+}
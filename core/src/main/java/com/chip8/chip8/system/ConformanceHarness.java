@@ -0,0 +1,478 @@
+package com.chip8.chip8.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Differential test of the machine against ReferenceMachine. Each case is a random CHIP-8 state with
+// a short random program at PC. It runs on the reference, on the interpreter and, for straight-line
+// programs, as a compiled block, and the full state of each engine is compared afterwards. Cases
+// are numbered and derived from the seed alone, so any failure can be replayed. Failures are
+// shrunk to the first instruction that goes wrong and a state with as little set as still fails.
+public class ConformanceHarness {
+    public static final int DEFAULT_PROGRAM_LENGTH = 4;
+    public static final int DEFAULT_COMPILED_INTERVAL = 16;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int[] EDGE_BYTES = {0x00, 0x01, 0x7F, 0x80, 0xFE, 0xFF};
+    private static final int[] EDGE_ADDRESSES = {0x000, 0x200, 0xFF0, 0xFFD, 0xFFE, 0xFFF};
+    private static final int[] ALU_OPS = {0x0, 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0xE};
+    private static final int[] MISC_OPS = {0x07, 0x0A, 0x15, 0x18, 0x1E, 0x29, 0x33, 0x55, 0x65};
+
+    public enum Tier {
+        INTERPRETER,
+        COMPILED
+    }
+
+    public record Failure(Tier tier, String pattern, long caseIndex, String description) {
+    }
+
+    // An initial state with the program already in memory at PC, and how many instructions to run
+    private record Case(ReferenceMachine machine, int length) {
+    }
+
+    private final long seed;
+    private int programLength;
+    private int compiledInterval;
+    private int parallelism;
+    private long elapsedNanos;
+
+    public ConformanceHarness(long seed) {
+        this.seed = seed;
+        programLength = DEFAULT_PROGRAM_LENGTH;
+        compiledInterval = DEFAULT_COMPILED_INTERVAL;
+        parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setProgramLength(int programLength) {
+        this.programLength = programLength;
+    }
+
+    // Compiling a block defines a hidden class, which costs far more than running a case, so only
+    // every nth straight-line case is also run compiled
+    public void setCompiledInterval(int compiledInterval) {
+        this.compiledInterval = compiledInterval;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Returns one shrunk failure per tier and opcode pattern, with the number of failing cases of
+    // each, ordered by pattern
+    public Map<String, List<Failure>> run(long cases) throws InterruptedException {
+        List<Callable<List<Failure>>> jobs = new ArrayList<>();
+        for (long first = 0; first < cases; first += CHUNK_SIZE) {
+            long from = first;
+            long to = Math.min(cases, first + CHUNK_SIZE);
+            jobs.add(() -> runChunk(from, to));
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<String, List<Failure>> failures = new TreeMap<>();
+        try {
+            for (Future<List<Failure>> future : pool.invokeAll(jobs)) {
+                for (Failure failure : future.get()) {
+                    failures.computeIfAbsent(failure.tier() + " " + failure.pattern(), key -> new ArrayList<>()).add(failure);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        // Only the first case of each kind is worth shrinking
+        for (List<Failure> group : failures.values()) {
+            Failure first = group.get(0);
+            group.set(0, new Failure(first.tier(), first.pattern(), first.caseIndex(), shrink(first.caseIndex(), first.tier())));
+        }
+        return failures;
+    }
+
+    private List<Failure> runChunk(long from, long to) {
+        List<Failure> failures = new ArrayList<>();
+        for (long index = from; index < to; index++) {
+            Case generated = generate(index);
+            ReferenceMachine initial = generated.machine();
+            int length = generated.length();
+            String difference = check(initial, length, Tier.INTERPRETER);
+            if (difference != null) {
+                failures.add(new Failure(Tier.INTERPRETER, pattern(initial, length, Tier.INTERPRETER), index, difference));
+            } else if (index % compiledInterval == 0 && isStraightLine(initial, length)) {
+                difference = check(initial, length, Tier.COMPILED);
+                if (difference != null) {
+                    failures.add(new Failure(Tier.COMPILED, pattern(initial, length, Tier.COMPILED), index, difference));
+                }
+            }
+        }
+        return failures;
+    }
+
+    private Case generate(long index) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+        int length = 1 + random.nextInt(programLength);
+        ReferenceMachine machine = new ReferenceMachine();
+
+        for (int r = 0; r < machine.v.length; r++) {
+            machine.v[r] = randomByte(random);
+        }
+        for (int s = 0; s < machine.stack.length; s++) {
+            machine.stack[s] = random.nextInt(0x1000) & ~1;
+        }
+        if (random.nextBoolean()) {
+            for (int p = 0; p < machine.screen.length; p++) {
+                machine.screen[p] = random.nextBoolean();
+            }
+        }
+        machine.i = random.nextInt(4) == 0 ? EDGE_ADDRESSES[random.nextInt(EDGE_ADDRESSES.length)] : random.nextInt(0x1000);
+        machine.sp = random.nextInt(machine.stack.length);
+        machine.dt = randomByte(random);
+        machine.st = randomByte(random);
+        machine.keys = random.nextInt(4) == 0 ? 0 : random.nextInt(0x10000);
+        machine.seed = random.nextLong();
+        // Only the bytes an instruction can read at I are filled in, which keeps a case cheap to set up
+        for (int a = Math.max(machine.i, 0x200); a < Math.min(machine.i + 16, ReferenceMachine.MEMORY_SIZE); a++) {
+            machine.memory[a] = random.nextInt(0x100);
+        }
+
+        // Leave room for the program and the word after it
+        machine.pc = 0x200 + 2 * random.nextInt((ReferenceMachine.MEMORY_SIZE - 0x200) / 2 - programLength - 1);
+        for (int n = 0; n < length; n++) {
+            int opcode = randomOpcode(random);
+            machine.memory[machine.pc + 2 * n] = opcode >>> 8;
+            machine.memory[machine.pc + 2 * n + 1] = opcode & 0xFF;
+        }
+        return new Case(machine, length);
+    }
+
+    private static int randomByte(SplittableRandom random) {
+        return random.nextInt(4) == 0 ? EDGE_BYTES[random.nextInt(EDGE_BYTES.length)] : random.nextInt(0x100);
+    }
+
+    // Weighted towards opcodes that decode to something, with VF as an operand more often than chance
+    private static int randomOpcode(SplittableRandom random) {
+        int family = random.nextInt(16);
+        int x = random.nextInt(8) == 0 ? 0xF : random.nextInt(16);
+        int y = random.nextInt(8) == 0 ? 0xF : random.nextInt(16);
+        int xy = x << 8 | y << 4;
+        boolean any = random.nextInt(16) == 0;
+
+        return switch (family) {
+            case 0x0 -> any ? random.nextInt(0x1000) : random.nextBoolean() ? 0x00E0 : 0x00EE;
+            case 0x5, 0x9 -> family << 12 | xy | (any ? random.nextInt(16) : 0);
+            case 0x8 -> 0x8000 | xy | (any ? random.nextInt(16) : ALU_OPS[random.nextInt(ALU_OPS.length)]);
+            case 0xE -> 0xE000 | x << 8 | (any ? random.nextInt(0x100) : random.nextBoolean() ? 0x9E : 0xA1);
+            case 0xF -> 0xF000 | x << 8 | (any ? random.nextInt(0x100) : MISC_OPS[random.nextInt(MISC_OPS.length)]);
+            default -> family << 12 | random.nextInt(0x1000);
+        };
+    }
+
+    private static boolean isStraightLine(ReferenceMachine machine, int length) {
+        if (length < BlockCompiler.MIN_BLOCK_LENGTH) {
+            return false;
+        }
+        for (int n = 0; n < length; n++) {
+            if (!BlockCompiler.isStraightLine(Instruction.decode(opcodeAt(machine, machine.pc + 2 * n)).getOpcode())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int opcodeAt(ReferenceMachine machine, int address) {
+        return machine.memory[address] << 8 | machine.memory[address + 1];
+    }
+
+    // Runs length instructions from the initial state on the reference and on the given tier, and
+    // returns the first difference, or null if they agree
+    private String check(ReferenceMachine initial, int length, Tier tier) {
+        ReferenceMachine expected = initial.copy();
+        expected.start();
+        String expectedFault = null;
+        try {
+            expected.run(length);
+        } catch (RuntimeException e) {
+            expectedFault = e.getClass().getSimpleName();
+        }
+
+        Chip8 actual = load(initial);
+        String actualFault = null;
+        try {
+            if (tier == Tier.INTERPRETER) {
+                actual.setExecutionMode(ExecutionMode.INTERPRETER);
+                actual.runInstructions(length);
+            } else {
+                runCompiled(actual, initial, length);
+            }
+        } catch (RuntimeException e) {
+            actualFault = e.getClass().getSimpleName();
+        }
+
+        // A fault can leave either engine part way through an instruction, so only the fault is compared
+        if (expectedFault != null || actualFault != null) {
+            return (expectedFault != null) == (actualFault != null) ? null
+                    : String.format("fault: expected %s, actual %s", expectedFault, actualFault);
+        }
+        return compare(expected, actual);
+    }
+
+    private static Chip8 load(ReferenceMachine machine) {
+        Memory memory = new Memory();
+        for (int a = Chip8.FONT.length; a < ReferenceMachine.MEMORY_SIZE; a++) {
+            if (machine.memory[a] != 0) {
+                memory.setMemory(a, machine.memory[a]);
+            }
+        }
+        VideoMemory videoMemory = memory.getVideoMemory();
+        for (int y = 0; y < ReferenceMachine.HEIGHT; y++) {
+            long word = machine.rowWord(y);
+            for (int x = 0; x < ReferenceMachine.WIDTH; x += 8) {
+                videoMemory.drawSpriteRow(x, y, (int) (word >>> (56 - x)) & 0xFF, 8);
+            }
+        }
+
+        CPU cpu = new CPU();
+        for (int r = 0; r < machine.v.length; r++) {
+            cpu.setV(r, (byte) machine.v[r]);
+        }
+        for (int s = 0; s < machine.stack.length; s++) {
+            cpu.setStack(s, (short) machine.stack[s]);
+        }
+        cpu.setPC((short) machine.pc);
+        cpu.setI((short) machine.i);
+        cpu.setSp((short) machine.sp);
+        cpu.setDT((byte) machine.dt);
+        cpu.setST((byte) machine.st);
+
+        Input input = new Input();
+        input.setKeyMask(machine.keys);
+
+        Chip8 chip8 = new Chip8(cpu, null, memory, input);
+        chip8.getRandom().setSeed(machine.seed);
+        return chip8;
+    }
+
+    // Compiles the program on its own: the decode copy ends it with a jump so the block cannot run
+    // on into whatever follows in memory
+    private static void runCompiled(Chip8 chip8, ReferenceMachine initial, int length) {
+        Memory code = new Memory();
+        for (int n = 0; n < 2 * length; n++) {
+            code.setMemory(initial.pc + n, initial.memory[initial.pc + n]);
+        }
+        code.setMemory(initial.pc + 2 * length, 0x10);
+        CompiledBlock block = new BlockCompiler().compile(initial.pc, new InstructionCache(code));
+        if (block == null || block.getLength() != length) {
+            throw new IllegalStateException("Straight-line program did not compile to one block");
+        }
+        block.run(chip8.getCpu(), chip8.getMemory(), chip8.getRandom());
+    }
+
+    private static String compare(ReferenceMachine expected, Chip8 actual) {
+        CPU cpu = actual.getCpu();
+        StringBuilder differences = new StringBuilder();
+        difference(differences, "PC", expected.pc, cpu.getPC() & 0xFFFF);
+        difference(differences, "I", expected.i, cpu.getI() & 0xFFFF);
+        difference(differences, "SP", expected.sp, cpu.getSp());
+        difference(differences, "DT", expected.dt, cpu.getDT() & 0xFF);
+        difference(differences, "ST", expected.st, cpu.getST() & 0xFF);
+        for (int r = 0; r < expected.v.length; r++) {
+            if (expected.v[r] != (cpu.getV(r) & 0xFF)) {
+                difference(differences, String.format("V%X", r), expected.v[r], cpu.getV(r) & 0xFF);
+            }
+        }
+        for (int s = 0; s < expected.stack.length; s++) {
+            if (expected.stack[s] != (cpu.getStack(s) & 0xFFFF)) {
+                difference(differences, "stack[" + s + "]", expected.stack[s], cpu.getStack(s) & 0xFFFF);
+            }
+        }
+        Memory memory = actual.getMemory();
+        for (int a = 0; a < ReferenceMachine.MEMORY_SIZE; a++) {
+            if (expected.memory[a] != memory.getMemory(a)) {
+                difference(differences, String.format("memory[%03X]", a), expected.memory[a], memory.getMemory(a));
+            }
+        }
+        VideoMemory videoMemory = memory.getVideoMemory();
+        for (int y = 0; y < ReferenceMachine.HEIGHT; y++) {
+            long expectedRow = expected.rowWord(y);
+            long actualRow = videoMemory.getRowWord(y, 0);
+            if (expectedRow != actualRow) {
+                differences.append(String.format("%n  row %d: expected %016x, actual %016x", y, expectedRow, actualRow));
+            }
+        }
+        long expectedNext = expected.random.nextLong();
+        long actualNext = actual.getRandom().nextLong();
+        if (expectedNext != actualNext) {
+            differences.append(String.format("%n  random: expected next %016x, actual %016x", expectedNext, actualNext));
+        }
+        return differences.isEmpty() ? null : differences.toString();
+    }
+
+    private static void difference(StringBuilder differences, String name, int expected, int actual) {
+        if (expected != actual) {
+            differences.append(String.format("%n  %s: expected %X, actual %X", name, expected, actual));
+        }
+    }
+
+    // Names the first instruction of the program the way opcode tables do, e.g. 8XY5 or FX33
+    private static String pattern(ReferenceMachine machine, int length, Tier tier) {
+        StringBuilder pattern = new StringBuilder();
+        int count = tier == Tier.COMPILED ? length : 1;
+        for (int n = 0; n < count; n++) {
+            int opcode = opcodeAt(machine, machine.pc + 2 * n);
+            if (n > 0) {
+                pattern.append(' ');
+            }
+            pattern.append(switch (opcode >>> 12) {
+                case 0x0 -> opcode == 0x00E0 || opcode == 0x00EE ? String.format("%04X", opcode) : "0NNN";
+                case 0x1, 0x2, 0xA, 0xB -> String.format("%XNNN", opcode >>> 12);
+                case 0x3, 0x4, 0x6, 0x7, 0xC -> String.format("%XXNN", opcode >>> 12);
+                case 0x5, 0x8, 0x9 -> String.format("%XXY%X", opcode >>> 12, opcode & 0xF);
+                case 0xD -> "DXYN";
+                default -> String.format("%XX%02X", opcode >>> 12, opcode & 0xFF);
+            });
+        }
+        return pattern.toString();
+    }
+
+    // Finds the first instruction that goes wrong and starts the case there, from the reference's
+    // state at that point, then clears as much of the state as it can while the case still fails
+    private String shrink(long index, Tier tier) {
+        Case generated = generate(index);
+        ReferenceMachine machine = generated.machine();
+        int length = generated.length();
+        int minimum = tier == Tier.COMPILED ? BlockCompiler.MIN_BLOCK_LENGTH : 1;
+
+        for (int shorter = minimum; shorter < length; shorter++) {
+            if (check(machine, shorter, tier) != null) {
+                length = shorter;
+                break;
+            }
+        }
+        while (length > minimum) {
+            ReferenceMachine next = machine.copy();
+            next.start();
+            try {
+                if (!next.step()) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                break;
+            }
+            // The generator has moved on, so the rest of the case only stays valid without CXNN
+            if (opcodeAt(machine, machine.pc) >>> 12 == 0xC || check(next, length - 1, tier) == null) {
+                break;
+            }
+            machine = next;
+            length--;
+        }
+
+        machine = simplify(machine, length, tier);
+        StringBuilder description = new StringBuilder();
+        for (int n = 0; n < length; n++) {
+            description.append(String.format("%04X ", opcodeAt(machine, machine.pc + 2 * n)));
+        }
+        description.append(String.format("at PC=%03X I=%03X SP=%X DT=%02X ST=%02X keys=%04X seed=%016x V=",
+                machine.pc, machine.i, machine.sp, machine.dt, machine.st, machine.keys, machine.seed));
+        for (int r = 0; r < machine.v.length; r++) {
+            description.append(String.format("%02X", machine.v[r])).append(r + 1 < machine.v.length ? " " : "");
+        }
+        return description.append(check(machine, length, tier)).toString();
+    }
+
+    private ReferenceMachine simplify(ReferenceMachine machine, int length, Tier tier) {
+        List<Consumer<ReferenceMachine>> simplifications = new ArrayList<>();
+        simplifications.add(m -> {
+            Arrays.fill(m.screen, false);
+        });
+        simplifications.add(m -> {
+            for (int a = Chip8.FONT.length; a < ReferenceMachine.MEMORY_SIZE; a++) {
+                if (a < m.pc || a >= m.pc + 2 * length) {
+                    m.memory[a] = 0;
+                }
+            }
+        });
+        for (int r = 0; r < machine.v.length; r++) {
+            int register = r;
+            simplifications.add(m -> m.v[register] = 0);
+        }
+        simplifications.add(m -> Arrays.fill(m.stack, 0));
+        simplifications.add(m -> m.sp = 0);
+        simplifications.add(m -> m.i = 0);
+        simplifications.add(m -> m.dt = 0);
+        simplifications.add(m -> m.st = 0);
+        simplifications.add(m -> m.keys = 0);
+        simplifications.add(m -> m.seed = 0);
+
+        for (Consumer<ReferenceMachine> simplification : simplifications) {
+            ReferenceMachine candidate = machine.copy();
+            simplification.accept(candidate);
+            if (check(candidate, length, tier) != null) {
+                machine = candidate;
+            }
+        }
+        return machine;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long cases = 1_000_000;
+        long seed = System.nanoTime();
+        int threads = -1;
+        int length = DEFAULT_PROGRAM_LENGTH;
+        int compiledInterval = DEFAULT_COMPILED_INTERVAL;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Usage: ConformanceHarness [--cases N] [--seed N] [--threads N] [--length N] [--compiled-every N]");
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--cases" -> cases = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--length" -> length = Integer.parseInt(value);
+                case "--compiled-every" -> compiledInterval = Integer.parseInt(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        ConformanceHarness harness = new ConformanceHarness(seed);
+        harness.setProgramLength(length);
+        harness.setCompiledInterval(compiledInterval);
+        if (threads > 0) {
+            harness.setParallelism(threads);
+        }
+        Map<String, List<Failure>> failures = harness.run(cases);
+
+        for (Map.Entry<String, List<Failure>> entry : failures.entrySet()) {
+            Failure first = entry.getValue().get(0);
+            System.out.printf("FAIL %s: %d cases, first #%d%n  %s%n", entry.getKey(), entry.getValue().size(),
+                    first.caseIndex(), first.description());
+        }
+        double minutes = harness.getElapsedNanos() / (double) TimeUnit.MINUTES.toNanos(1);
+        System.out.printf("%d cases with seed %d on %d threads in %.1f s (%.1f M cases/min), %d failing patterns%n", cases,
+                seed, harness.getParallelism(), minutes * 60, cases / minutes / 1e6, failures.size());
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+}
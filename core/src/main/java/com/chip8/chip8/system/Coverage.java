@@ -0,0 +1,137 @@
+package com.chip8.chip8.system;
+
+import java.util.Arrays;
+
+// Execution coverage for fuzzing, in the style of AFL: every instruction bumps a saturating hit
+// counter for the edge from the previous PC, hashed into a fixed-size map, and sets a bit for its
+// own PC. Recording allocates nothing. While a Chip8 has a Coverage set it also reports the states
+// CHIP-8 normally lets slide (see Fault) and stops at the first one.
+public class Coverage {
+    public static final int SMALL_MAP = 4096;
+    public static final int LARGE_MAP = 65536;
+
+    public enum Fault {
+        // 00EE with nothing on the stack, which the machine ignores
+        STACK_UNDERFLOW,
+        // 2NNN with the stack full, which the machine ignores
+        STACK_OVERFLOW,
+        // An opcode the machine's profile does not define, which stalls on the same PC
+        INVALID_OPCODE,
+        // A fetch, load or store past the end of memory
+        MEMORY_OUT_OF_RANGE
+    }
+
+    private final byte[] edges;
+    private final int mask;
+    private final long[] pcs;
+    private int previous;
+    private Fault fault;
+    private int faultPc;
+
+    public Coverage(int mapSize, int memorySize) {
+        if (Integer.bitCount(mapSize) != 1) {
+            throw new IllegalArgumentException("Coverage map size must be a power of two: " + mapSize);
+        }
+        edges = new byte[mapSize];
+        mask = mapSize - 1;
+        pcs = new long[(memorySize + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    // 4 KB for CHIP-8 and SUPER-CHIP, 64 KB for XO-CHIP's larger address space
+    public static Coverage forProfile(MachineProfile profile) {
+        return new Coverage(profile == MachineProfile.XOCHIP ? LARGE_MAP : SMALL_MAP, profile.getMemorySize());
+    }
+
+    public int getMapSize() {
+        return edges.length;
+    }
+
+    // Hit counts by edge, saturating at 255 (read as unsigned)
+    public byte[] getEdges() {
+        return edges;
+    }
+
+    public boolean isCovered(int pc) {
+        return (pcs[pc >>> 6] & 1L << pc) != 0;
+    }
+
+    public Fault getFault() {
+        return fault;
+    }
+
+    public int getFaultPc() {
+        return faultPc;
+    }
+
+    public void clear() {
+        Arrays.fill(edges, (byte) 0);
+        Arrays.fill(pcs, 0);
+        previous = 0;
+        fault = null;
+        faultPc = 0;
+    }
+
+    void record(int pc) {
+        if (pc < pcs.length * Long.SIZE) {
+            pcs[pc >>> 6] |= 1L << pc;
+        }
+        // Scrambled so the even, clustered PCs of real code spread over the whole map
+        int location = pc * 0x9E3779B1 >>> 16;
+        int edge = (location ^ previous) & mask;
+        if (edges[edge] != -1) {
+            edges[edge]++;
+        }
+        previous = location >>> 1;
+    }
+
+    void fault(Fault fault, int pc) {
+        this.fault = fault;
+        faultPc = pc;
+    }
+
+    // AFL's hit count classes: 1, 2, 3, 4-7, 8-15, 16-31, 32-127 and 128+ each get one bit, so a
+    // loop running a few more times than before does not count as new behaviour but a different
+    // order of magnitude does
+    public static int bucket(int count) {
+        if (count <= 3) {
+            return count == 0 ? 0 : 1 << (count - 1);
+        }
+        if (count < 8) {
+            return 0x08;
+        }
+        if (count < 16) {
+            return 0x10;
+        }
+        if (count < 32) {
+            return 0x20;
+        }
+        return count < 128 ? 0x40 : 0x80;
+    }
+
+    // Adds this run's edge buckets and PCs to the totals seen so far, returning true if anything in
+    // them is new. seenEdges must be getMapSize() long and seenPcs come from newPcSet().
+    public boolean mergeInto(byte[] seenEdges, long[] seenPcs) {
+        boolean changed = false;
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] != 0) {
+                int bits = bucket(edges[i] & 0xFF);
+                if ((bits & ~seenEdges[i]) != 0) {
+                    seenEdges[i] |= (byte) bits;
+                    changed = true;
+                }
+            }
+        }
+        for (int i = 0; i < pcs.length; i++) {
+            if ((pcs[i] & ~seenPcs[i]) != 0) {
+                seenPcs[i] |= pcs[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // An empty PC set of the right size for mergeInto()
+    public long[] newPcSet() {
+        return new long[pcs.length];
+    }
+}
@@ -0,0 +1,127 @@
+package com.chip8.chip8.system;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+public class EmulationLoop implements Runnable {
+
+    public static final int FRAME_RATE = 60;
+    public static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / FRAME_RATE;
+    // Give up catching up once the loop falls this many frames behind
+    private static final int MAX_FRAME_LAG = 4;
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final Chip8 chip8;
+    private volatile boolean running;
+    private volatile boolean turbo;
+    private Thread thread;
+
+    public EmulationLoop(Chip8 chip8) {
+        this.chip8 = chip8;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "chip8-emulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    // Wakes the loop if it is parked waiting for input
+    public synchronized void wake() {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime();
+
+        while (running) {
+            chip8.runFrame();
+
+            if (chip8.isIdleUntilInput()) {
+                waitForInput();
+                deadline = System.nanoTime();
+                continue;
+            }
+
+            if (turbo) {
+                deadline = System.nanoTime();
+                continue;
+            }
+
+            deadline += FRAME_NANOS;
+            long lag = System.nanoTime() - deadline;
+
+            if (lag > FRAME_NANOS * MAX_FRAME_LAG) {
+                Logger.getLogger(EmulationLoop.class.getName()).fine(String.format("Emulation fell %d frames behind, resynchronizing", lag / FRAME_NANOS));
+                deadline = System.nanoTime();
+            } else {
+                waitUntil(deadline);
+                lag = System.nanoTime() - deadline;
+            }
+
+            Metrics metrics = chip8.getMetrics();
+            if (metrics != null) {
+                metrics.recordSchedulerLateness(lag);
+            }
+        }
+    }
+
+    // Nothing observable changes until a key event arrives, so park instead of running empty frames
+    private void waitForInput() {
+        Input input = chip8.getInput();
+        input.setWaiter(Thread.currentThread());
+        while (running && chip8.isIdleUntilInput()) {
+            LockSupport.park(this);
+        }
+        input.setWaiter(null);
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+
+        while (running && (remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while (running && deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.chip8.chip8.system;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Expands packed frames into one int per pixel, touching only the rows that changed since the
+// previously converted frame. With two planes a pixel's colour is palette[plane 0 bit | plane 1 bit << 1].
+public class FrameConverter {
+    private final int pixelOn;
+    private final int pixelOff;
+    private final int[] palette;
+    private final long[] converted;
+    private int width;
+    private int height;
+    private int planes;
+    private int firstDirtyRow;
+    private int lastDirtyRow;
+
+    public FrameConverter(int pixelOn, int pixelOff) {
+        this(new int[]{pixelOff, pixelOn, pixelOn, pixelOn});
+    }
+
+    public FrameConverter(int[] palette) {
+        if (palette.length != 1 << VideoMemory.MAX_PLANES) {
+            throw new IllegalArgumentException("Palette needs " + (1 << VideoMemory.MAX_PLANES) + " colours");
+        }
+        this.palette = palette.clone();
+        pixelOff = palette[0];
+        pixelOn = palette[1];
+        converted = new long[VideoMemory.PLANE_WORDS * VideoMemory.MAX_PLANES];
+        reset();
+    }
+
+    public void reset() {
+        Arrays.fill(converted, 0);
+        width = 0;
+        height = 0;
+        planes = 0;
+    }
+
+    // Returns true if any row was written to target. target must hold width * height pixels.
+    public boolean convert(FrameExchange.Frame frame, IntBuffer target) {
+        boolean full = frame.getWidth() != width || frame.getHeight() != height || frame.getPlanes() != planes;
+        int wordsPerRow = frame.getWordsPerRow();
+        width = frame.getWidth();
+        height = frame.getHeight();
+        planes = frame.getPlanes();
+        firstDirtyRow = -1;
+
+        if (planes > 1) {
+            return convertPlanes(frame, target, full);
+        }
+
+        for (int y = 0; y < height; y++) {
+            boolean dirty = false;
+
+            for (int word = 0; word < wordsPerRow; word++) {
+                long pixels = frame.getRowWord(y, word);
+                int index = y * wordsPerRow + word;
+
+                if (!full && pixels == converted[index]) {
+                    continue;
+                }
+                dirty = true;
+                converted[index] = pixels;
+
+                for (int bit = 0, pixel = y * width + word * Long.SIZE; bit < Long.SIZE; bit++, pixel++) {
+                    target.put(pixel, pixels < 0 ? pixelOn : pixelOff);
+                    pixels <<= 1;
+                }
+            }
+
+            if (dirty) {
+                if (firstDirtyRow < 0) {
+                    firstDirtyRow = y;
+                }
+                lastDirtyRow = y;
+            }
+        }
+
+        return firstDirtyRow >= 0;
+    }
+
+    private boolean convertPlanes(FrameExchange.Frame frame, IntBuffer target, boolean full) {
+        int wordsPerRow = frame.getWordsPerRow();
+
+        for (int y = 0; y < height; y++) {
+            boolean dirty = false;
+
+            for (int word = 0; word < wordsPerRow; word++) {
+                int index = y * wordsPerRow + word;
+                long plane0 = frame.getRowWord(0, y, word);
+                long plane1 = frame.getRowWord(1, y, word);
+
+                if (!full && plane0 == converted[index] && plane1 == converted[VideoMemory.PLANE_WORDS + index]) {
+                    continue;
+                }
+                dirty = true;
+                converted[index] = plane0;
+                converted[VideoMemory.PLANE_WORDS + index] = plane1;
+
+                for (int bit = 0, pixel = y * width + word * Long.SIZE; bit < Long.SIZE; bit++, pixel++) {
+                    target.put(pixel, palette[(int) (plane0 >>> 63) | (int) (plane1 >>> 63) << 1]);
+                    plane0 <<= 1;
+                    plane1 <<= 1;
+                }
+            }
+
+            if (dirty) {
+                if (firstDirtyRow < 0) {
+                    firstDirtyRow = y;
+                }
+                lastDirtyRow = y;
+            }
+        }
+
+        return firstDirtyRow >= 0;
+    }
+
+    public int getFirstDirtyRow() {
+        return firstDirtyRow;
+    }
+
+    public int getLastDirtyRow() {
+        return lastDirtyRow;
+    }
+}
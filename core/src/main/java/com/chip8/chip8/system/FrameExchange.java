@@ -0,0 +1,110 @@
+package com.chip8.chip8.system;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Triple buffer between the emulation thread (single producer) and the renderer (single consumer).
+// The producer always owns one frame, the consumer owns another, and the third sits in the middle
+// slot. Publishing and acquiring swap a frame with the middle slot, so neither side blocks and the
+// consumer always picks up the most recently completed frame.
+public class FrameExchange {
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    public static final class Frame {
+        private final long[] rows;
+        private int width;
+        private int height;
+        private int wordsPerRow;
+        private int planes;
+        private long sequence;
+
+        private Frame() {
+            rows = new long[VideoMemory.PLANE_WORDS * VideoMemory.MAX_PLANES];
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getWordsPerRow() {
+            return wordsPerRow;
+        }
+
+        public int getPlanes() {
+            return planes;
+        }
+
+        public long getRowWord(int y, int word) {
+            return rows[y * wordsPerRow + word];
+        }
+
+        public long getRowWord(int plane, int y, int word) {
+            return rows[plane * VideoMemory.PLANE_WORDS + y * wordsPerRow + word];
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    private final Frame[] frames;
+    private final AtomicInteger middle;
+    private int backIndex;
+    private int frontIndex;
+    private volatile long framesPublished;
+    private volatile long framesDisplayed;
+    private volatile long framesDropped;
+
+    public FrameExchange() {
+        frames = new Frame[]{new Frame(), new Frame(), new Frame()};
+        backIndex = 0;
+        frontIndex = 1;
+        middle = new AtomicInteger(2);
+    }
+
+    public void publish(VideoMemory videoMemory) {
+        Frame frame = frames[backIndex];
+        videoMemory.copyTo(frame.rows);
+        frame.width = videoMemory.getWidth();
+        frame.height = videoMemory.getHeight();
+        frame.wordsPerRow = videoMemory.getWordsPerRow();
+        frame.planes = videoMemory.getPlanes();
+        frame.sequence = framesPublished + 1;
+
+        int previous = middle.getAndSet(backIndex | FRESH);
+        backIndex = previous & INDEX_MASK;
+        framesPublished++;
+        if ((previous & FRESH) != 0) {
+            framesDropped++;
+        }
+    }
+
+    // Returns the latest published frame, or null if nothing new was published since the last call.
+    // The frame stays valid until the next call.
+    public Frame acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+
+        int previous = middle.getAndSet(frontIndex);
+        frontIndex = previous & INDEX_MASK;
+        framesDisplayed++;
+        return frames[frontIndex];
+    }
+
+    public long getFramesPublished() {
+        return framesPublished;
+    }
+
+    public long getFramesDisplayed() {
+        return framesDisplayed;
+    }
+
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chip8.chip8.system;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histogram of nanosecond durations in power-of-two buckets: bucket i holds values in
+// [2^(i-1), 2^i), bucket 0 holds zero and anything negative. Recording is allocation-free.
+public class Histogram {
+    public static final int BUCKET_COUNT = Long.SIZE;
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    public Histogram() {
+        buckets = new LongAdder[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+        count = new LongAdder();
+        total = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : (double) total.sum() / samples;
+    }
+
+    // Upper bound of the bucket containing the given percentile (0-100)
+    public long getPercentile(double percentile) {
+        long[] counts = getBuckets();
+        long samples = 0;
+        for (long bucket : counts) {
+            samples += bucket;
+        }
+        if (samples == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(samples * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(getMax(), upperBound(i));
+            }
+        }
+        return getMax();
+    }
+
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public static long upperBound(int bucket) {
+        return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
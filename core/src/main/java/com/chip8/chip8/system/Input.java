@@ -0,0 +1,112 @@
+package com.chip8.chip8.system;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Key events from any thread update the live key mask atomically; the machine only sees the mask
+// taken by latch() at the start of each frame, so a run depends on nothing but the per-frame masks.
+// Keys are numbered 0x0-0xF; mapping host keys onto them is up to the front end.
+public class Input {
+    private final AtomicInteger keyMask;
+    private final AtomicLongArray pressTimes;
+    private final AtomicLongArray releaseTimes;
+    private volatile Thread waiter;
+    private int frameMask;
+
+    public Input() {
+        keyMask = new AtomicInteger();
+        pressTimes = new AtomicLongArray(Chip8.KEY_COUNT);
+        releaseTimes = new AtomicLongArray(Chip8.KEY_COUNT);
+        frameMask = 0;
+    }
+
+    public Input(Input other) {
+        this();
+        keyMask.set(other.keyMask.get());
+        for (int i = 0; i < Chip8.KEY_COUNT; i++) {
+            pressTimes.set(i, other.pressTimes.get(i));
+            releaseTimes.set(i, other.releaseTimes.get(i));
+        }
+        frameMask = other.frameMask;
+    }
+
+    public void pressKey(int key) {
+        checkKey(key);
+        int mask;
+        do {
+            mask = keyMask.get();
+            if ((mask & (1 << key)) != 0) {
+                return;
+            }
+        } while (!keyMask.compareAndSet(mask, mask | (1 << key)));
+        pressTimes.set(key, System.nanoTime());
+        wakeWaiter();
+    }
+
+    public void releaseKey(int key) {
+        checkKey(key);
+        int mask;
+        do {
+            mask = keyMask.get();
+            if ((mask & (1 << key)) == 0) {
+                return;
+            }
+        } while (!keyMask.compareAndSet(mask, mask & ~(1 << key)));
+        releaseTimes.set(key, System.nanoTime());
+        wakeWaiter();
+    }
+
+    // System.nanoTime() of the key's last press or release, 0 if it never happened
+    public long getPressTime(int key) {
+        checkKey(key);
+        return pressTimes.get(key);
+    }
+
+    public long getReleaseTime(int key) {
+        checkKey(key);
+        return releaseTimes.get(key);
+    }
+
+    public void latch() {
+        frameMask = keyMask.get();
+    }
+
+    public int getKeyMask() {
+        return frameMask;
+    }
+
+    // Replaces both the live keys and the latched mask
+    public void setKeyMask(int mask) {
+        frameMask = mask & ((1 << Chip8.KEY_COUNT) - 1);
+        keyMask.set(frameMask);
+    }
+
+    // True if the live keys differ from the mask latched for the current frame
+    public boolean hasChanged() {
+        return keyMask.get() != frameMask;
+    }
+
+    // The thread to unpark on the next key event, or null
+    void setWaiter(Thread waiter) {
+        this.waiter = waiter;
+    }
+
+    private void wakeWaiter() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isPressed(int index) {
+        checkKey(index);
+        return (frameMask & (1 << index)) != 0;
+    }
+
+    private static void checkKey(int index) {
+        if (index >= Chip8.KEY_COUNT || index < 0) {
+            throw new IllegalArgumentException(String.format("Invalid key index: %d", index));
+        }
+    }
+}
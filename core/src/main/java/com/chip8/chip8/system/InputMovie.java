@@ -0,0 +1,181 @@
+package com.chip8.chip8.system;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Everything needed to reproduce a run from reset: the machine profile and quirks, the RNG seed,
+// instructions per frame, and the key mask at every frame, stored as (frame, mask) events only where
+// the mask changes.
+//
+// File layout: magic, version, seed, ROM CRC-32, instructions per frame, profile (version 2 and
+// later, CHIP-8 before that), quirks (version 3 and later, none before that), length in frames,
+// event count, then per event the frame delta as a varint followed by the mask as a short.
+public class InputMovie {
+    public static final int MAGIC = 0x43384D56;
+    public static final short VERSION = 3;
+
+    private final long seed;
+    private final int romChecksum;
+    private final int instructionsPerFrame;
+    private final MachineProfile profile;
+    private final int quirks;
+    private long[] frames;
+    private int[] masks;
+    private int eventCount;
+    private long length;
+
+    public InputMovie(long seed, int romChecksum, int instructionsPerFrame) {
+        this(seed, romChecksum, instructionsPerFrame, MachineProfile.CHIP8);
+    }
+
+    public InputMovie(long seed, int romChecksum, int instructionsPerFrame, MachineProfile profile) {
+        this(seed, romChecksum, instructionsPerFrame, profile, 0);
+    }
+
+    public InputMovie(long seed, int romChecksum, int instructionsPerFrame, MachineProfile profile, int quirks) {
+        this.seed = seed;
+        this.romChecksum = romChecksum;
+        this.instructionsPerFrame = instructionsPerFrame;
+        this.profile = profile;
+        this.quirks = quirks;
+        frames = new long[64];
+        masks = new int[64];
+        eventCount = 0;
+        length = 0;
+    }
+
+    public static int checksum(ROM rom) {
+        CRC32 crc = new CRC32();
+        crc.update(rom.getRomData());
+        return (int) crc.getValue();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRomChecksum() {
+        return romChecksum;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public MachineProfile getProfile() {
+        return profile;
+    }
+
+    // Quirks flags the run was recorded with
+    public int getQuirks() {
+        return quirks;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public long getEventFrame(int event) {
+        return frames[event];
+    }
+
+    public int getEventMask(int event) {
+        return masks[event];
+    }
+
+    // Frames must be recorded in increasing order. Nothing is stored unless the mask changed.
+    public void record(long frame, int mask) {
+        if (frame < length) {
+            throw new IllegalArgumentException(String.format("Frame %d recorded after frame %d", frame, length - 1));
+        }
+        length = frame + 1;
+
+        int previous = eventCount == 0 ? 0 : masks[eventCount - 1];
+        if (mask == previous) {
+            return;
+        }
+        if (eventCount == frames.length) {
+            frames = Arrays.copyOf(frames, eventCount * 2);
+            masks = Arrays.copyOf(masks, eventCount * 2);
+        }
+        frames[eventCount] = frame;
+        masks[eventCount] = mask;
+        eventCount++;
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + Long.BYTES + 2 * Integer.BYTES
+                + Byte.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + eventCount * (10 + Short.BYTES));
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(seed);
+        buffer.putInt(romChecksum);
+        buffer.putInt(instructionsPerFrame);
+        buffer.put((byte) profile.ordinal());
+        buffer.putInt(quirks);
+        buffer.putLong(length);
+        buffer.putInt(eventCount);
+
+        long previous = 0;
+        for (int i = 0; i < eventCount; i++) {
+            long delta = frames[i] - previous;
+            while ((delta & ~0x7FL) != 0) {
+                buffer.put((byte) ((delta & 0x7F) | 0x80));
+                delta >>>= 7;
+            }
+            buffer.put((byte) delta);
+            buffer.putShort((short) masks[i]);
+            previous = frames[i];
+        }
+
+        Files.write(path, Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    public static InputMovie load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a Chip-8 movie: " + path);
+            }
+            short version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported movie version: " + version);
+            }
+
+            long seed = buffer.getLong();
+            int romChecksum = buffer.getInt();
+            int instructionsPerFrame = buffer.getInt();
+            MachineProfile profile = version == 1 ? MachineProfile.CHIP8 : MachineProfile.values()[buffer.get()];
+            int quirks = version < 3 ? 0 : buffer.getInt();
+            InputMovie movie = new InputMovie(seed, romChecksum, instructionsPerFrame, profile, quirks);
+            long length = buffer.getLong();
+            int events = buffer.getInt();
+            long frame = 0;
+            for (int i = 0; i < events; i++) {
+                long delta = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = buffer.get();
+                    delta |= (long) (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                frame += delta;
+                movie.record(frame, buffer.getShort() & 0xFFFF);
+            }
+            movie.length = Math.max(movie.length, length);
+            return movie;
+        } catch (BufferUnderflowException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt movie: " + path, e);
+        }
+    }
+}
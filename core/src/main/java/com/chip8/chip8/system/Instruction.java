@@ -0,0 +1,188 @@
+package com.chip8.chip8.system;
+
+public final class Instruction {
+    // One intern table per profile, created when a machine with that profile first decodes. The tables
+    // are shared by every machine in the JVM without locking: a racing decode at worst builds a second
+    // copy of an entry or table, and Instruction's final fields make either copy safe to publish.
+    private static final Instruction[][] DECODED = new Instruction[MachineProfile.values().length][];
+
+    private final int raw;
+    private final Opcode opcode;
+    private final int x;
+    private final int y;
+    private final int n;
+    private final int nn;
+    private final int nnn;
+
+    private Instruction(int raw, Opcode opcode) {
+        this.raw = raw;
+        this.opcode = opcode;
+        x = (raw & 0x0F00) >>> 8;
+        y = (raw & 0x00F0) >>> 4;
+        n = raw & 0x000F;
+        nn = raw & 0x00FF;
+        nnn = raw & 0x0FFF;
+    }
+
+    public static Instruction decode(int raw) {
+        return decode(raw, MachineProfile.CHIP8);
+    }
+
+    public static Instruction decode(int raw, MachineProfile profile) {
+        raw &= 0xFFFF;
+        Instruction[] decoded = DECODED[profile.ordinal()];
+        if (decoded == null) {
+            decoded = new Instruction[0x10000];
+            DECODED[profile.ordinal()] = decoded;
+        }
+        Instruction instruction = decoded[raw];
+
+        if (instruction == null) {
+            Opcode opcode = profile.isExtended() ? decodeExtendedOpcode(raw, profile) : null;
+            instruction = new Instruction(raw, opcode != null ? opcode : decodeOpcode(raw));
+            decoded[raw] = instruction;
+        }
+
+        return instruction;
+    }
+
+    // Returns null for anything that decodes the same as on a plain CHIP-8
+    private static Opcode decodeExtendedOpcode(int raw, MachineProfile profile) {
+        boolean xo = profile == MachineProfile.XOCHIP;
+
+        switch (raw) {
+            case 0x00FB -> {
+                return Opcode.SCR;
+            }
+            case 0x00FC -> {
+                return Opcode.SCL;
+            }
+            case 0x00FD -> {
+                return Opcode.EXIT;
+            }
+            case 0x00FE -> {
+                return Opcode.LOW;
+            }
+            case 0x00FF -> {
+                return Opcode.HIGH;
+            }
+            case 0xF000 -> {
+                return xo ? Opcode.LD_I_LONG : null;
+            }
+            case 0xF002 -> {
+                return xo ? Opcode.LD_AUDIO : null;
+            }
+        }
+
+        if ((raw & 0xFFF0) == 0x00C0) {
+            return Opcode.SCD_N;
+        }
+        if ((raw & 0xFFF0) == 0x00D0) {
+            return xo ? Opcode.SCU_N : null;
+        }
+        if (xo && (raw & 0xF00F) == 0x5002) {
+            return Opcode.SAVE_VX_VY;
+        }
+        if (xo && (raw & 0xF00F) == 0x5003) {
+            return Opcode.LOAD_VX_VY;
+        }
+
+        return switch (raw & 0xF0FF) {
+            case 0xF001 -> xo ? Opcode.PLANE : null;
+            case 0xF03A -> xo ? Opcode.LD_PITCH_VX : null;
+            case 0xF030 -> Opcode.LD_HF_VX;
+            case 0xF075 -> Opcode.LD_R_VX;
+            case 0xF085 -> Opcode.LD_VX_R;
+            default -> null;
+        };
+    }
+
+    private static Opcode decodeOpcode(int raw) {
+        switch (raw) {
+            case 0x00E0 -> {
+                return Opcode.CLS;
+            }
+            case 0x00EE -> {
+                return Opcode.RET;
+            }
+        }
+
+        return switch (raw & 0xF000) {
+            case 0x1000 -> Opcode.JP;
+            case 0x2000 -> Opcode.CALL;
+            case 0x3000 -> Opcode.SE_VX_NN;
+            case 0x4000 -> Opcode.SNE_VX_NN;
+            case 0x5000 -> Opcode.SE_VX_VY;
+            case 0x6000 -> Opcode.LD_VX_NN;
+            case 0x7000 -> Opcode.ADD_VX_NN;
+            case 0x8000 -> switch (raw & 0x000F) {
+                case 0x0000 -> Opcode.LD_VX_VY;
+                case 0x0001 -> Opcode.OR_VX_VY;
+                case 0x0002 -> Opcode.AND_VX_VY;
+                case 0x0003 -> Opcode.XOR_VX_VY;
+                case 0x0004 -> Opcode.ADD_VX_VY;
+                case 0x0005 -> Opcode.SUB_VX_VY;
+                case 0x0006 -> Opcode.SHR_VX;
+                case 0x0007 -> Opcode.SUBN_VX_VY;
+                case 0x000E -> Opcode.SHL_VX;
+                default -> Opcode.UNKNOWN;
+            };
+            case 0x9000 -> Opcode.SNE_VX_VY;
+            case 0xA000 -> Opcode.LD_I_NNN;
+            case 0xB000 -> Opcode.JP_V0_NNN;
+            case 0xC000 -> Opcode.RND_VX_NN;
+            case 0xD000 -> Opcode.DRW;
+            case 0xE000 -> switch (raw & 0x00FF) {
+                case 0x009E -> Opcode.SKP_VX;
+                case 0x00A1 -> Opcode.SKNP_VX;
+                default -> Opcode.UNKNOWN;
+            };
+            case 0xF000 -> switch (raw & 0x00FF) {
+                case 0x0007 -> Opcode.LD_VX_DT;
+                case 0x000A -> Opcode.LD_VX_K;
+                case 0x0015 -> Opcode.LD_DT_VX;
+                case 0x0018 -> Opcode.LD_ST_VX;
+                case 0x001E -> Opcode.ADD_I_VX;
+                case 0x0029 -> Opcode.LD_F_VX;
+                case 0x0033 -> Opcode.LD_B_VX;
+                case 0x0055 -> Opcode.LD_I_VX;
+                case 0x0065 -> Opcode.LD_VX_I;
+                default -> Opcode.UNKNOWN;
+            };
+            default -> Opcode.UNKNOWN;
+        };
+    }
+
+    public int getRaw() {
+        return raw;
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public int getNN() {
+        return nn;
+    }
+
+    public int getNNN() {
+        return nnn;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%04X %s", raw, opcode);
+    }
+}
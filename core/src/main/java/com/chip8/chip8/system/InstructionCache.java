@@ -0,0 +1,69 @@
+package com.chip8.chip8.system;
+
+import java.util.Arrays;
+
+// Decoded instructions are kept per memory page and a page's table is only allocated once code in it
+// runs, so forked machines start with an almost empty cache.
+public class InstructionCache implements MemoryWriteListener {
+    private final Memory memory;
+    private final MachineProfile profile;
+    private final Instruction[][] pages;
+
+    public InstructionCache(Memory memory) {
+        this(memory, MachineProfile.CHIP8);
+    }
+
+    public InstructionCache(Memory memory, MachineProfile profile) {
+        this.memory = memory;
+        this.profile = profile;
+        pages = new Instruction[memory.getSize() >> Memory.PAGE_SHIFT][];
+    }
+
+    public Instruction get(int location) {
+        Instruction[] page = pages[location >>> Memory.PAGE_SHIFT];
+
+        if (page == null) {
+            page = new Instruction[Memory.PAGE_SIZE];
+            pages[location >>> Memory.PAGE_SHIFT] = page;
+        }
+
+        Instruction instruction = page[location & (Memory.PAGE_SIZE - 1)];
+
+        if (instruction == null) {
+            instruction = Instruction.decode((memory.getMemory(location) << 8) | memory.getMemory(location + 1), profile);
+            page[location & (Memory.PAGE_SIZE - 1)] = instruction;
+        }
+
+        return instruction;
+    }
+
+    public int getSize() {
+        return memory.getSize();
+    }
+
+    public void invalidate(int index) {
+        // An instruction starting one byte earlier also covers this index
+        if (index > 0) {
+            clearEntry(index - 1);
+        }
+        if (index < memory.getSize()) {
+            clearEntry(index);
+        }
+    }
+
+    private void clearEntry(int location) {
+        Instruction[] page = pages[location >>> Memory.PAGE_SHIFT];
+        if (page != null) {
+            page[location & (Memory.PAGE_SIZE - 1)] = null;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(pages, null);
+    }
+
+    @Override
+    public void onWrite(int index) {
+        invalidate(index);
+    }
+}
@@ -0,0 +1,60 @@
+package com.chip8.chip8.system;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+// Plays the samples through the default sound device. The line buffer holds bufferMillis of audio,
+// which bounds the output latency.
+public class LineAudioSink implements AudioSink {
+    public static final int DEFAULT_BUFFER_MILLIS = 10;
+
+    private final int bufferMillis;
+    private SourceDataLine line;
+
+    public LineAudioSink() {
+        this(DEFAULT_BUFFER_MILLIS);
+    }
+
+    public LineAudioSink(int bufferMillis) {
+        this.bufferMillis = bufferMillis;
+    }
+
+    @Override
+    public void open(int sampleRate) throws IOException {
+        AudioFormat format = new AudioFormat(sampleRate, Short.SIZE, 1, true, false);
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, sampleRate * bufferMillis / 1000 * Short.BYTES);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("No audio line available: " + e.getMessage(), e);
+        }
+        line.start();
+    }
+
+    @Override
+    public void write(byte[] samples, int length) {
+        line.write(samples, 0, length);
+    }
+
+    @Override
+    public boolean isDrained() {
+        return line.available() >= line.getBufferSize();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chip8.chip8.system;
+
+// The instruction set and address/display spaces a machine emulates. SUPER-CHIP adds high
+// resolution, scrolling, 16x16 sprites and a large font; XO-CHIP adds to that 64 KB of memory, a
+// second bitplane and register range load/store.
+public enum MachineProfile {
+    CHIP8(4096, 1, Chip8.IPS_NORMAL),
+    SCHIP(4096, 1, 1800),
+    XOCHIP(65536, 2, 600000);
+
+    private final int memorySize;
+    private final int planes;
+    private final int defaultInstructionsPerSecond;
+
+    MachineProfile(int memorySize, int planes, int defaultInstructionsPerSecond) {
+        this.memorySize = memorySize;
+        this.planes = planes;
+        this.defaultInstructionsPerSecond = defaultInstructionsPerSecond;
+    }
+
+    public int getMemorySize() {
+        return memorySize;
+    }
+
+    public int getPlanes() {
+        return planes;
+    }
+
+    public int getDefaultInstructionsPerSecond() {
+        return defaultInstructionsPerSecond;
+    }
+
+    public boolean isExtended() {
+        return this != CHIP8;
+    }
+}
@@ -0,0 +1,143 @@
+package com.chip8.chip8.system;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Memory is split into PAGE_SIZE byte pages. fork() shares every page with the new instance and
+// marks them shared on both sides; the first write to a shared page copies it, so a fork costs one
+// pointer per page and only pages that are actually written get duplicated.
+public class Memory {
+    public static final int PAGE_SHIFT = 8;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final VideoMemory videoMemory;
+    private final int size;
+    private final byte[][] pages;
+    private final boolean[] shared;
+    private MemoryWriteListener[] writeListeners;
+
+    private void loadFont(MachineProfile profile) {
+        for (int i = 0; i < Chip8.FONT.length; i++) {
+            pages[0][i] = (byte) Chip8.FONT[i];
+        }
+        if (profile.isExtended()) {
+            for (int i = 0; i < Chip8.BIG_FONT.length; i++) {
+                pages[0][Chip8.BIG_FONT_START + i] = (byte) Chip8.BIG_FONT[i];
+            }
+        }
+    }
+
+    public Memory() {
+        this(MachineProfile.CHIP8);
+    }
+
+    public Memory(MachineProfile profile) {
+        videoMemory = new VideoMemory(Chip8.SCREEN_WIDTH, Chip8.SCREEN_HEIGHT, profile.getPlanes());
+        size = profile.getMemorySize();
+        pages = new byte[size >> PAGE_SHIFT][PAGE_SIZE];
+        shared = new boolean[pages.length];
+        writeListeners = new MemoryWriteListener[0];
+        loadFont(profile);
+    }
+
+    private Memory(Memory parent) {
+        videoMemory = parent.videoMemory.copy();
+        size = parent.size;
+        pages = parent.pages.clone();
+        shared = new boolean[pages.length];
+        Arrays.fill(shared, true);
+        Arrays.fill(parent.shared, true);
+        writeListeners = new MemoryWriteListener[0];
+    }
+
+    // Returns a copy of this memory that shares all pages with it until either side writes to them.
+    // Write listeners are not carried over.
+    public Memory fork() {
+        return new Memory(this);
+    }
+
+    public VideoMemory getVideoMemory() {
+        return videoMemory;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMemory(int index) {
+        if (index < 0 || index >= size) {
+            throw invalidIndex(index);
+        }
+        return pages[index >>> PAGE_SHIFT][index & PAGE_MASK] & 0xFF;
+    }
+
+    public void setMemory(int index, int value) {
+        if (index < 0 || index >= size) {
+            throw invalidIndex(index);
+        }
+        writablePage(index >>> PAGE_SHIFT)[index & PAGE_MASK] = (byte) value;
+
+        for (MemoryWriteListener writeListener : writeListeners) {
+            writeListener.onWrite(index);
+        }
+    }
+
+    public int getSharedPageCount() {
+        int count = 0;
+        for (boolean pageShared : shared) {
+            if (pageShared) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private byte[] writablePage(int page) {
+        if (shared[page]) {
+            pages[page] = pages[page].clone();
+            shared[page] = false;
+        }
+        return pages[page];
+    }
+
+    private static IllegalArgumentException invalidIndex(int index) {
+        return new IllegalArgumentException(String.format("Invalid memory index : %d", index));
+    }
+
+    public void addWriteListener(MemoryWriteListener writeListener) {
+        writeListeners = Arrays.copyOf(writeListeners, writeListeners.length + 1);
+        writeListeners[writeListeners.length - 1] = writeListener;
+    }
+
+    public void loadRom(byte[] romData) {
+        for (int i = 0; i < romData.length; i++) {
+            setMemory(i + 512, romData[i] & 0xFF);
+        }
+    }
+
+    int stateSize() {
+        return Integer.BYTES + size;
+    }
+
+    void saveState(ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (byte[] page : pages) {
+            buffer.put(page);
+        }
+    }
+
+    void loadState(ByteBuffer buffer) {
+        int stateSize = buffer.getInt();
+        if (stateSize != size) {
+            throw new IllegalArgumentException(String.format("Memory size mismatch: %d != %d", stateSize, size));
+        }
+        for (int page = 0; page < pages.length; page++) {
+            if (shared[page]) {
+                pages[page] = new byte[PAGE_SIZE];
+                shared[page] = false;
+            }
+            buffer.get(pages[page]);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.chip8.chip8.system;
+
+@FunctionalInterface
+public interface MemoryWriteListener {
+    void onWrite(int index);
+}
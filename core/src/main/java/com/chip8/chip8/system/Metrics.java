@@ -0,0 +1,272 @@
+package com.chip8.chip8.system;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Runtime counters for the emulator, readable through this class or over JMX once registered.
+// Everything on the recording side is allocation-free. Opcode family counts are kept in plain
+// arrays owned by each machine (see newOpcodeCounter) and summed when read; a released array's
+// counts are folded into running totals.
+public class Metrics implements MetricsMXBean {
+    private static final Logger log = Logger.getLogger(Metrics.class.getName());
+
+    public static final String OBJECT_NAME = "com.chip8.chip8:type=Metrics";
+    public static final int OPCODE_FAMILIES = 16;
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Rate over at least RATE_WINDOW_NANOS, so frequent polling doesn't turn into noise
+    private static final class Rate {
+        private final LongAdder counter;
+        private long windowStart;
+        private long windowCount;
+        private double rate;
+
+        private Rate(LongAdder counter) {
+            this.counter = counter;
+            windowStart = System.nanoTime();
+        }
+
+        private synchronized double get() {
+            long now = System.nanoTime();
+            long elapsed = now - windowStart;
+            if (elapsed >= RATE_WINDOW_NANOS) {
+                long count = counter.sum();
+                rate = (count - windowCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                windowStart = now;
+                windowCount = count;
+            }
+            return rate;
+        }
+
+        private synchronized void reset() {
+            windowStart = System.nanoTime();
+            windowCount = 0;
+            rate = 0;
+        }
+    }
+
+    private final LongAdder instructions;
+    private final LongAdder emulatedFrames;
+    private final LongAdder renderedFrames;
+    private final LongAdder skippedCycles;
+    private final Rate instructionRate;
+    private final Rate emulatedFrameRate;
+    private final Rate renderedFrameRate;
+    private final Histogram schedulerLateness;
+    private final Histogram renderFrameTime;
+    private final List<long[]> opcodeCounters;
+    private final AtomicLongArray releasedOpcodeCounts;
+
+    public Metrics() {
+        instructions = new LongAdder();
+        emulatedFrames = new LongAdder();
+        renderedFrames = new LongAdder();
+        skippedCycles = new LongAdder();
+        instructionRate = new Rate(instructions);
+        emulatedFrameRate = new Rate(emulatedFrames);
+        renderedFrameRate = new Rate(renderedFrames);
+        schedulerLateness = new Histogram();
+        renderFrameTime = new Histogram();
+        opcodeCounters = new CopyOnWriteArrayList<>();
+        releasedOpcodeCounts = new AtomicLongArray(OPCODE_FAMILIES);
+    }
+
+    public boolean register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException e) {
+            log.warning("Unable to register metrics MBean: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Returns an array indexed by the top nibble of the instruction. It must only be written by the
+    // thread running the machine it was handed to.
+    long[] newOpcodeCounter() {
+        long[] counter = new long[OPCODE_FAMILIES];
+        opcodeCounters.add(counter);
+        return counter;
+    }
+
+    // Stops tracking a counter from newOpcodeCounter(), keeping what it counted in the totals. Call
+    // from the thread that wrote it, once it no longer will.
+    void releaseOpcodeCounter(long[] counter) {
+        if (opcodeCounters.remove(counter)) {
+            for (int family = 0; family < OPCODE_FAMILIES; family++) {
+                releasedOpcodeCounts.addAndGet(family, counter[family]);
+            }
+        }
+    }
+
+    int getOpcodeCounterCount() {
+        return opcodeCounters.size();
+    }
+
+    public void recordFrame(int instructionCount) {
+        instructions.add(instructionCount);
+        emulatedFrames.increment();
+    }
+
+    // Instructions of idle loops that were skipped instead of executed
+    public void recordSkippedCycles(long count) {
+        skippedCycles.add(count);
+    }
+
+    public void recordSchedulerLateness(long nanos) {
+        schedulerLateness.record(nanos);
+    }
+
+    public void recordRenderFrameTime(long nanos) {
+        renderFrameTime.record(nanos);
+    }
+
+    public void recordRenderedFrame() {
+        renderedFrames.increment();
+    }
+
+    public Histogram getSchedulerLateness() {
+        return schedulerLateness;
+    }
+
+    public Histogram getRenderFrameTime() {
+        return renderFrameTime;
+    }
+
+    public long getOpcodeFamilyCount(int family) {
+        long count = releasedOpcodeCounts.get(family);
+        for (long[] counter : opcodeCounters) {
+            count += counter[family];
+        }
+        return count;
+    }
+
+    @Override
+    public long getInstructionCount() {
+        return instructions.sum();
+    }
+
+    @Override
+    public long getEmulatedFrameCount() {
+        return emulatedFrames.sum();
+    }
+
+    @Override
+    public long getRenderedFrameCount() {
+        return renderedFrames.sum();
+    }
+
+    @Override
+    public long getSkippedCycleCount() {
+        return skippedCycles.sum();
+    }
+
+    @Override
+    public double getInstructionsPerSecond() {
+        return instructionRate.get();
+    }
+
+    @Override
+    public double getEmulatedFramesPerSecond() {
+        return emulatedFrameRate.get();
+    }
+
+    @Override
+    public double getRenderedFramesPerSecond() {
+        return renderedFrameRate.get();
+    }
+
+    @Override
+    public double getSchedulerLatenessMeanNanos() {
+        return schedulerLateness.getMean();
+    }
+
+    @Override
+    public long getSchedulerLatenessP50Nanos() {
+        return schedulerLateness.getPercentile(50);
+    }
+
+    @Override
+    public long getSchedulerLatenessP99Nanos() {
+        return schedulerLateness.getPercentile(99);
+    }
+
+    @Override
+    public long getSchedulerLatenessMaxNanos() {
+        return schedulerLateness.getMax();
+    }
+
+    @Override
+    public long[] getSchedulerLatenessBuckets() {
+        return schedulerLateness.getBuckets();
+    }
+
+    @Override
+    public double getRenderFrameTimeMeanNanos() {
+        return renderFrameTime.getMean();
+    }
+
+    @Override
+    public long getRenderFrameTimeP50Nanos() {
+        return renderFrameTime.getPercentile(50);
+    }
+
+    @Override
+    public long getRenderFrameTimeP99Nanos() {
+        return renderFrameTime.getPercentile(99);
+    }
+
+    @Override
+    public long getRenderFrameTimeMaxNanos() {
+        return renderFrameTime.getMax();
+    }
+
+    @Override
+    public long[] getRenderFrameTimeBuckets() {
+        return renderFrameTime.getBuckets();
+    }
+
+    @Override
+    public Map<String, Long> getOpcodeFamilyCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int family = 0; family < OPCODE_FAMILIES; family++) {
+            counts.put(String.format("%Xxxx", family), getOpcodeFamilyCount(family));
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        instructions.reset();
+        emulatedFrames.reset();
+        renderedFrames.reset();
+        skippedCycles.reset();
+        instructionRate.reset();
+        emulatedFrameRate.reset();
+        renderedFrameRate.reset();
+        schedulerLateness.reset();
+        renderFrameTime.reset();
+        for (long[] counter : opcodeCounters) {
+            Arrays.fill(counter, 0);
+        }
+        for (int family = 0; family < OPCODE_FAMILIES; family++) {
+            releasedOpcodeCounts.set(family, 0);
+        }
+    }
+}
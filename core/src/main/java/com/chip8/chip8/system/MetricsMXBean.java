@@ -0,0 +1,43 @@
+package com.chip8.chip8.system;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+    long getInstructionCount();
+
+    long getEmulatedFrameCount();
+
+    long getRenderedFrameCount();
+
+    long getSkippedCycleCount();
+
+    double getInstructionsPerSecond();
+
+    double getEmulatedFramesPerSecond();
+
+    double getRenderedFramesPerSecond();
+
+    double getSchedulerLatenessMeanNanos();
+
+    long getSchedulerLatenessP50Nanos();
+
+    long getSchedulerLatenessP99Nanos();
+
+    long getSchedulerLatenessMaxNanos();
+
+    long[] getSchedulerLatenessBuckets();
+
+    double getRenderFrameTimeMeanNanos();
+
+    long getRenderFrameTimeP50Nanos();
+
+    long getRenderFrameTimeP99Nanos();
+
+    long getRenderFrameTimeMaxNanos();
+
+    long[] getRenderFrameTimeBuckets();
+
+    Map<String, Long> getOpcodeFamilyCounts();
+
+    void reset();
+}
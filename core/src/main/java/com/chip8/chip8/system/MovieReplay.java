@@ -0,0 +1,86 @@
+package com.chip8.chip8.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Plays an InputMovie back from reset as fast as the machine runs, with no pacing or rendering.
+// The state checksum at the end can be compared between builds as a regression check.
+public class MovieReplay {
+    private final Chip8 chip8;
+    private final InputMovie movie;
+    private long elapsedNanos;
+
+    public MovieReplay(ROM rom, InputMovie movie) {
+        if (InputMovie.checksum(rom) != movie.getRomChecksum()) {
+            throw new IllegalArgumentException("Movie was recorded with a different ROM");
+        }
+        this.movie = movie;
+        chip8 = new Chip8();
+        chip8.setRom(rom);
+        chip8.setRewindSeconds(0);
+        chip8.setProfile(movie.getProfile());
+        chip8.setQuirks(movie.getQuirks());
+        chip8.reset(movie.getSeed());
+        chip8.setInstructionsPerFrame(movie.getInstructionsPerFrame());
+    }
+
+    public Chip8 getChip8() {
+        return chip8;
+    }
+
+    public void run() {
+        long start = System.nanoTime();
+        int event = 0;
+
+        for (long frame = 0; frame < movie.getLength(); frame++) {
+            if (event < movie.getEventCount() && movie.getEventFrame(event) == frame) {
+                chip8.getInput().setKeyMask(movie.getEventMask(event++));
+            }
+            chip8.runFrame();
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getStateChecksum() {
+        ByteBuffer state = ByteBuffer.allocate(chip8.getStateSize());
+        chip8.saveState(state);
+        CRC32 crc = new CRC32();
+        crc.update(state.array(), 0, state.position());
+        return crc.getValue();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MovieReplay <rom> <movie> [INTERPRETER|TIERED] [audio.wav]");
+            System.exit(2);
+        }
+
+        MovieReplay replay = new MovieReplay(new ROM(args[0]), InputMovie.load(Path.of(args[1])));
+        if (args.length > 2) {
+            replay.getChip8().setExecutionMode(ExecutionMode.valueOf(args[2]));
+        }
+        AudioOutput audio = null;
+        if (args.length > 3) {
+            audio = new AudioOutput(new WavAudioSink(Path.of(args[3])));
+            replay.getChip8().setAudioOutput(audio);
+        }
+        replay.run();
+        if (audio != null) {
+            audio.close();
+        }
+
+        long frames = replay.movie.getLength();
+        double seconds = replay.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d frames (%.1f s of gameplay) in %.3f s, %.0fx real time%n", frames,
+                frames / (double) EmulationLoop.FRAME_RATE, seconds, frames / (double) EmulationLoop.FRAME_RATE / seconds);
+        System.out.printf("State checksum: %08x%n", replay.getStateChecksum());
+    }
+}
@@ -0,0 +1,33 @@
+package com.chip8.chip8.system;
+
+// Discards all samples. Used for headless runs and when no audio device is available.
+public class NullAudioSink implements AudioSink {
+    private long samplesWritten;
+
+    @Override
+    public void open(int sampleRate) {
+    }
+
+    @Override
+    public void write(byte[] samples, int length) {
+        samplesWritten += length / Short.BYTES;
+    }
+
+    public long getSamplesWritten() {
+        return samplesWritten;
+    }
+
+    @Override
+    public boolean isDrained() {
+        return false;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,55 @@
+package com.chip8.chip8.system;
+
+public enum Opcode {
+    CLS,
+    RET,
+    JP,
+    CALL,
+    SE_VX_NN,
+    SNE_VX_NN,
+    SE_VX_VY,
+    LD_VX_NN,
+    ADD_VX_NN,
+    LD_VX_VY,
+    OR_VX_VY,
+    AND_VX_VY,
+    XOR_VX_VY,
+    ADD_VX_VY,
+    SUB_VX_VY,
+    SHR_VX,
+    SUBN_VX_VY,
+    SHL_VX,
+    SNE_VX_VY,
+    LD_I_NNN,
+    JP_V0_NNN,
+    RND_VX_NN,
+    DRW,
+    SKP_VX,
+    SKNP_VX,
+    LD_VX_DT,
+    LD_VX_K,
+    LD_DT_VX,
+    LD_ST_VX,
+    ADD_I_VX,
+    LD_F_VX,
+    LD_B_VX,
+    LD_I_VX,
+    LD_VX_I,
+    SCD_N,
+    SCU_N,
+    SCR,
+    SCL,
+    EXIT,
+    LOW,
+    HIGH,
+    SAVE_VX_VY,
+    LOAD_VX_VY,
+    LD_I_LONG,
+    PLANE,
+    LD_AUDIO,
+    LD_HF_VX,
+    LD_R_VX,
+    LD_VX_R,
+    LD_PITCH_VX,
+    UNKNOWN
+}
@@ -0,0 +1,150 @@
+package com.chip8.chip8.system;
+
+import java.util.Random;
+
+// Straight-line instruction semantics shared by the interpreter and compiled blocks.
+// None of these touch the program counter. Registers are read as unsigned bytes, and VF is written
+// after Vx so the flag survives when x is F.
+final class Operations {
+
+    private Operations() {
+    }
+
+    static void cls(Memory memory) {
+        memory.getVideoMemory().clear();
+        memory.getVideoMemory().setFullUpdateFlag(true);
+    }
+
+    static void ldVxNn(CPU cpu, int x, int nn) {
+        cpu.setV(x, (byte) nn);
+    }
+
+    static void addVxNn(CPU cpu, int x, int nn) {
+        cpu.setV(x, (byte) (cpu.getV(x) + nn));
+    }
+
+    static void ldVxVy(CPU cpu, int x, int y) {
+        cpu.setV(x, cpu.getV(y));
+    }
+
+    static void orVxVy(CPU cpu, int x, int y) {
+        cpu.setV(x, (byte) (cpu.getV(x) | cpu.getV(y)));
+    }
+
+    static void andVxVy(CPU cpu, int x, int y) {
+        cpu.setV(x, (byte) (cpu.getV(x) & cpu.getV(y)));
+    }
+
+    static void xorVxVy(CPU cpu, int x, int y) {
+        cpu.setV(x, (byte) (cpu.getV(x) ^ cpu.getV(y)));
+    }
+
+    // Quirks.VF_RESET versions of the three above
+    static void orVxVyResetVf(CPU cpu, int x, int y) {
+        orVxVy(cpu, x, y);
+        cpu.setV(0xF, (byte) 0);
+    }
+
+    static void andVxVyResetVf(CPU cpu, int x, int y) {
+        andVxVy(cpu, x, y);
+        cpu.setV(0xF, (byte) 0);
+    }
+
+    static void xorVxVyResetVf(CPU cpu, int x, int y) {
+        xorVxVy(cpu, x, y);
+        cpu.setV(0xF, (byte) 0);
+    }
+
+    static void addVxVy(CPU cpu, int x, int y) {
+        int sum = (cpu.getV(x) & 0xFF) + (cpu.getV(y) & 0xFF);
+        cpu.setV(x, (byte) sum);
+        cpu.setV(0xF, (byte) (sum >>> 8));
+    }
+
+    // VF is 1 when there is no borrow, including when the operands are equal
+    static void subVxVy(CPU cpu, int x, int y) {
+        int vx = cpu.getV(x) & 0xFF;
+        int vy = cpu.getV(y) & 0xFF;
+        cpu.setV(x, (byte) (vx - vy));
+        cpu.setV(0xF, (byte) (vx >= vy ? 1 : 0));
+    }
+
+    static void shrVx(CPU cpu, int x) {
+        int vx = cpu.getV(x) & 0xFF;
+        cpu.setV(x, (byte) (vx >>> 1));
+        cpu.setV(0xF, (byte) (vx & 0x1));
+    }
+
+    static void subnVxVy(CPU cpu, int x, int y) {
+        int vx = cpu.getV(x) & 0xFF;
+        int vy = cpu.getV(y) & 0xFF;
+        cpu.setV(x, (byte) (vy - vx));
+        cpu.setV(0xF, (byte) (vy >= vx ? 1 : 0));
+    }
+
+    static void shlVx(CPU cpu, int x) {
+        int vx = cpu.getV(x) & 0xFF;
+        cpu.setV(x, (byte) (vx << 1));
+        cpu.setV(0xF, (byte) (vx >>> 7));
+    }
+
+    // Quirks.SHIFT_VY versions of 8XY6 and 8XYE
+    static void shrVxVy(CPU cpu, int x, int y) {
+        int vy = cpu.getV(y) & 0xFF;
+        cpu.setV(x, (byte) (vy >>> 1));
+        cpu.setV(0xF, (byte) (vy & 0x1));
+    }
+
+    static void shlVxVy(CPU cpu, int x, int y) {
+        int vy = cpu.getV(y) & 0xFF;
+        cpu.setV(x, (byte) (vy << 1));
+        cpu.setV(0xF, (byte) (vy >>> 7));
+    }
+
+    static void ldINnn(CPU cpu, int nnn) {
+        cpu.setI((short) nnn);
+    }
+
+    static void rndVxNn(CPU cpu, Random random, int x, int nn) {
+        cpu.setV(x, (byte) (random.nextInt(256) & nn));
+    }
+
+    static void ldVxDt(CPU cpu, int x) {
+        cpu.setV(x, cpu.getDT());
+    }
+
+    static void ldDtVx(CPU cpu, int x) {
+        cpu.setDT(cpu.getV(x));
+    }
+
+    static void ldStVx(CPU cpu, int x) {
+        cpu.setST(cpu.getV(x));
+    }
+
+    static void addIVx(CPU cpu, int x) {
+        int sum = (cpu.getI() & 0xFFFF) + (cpu.getV(x) & 0xFF);
+
+        cpu.setI((short) sum);
+        cpu.setV(0xF, (byte) (sum > 0xFFF ? 1 : 0));
+    }
+
+    static void ldFVx(CPU cpu, int x) {
+        cpu.setI((short) ((cpu.getV(x) & 0xF) * 5));
+    }
+
+    static void ldVxI(CPU cpu, Memory memory, int x) {
+        for (int i = 0; i <= x; i++) {
+            cpu.setV(i, (byte) memory.getMemory((cpu.getI() & 0xFFFF) + i));
+        }
+    }
+
+    // Quirks.LOAD_STORE_INCREMENT_I version of FX65
+    static void ldVxIIncrement(CPU cpu, Memory memory, int x) {
+        ldVxI(cpu, memory, x);
+        cpu.setI((short) (cpu.getI() + x + 1));
+    }
+
+    static void jump(CPU cpu, int address) {
+        cpu.setPC((short) address);
+    }
+}
@@ -0,0 +1,22 @@
+package com.chip8.chip8.system;
+
+// Bit flags for behaviours that differ between CHIP-8 implementations, for ROMs written against
+// one of them. With no flags set the machine behaves as ReferenceMachine describes.
+public final class Quirks {
+    // 8XY6 and 8XYE shift Vy into Vx, as on the COSMAC VIP
+    public static final int SHIFT_VY = 1;
+    // 8XY1, 8XY2 and 8XY3 clear VF, as on the COSMAC VIP
+    public static final int VF_RESET = 1 << 1;
+    // FX55 and FX65 leave I pointing past the last register stored or loaded, as on the COSMAC VIP
+    public static final int LOAD_STORE_INCREMENT_I = 1 << 2;
+    // BXNN jumps to XNN + Vx instead of NNN + V0, as on SUPER-CHIP
+    public static final int JUMP_VX = 1 << 3;
+    public static final int ALL = SHIFT_VY | VF_RESET | LOAD_STORE_INCREMENT_I | JUMP_VX;
+
+    private Quirks() {
+    }
+
+    public static boolean has(int quirks, int quirk) {
+        return (quirks & quirk) != 0;
+    }
+}
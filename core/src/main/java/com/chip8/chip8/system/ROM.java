@@ -9,6 +9,10 @@ public class ROM {
         romData = RomUtils.readRomFromFile(filePath);
     }
 
+    public ROM(byte[] romData) {
+        this.romData = romData;
+    }
+
     public byte[] getRomData() {
         return romData;
     }
@@ -0,0 +1,226 @@
+package com.chip8.chip8.system;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// A plain CHIP-8 used as the oracle by ConformanceHarness. Every instruction is written out from the
+// spec on ints, one case per opcode, and nothing is shared with the real machine except the font.
+// It follows the quirks this emulator settled on:
+// - 8XY6 and 8XYE shift Vx in place, and 8XY1-8XY3 leave VF alone
+// - FX55 and FX65 leave I unchanged, and FX1E sets VF when I passes 0xFFF
+// - CALL with a full stack, RET with an empty one, unknown opcodes and FX0A stall on the same PC
+// - 5XYN and 9XYN compare registers whatever N is
+// Reads and writes outside memory throw, as they do on the real machine.
+final class ReferenceMachine {
+    static final int MEMORY_SIZE = 4096;
+    static final int WIDTH = 64;
+    static final int HEIGHT = 32;
+
+    final int[] v = new int[16];
+    final int[] stack = new int[16];
+    final int[] memory = new int[MEMORY_SIZE];
+    // Pixel (x, y) is at y * WIDTH + x
+    final boolean[] screen = new boolean[WIDTH * HEIGHT];
+    int pc;
+    int i;
+    int sp;
+    int dt;
+    int st;
+    int keys;
+    long seed;
+    Random random;
+
+    ReferenceMachine() {
+        System.arraycopy(Chip8.FONT, 0, memory, 0, Chip8.FONT.length);
+    }
+
+    // Copies the state, with a fresh generator from the same seed
+    ReferenceMachine copy() {
+        ReferenceMachine copy = new ReferenceMachine();
+        System.arraycopy(v, 0, copy.v, 0, v.length);
+        System.arraycopy(stack, 0, copy.stack, 0, stack.length);
+        System.arraycopy(memory, 0, copy.memory, 0, memory.length);
+        System.arraycopy(screen, 0, copy.screen, 0, screen.length);
+        copy.pc = pc;
+        copy.i = i;
+        copy.sp = sp;
+        copy.dt = dt;
+        copy.st = st;
+        copy.keys = keys;
+        copy.seed = seed;
+        return copy;
+    }
+
+    void start() {
+        random = new Random(seed);
+    }
+
+    // Runs up to count instructions, stopping early at FX0A
+    void run(int count) {
+        for (int n = 0; n < count; n++) {
+            if (!step()) {
+                return;
+            }
+        }
+    }
+
+    // Returns false when the instruction is waiting for a key
+    boolean step() {
+        int opcode = memory[pc] << 8 | memory[pc + 1];
+        int x = (opcode >> 8) & 0xF;
+        int y = (opcode >> 4) & 0xF;
+        int n = opcode & 0xF;
+        int nn = opcode & 0xFF;
+        int nnn = opcode & 0xFFF;
+
+        switch (opcode >> 12) {
+            case 0x0 -> {
+                if (opcode == 0x00E0) {
+                    Arrays.fill(screen, false);
+                    pc += 2;
+                } else if (opcode == 0x00EE) {
+                    if (sp > 0) {
+                        pc = stack[sp] + 2;
+                        sp--;
+                    }
+                }
+            }
+            case 0x1 -> pc = nnn;
+            case 0x2 -> {
+                if (sp < 15) {
+                    sp++;
+                    stack[sp] = pc;
+                    pc = nnn;
+                }
+            }
+            case 0x3 -> pc += v[x] == nn ? 4 : 2;
+            case 0x4 -> pc += v[x] != nn ? 4 : 2;
+            case 0x5 -> pc += v[x] == v[y] ? 4 : 2;
+            case 0x6 -> {
+                v[x] = nn;
+                pc += 2;
+            }
+            case 0x7 -> {
+                v[x] = (v[x] + nn) & 0xFF;
+                pc += 2;
+            }
+            case 0x8 -> {
+                int vx = v[x];
+                int vy = v[y];
+                switch (n) {
+                    case 0x0 -> v[x] = vy;
+                    case 0x1 -> v[x] = vx | vy;
+                    case 0x2 -> v[x] = vx & vy;
+                    case 0x3 -> v[x] = vx ^ vy;
+                    case 0x4 -> {
+                        v[x] = (vx + vy) & 0xFF;
+                        v[0xF] = vx + vy > 0xFF ? 1 : 0;
+                    }
+                    case 0x5 -> {
+                        v[x] = (vx - vy) & 0xFF;
+                        v[0xF] = vx >= vy ? 1 : 0;
+                    }
+                    case 0x6 -> {
+                        v[x] = vx >> 1;
+                        v[0xF] = vx & 1;
+                    }
+                    case 0x7 -> {
+                        v[x] = (vy - vx) & 0xFF;
+                        v[0xF] = vy >= vx ? 1 : 0;
+                    }
+                    case 0xE -> {
+                        v[x] = (vx << 1) & 0xFF;
+                        v[0xF] = vx >> 7;
+                    }
+                    default -> {
+                        return true;
+                    }
+                }
+                pc += 2;
+            }
+            case 0x9 -> pc += v[x] != v[y] ? 4 : 2;
+            case 0xA -> {
+                i = nnn;
+                pc += 2;
+            }
+            case 0xB -> pc = (nnn + v[0]) & 0xFFF;
+            case 0xC -> {
+                v[x] = random.nextInt(256) & nn;
+                pc += 2;
+            }
+            case 0xD -> {
+                int left = v[x] % WIDTH;
+                int top = v[y] % HEIGHT;
+                boolean collision = false;
+                for (int row = 0; row < n; row++) {
+                    int bits = memory[i + row];
+                    for (int col = 0; col < 8; col++) {
+                        int px = left + col;
+                        int py = top + row;
+                        if ((bits & (0x80 >> col)) != 0 && px < WIDTH && py < HEIGHT) {
+                            collision |= screen[py * WIDTH + px];
+                            screen[py * WIDTH + px] = !screen[py * WIDTH + px];
+                        }
+                    }
+                }
+                v[0xF] = collision ? 1 : 0;
+                pc += 2;
+            }
+            case 0xE -> {
+                boolean pressed = (keys & (1 << (v[x] & 0xF))) != 0;
+                if (nn == 0x9E) {
+                    pc += pressed ? 4 : 2;
+                } else if (nn == 0xA1) {
+                    pc += pressed ? 2 : 4;
+                }
+            }
+            case 0xF -> {
+                switch (nn) {
+                    case 0x07 -> v[x] = dt;
+                    case 0x0A -> {
+                        return false;
+                    }
+                    case 0x15 -> dt = v[x];
+                    case 0x18 -> st = v[x];
+                    case 0x1E -> {
+                        int sum = i + v[x];
+                        i = sum & 0xFFFF;
+                        v[0xF] = sum > 0xFFF ? 1 : 0;
+                    }
+                    case 0x29 -> i = (v[x] & 0xF) * 5;
+                    case 0x33 -> {
+                        memory[i] = v[x] / 100;
+                        memory[i + 1] = v[x] / 10 % 10;
+                        memory[i + 2] = v[x] % 10;
+                    }
+                    case 0x55 -> {
+                        for (int r = 0; r <= x; r++) {
+                            memory[i + r] = v[r];
+                        }
+                    }
+                    case 0x65 -> {
+                        for (int r = 0; r <= x; r++) {
+                            v[r] = memory[i + r];
+                        }
+                    }
+                    default -> {
+                        return true;
+                    }
+                }
+                pc += 2;
+            }
+        }
+        return true;
+    }
+
+    // The row as VideoMemory stores it, with the leftmost pixel in the top bit
+    long rowWord(int y) {
+        long word = 0;
+        for (int x = 0; x < WIDTH; x++) {
+            if (screen[y * WIDTH + x]) {
+                word |= 1L << (63 - x);
+            }
+        }
+        return word;
+    }
+}
@@ -0,0 +1,209 @@
+package com.chip8.chip8.system;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Fixed-capacity history of per-frame machine states. Frames are grouped into segments of
+// KEYFRAME_INTERVAL frames: the first frame of a segment is stored in full, and every later frame is
+// stored as the XOR against that keyframe with runs of zero bytes collapsed, which is usually a few
+// dozen bytes. The oldest segment is recycled once the capacity is reached, so recording does not
+// allocate once every segment's delta storage has grown to its working size.
+public class RewindBuffer {
+    public static final int DEFAULT_SECONDS = 60;
+    public static final int KEYFRAME_INTERVAL = 60;
+
+    private static final class Segment {
+        private final byte[] keyframe;
+        private final int[] deltaEnds;
+        private byte[] deltas;
+        private int frameCount;
+
+        private Segment(int stateSize) {
+            keyframe = new byte[stateSize];
+            deltaEnds = new int[KEYFRAME_INTERVAL];
+            deltas = new byte[256];
+        }
+    }
+
+    private final int capacitySeconds;
+    private final int stateSize;
+    private final Segment[] segments;
+    private final byte[] current;
+    private final ByteBuffer currentBuffer;
+    private int newestSegment;
+    private int segmentCount;
+
+    public RewindBuffer(int capacitySeconds, int stateSize) {
+        if (capacitySeconds <= 0) {
+            throw new IllegalArgumentException("Invalid rewind capacity: " + capacitySeconds);
+        }
+        this.capacitySeconds = capacitySeconds;
+        this.stateSize = stateSize;
+        int capacityFrames = capacitySeconds * EmulationLoop.FRAME_RATE;
+        segments = new Segment[(capacityFrames + KEYFRAME_INTERVAL - 1) / KEYFRAME_INTERVAL + 1];
+        current = new byte[stateSize];
+        currentBuffer = ByteBuffer.wrap(current);
+        newestSegment = -1;
+        segmentCount = 0;
+    }
+
+    public int getCapacitySeconds() {
+        return capacitySeconds;
+    }
+
+    public int getStateSize() {
+        return stateSize;
+    }
+
+    public void clear() {
+        newestSegment = -1;
+        segmentCount = 0;
+    }
+
+    public void record(Chip8 chip8) {
+        currentBuffer.clear();
+        chip8.saveState(currentBuffer);
+
+        Segment segment = segmentCount == 0 ? null : segments[newestSegment];
+        if (segment == null || segment.frameCount == KEYFRAME_INTERVAL) {
+            segment = startSegment();
+            System.arraycopy(current, 0, segment.keyframe, 0, stateSize);
+            segment.frameCount = 1;
+            return;
+        }
+
+        int start = segment.frameCount == 1 ? 0 : segment.deltaEnds[segment.frameCount - 1];
+        segment.deltaEnds[segment.frameCount] = encodeDelta(segment, start);
+        segment.frameCount++;
+    }
+
+    // Drops the newest frame and restores the one before it. Returns false when there is nothing
+    // older to go back to.
+    public boolean stepBack(Chip8 chip8) {
+        if (getRecordedFrames() < 2) {
+            return false;
+        }
+
+        Segment segment = segments[newestSegment];
+        if (--segment.frameCount == 0) {
+            newestSegment = (newestSegment + segments.length - 1) % segments.length;
+            segmentCount--;
+            segment = segments[newestSegment];
+        }
+
+        int frame = segment.frameCount - 1;
+        System.arraycopy(segment.keyframe, 0, current, 0, stateSize);
+        if (frame > 0) {
+            decodeDelta(segment, frame == 1 ? 0 : segment.deltaEnds[frame - 1], segment.deltaEnds[frame]);
+        }
+
+        currentBuffer.clear();
+        chip8.loadState(currentBuffer);
+        return true;
+    }
+
+    public int getRecordedFrames() {
+        if (segmentCount == 0) {
+            return 0;
+        }
+        return (segmentCount - 1) * KEYFRAME_INTERVAL + segments[newestSegment].frameCount;
+    }
+
+    public long getMemoryUsage() {
+        long bytes = current.length;
+        for (Segment segment : segments) {
+            if (segment != null) {
+                bytes += segment.keyframe.length + segment.deltas.length + (long) segment.deltaEnds.length * Integer.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private Segment startSegment() {
+        newestSegment = (newestSegment + 1) % segments.length;
+        if (segments[newestSegment] == null) {
+            segments[newestSegment] = new Segment(stateSize);
+        }
+        if (segmentCount < segments.length) {
+            segmentCount++;
+        }
+        return segments[newestSegment];
+    }
+
+    // Delta encoding: repeated (zero run, literal length, literal XOR bytes), lengths as varints.
+    // Trailing zeros are omitted.
+    private int encodeDelta(Segment segment, int position) {
+        byte[] keyframe = segment.keyframe;
+        int i = 0;
+
+        while (i < stateSize) {
+            int zeros = i;
+            while (i < stateSize && current[i] == keyframe[i]) {
+                i++;
+            }
+            if (i == stateSize) {
+                break;
+            }
+            zeros = i - zeros;
+
+            int literals = i;
+            while (i < stateSize && current[i] != keyframe[i]) {
+                i++;
+            }
+            literals = i - literals;
+
+            ensureCapacity(segment, position + 10 + literals);
+            position = writeVarint(segment.deltas, position, zeros);
+            position = writeVarint(segment.deltas, position, literals);
+            for (int j = i - literals; j < i; j++) {
+                segment.deltas[position++] = (byte) (current[j] ^ keyframe[j]);
+            }
+        }
+
+        return position;
+    }
+
+    private void decodeDelta(Segment segment, int position, int end) {
+        byte[] deltas = segment.deltas;
+        int i = 0;
+
+        while (position < end) {
+            int zeros = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = deltas[position++];
+                zeros |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int literals = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = deltas[position++];
+                literals |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+
+            i += zeros;
+            for (int j = 0; j < literals; j++, i++) {
+                current[i] ^= deltas[position++];
+            }
+        }
+    }
+
+    private static void ensureCapacity(Segment segment, int size) {
+        if (segment.deltas.length < size) {
+            segment.deltas = Arrays.copyOf(segment.deltas, Math.max(size, segment.deltas.length * 2));
+        }
+    }
+
+    private static int writeVarint(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+}
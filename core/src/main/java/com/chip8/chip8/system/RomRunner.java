@@ -0,0 +1,120 @@
+package com.chip8.chip8.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Runs a ROM headless for a fixed number of frames or cycles and prints a hash of the framebuffer.
+// Only core classes are loaded, so start-up is a plain JVM launch with no toolkit or logging initialisation.
+public class RomRunner {
+    public static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Chip8 chip8;
+    private long elapsedNanos;
+
+    public RomRunner(ROM rom, MachineProfile profile, long seed) {
+        chip8 = new Chip8();
+        chip8.setRom(rom);
+        chip8.setRewindSeconds(0);
+        chip8.setProfile(profile);
+        chip8.reset(seed);
+    }
+
+    public Chip8 getChip8() {
+        return chip8;
+    }
+
+    public void runFrames(long frames) {
+        long start = System.nanoTime();
+        for (long frame = 0; frame < frames; frame++) {
+            chip8.runFrame();
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    // Whole frames keep the timers ticking as they would in the UI, the remainder runs without a tick
+    public void runCycles(long cycles) {
+        long start = System.nanoTime();
+        int perFrame = chip8.getInstructionsPerFrame();
+        for (long frame = cycles / perFrame; frame > 0; frame--) {
+            chip8.runFrame();
+        }
+        chip8.runInstructions((int) (cycles % perFrame));
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getFramebufferHash() {
+        return hash(chip8.getMemory().getVideoMemory());
+    }
+
+    // 64-bit FNV-1a over the visible words of every plane, so resolution changes are part of the hash
+    public static long hash(VideoMemory videoMemory) {
+        long hash = FNV_OFFSET;
+        for (int plane = 0; plane < videoMemory.getPlanes(); plane++) {
+            for (int y = 0; y < videoMemory.getHeight(); y++) {
+                for (int word = 0; word < videoMemory.getWordsPerRow(); word++) {
+                    long bits = videoMemory.getRowWord(plane, y, word);
+                    for (int i = 0; i < Long.BYTES; i++) {
+                        hash = (hash ^ (bits >>> (i * 8) & 0xFF)) * FNV_PRIME;
+                    }
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long mainStart = System.nanoTime();
+        if (args.length < 1) {
+            System.err.println("Usage: RomRunner <rom> [--frames N | --cycles N] [--mode INTERPRETER|TIERED] "
+                    + "[--machine CHIP8|SCHIP|XOCHIP] [--seed N]");
+            System.exit(2);
+        }
+
+        long frames = EmulationLoop.FRAME_RATE * 10L;
+        long cycles = -1;
+        ExecutionMode mode = ExecutionMode.TIERED;
+        MachineProfile profile = MachineProfile.CHIP8;
+        long seed = 0;
+        for (int i = 1; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            switch (args[i++]) {
+                case "--frames" -> frames = Long.parseLong(value);
+                case "--cycles" -> cycles = Long.parseLong(value);
+                case "--mode" -> mode = ExecutionMode.valueOf(value);
+                case "--machine" -> profile = MachineProfile.valueOf(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        // Read the file directly rather than through RomUtils so a headless run never pulls in java.util.logging
+        RomRunner runner = new RomRunner(new ROM(Files.readAllBytes(Path.of(args[0]))), profile, seed);
+        runner.getChip8().setExecutionMode(mode);
+        long setupNanos = System.nanoTime() - mainStart;
+        if (cycles >= 0) {
+            runner.runCycles(cycles);
+        } else {
+            runner.runFrames(frames);
+        }
+
+        Chip8 chip8 = runner.getChip8();
+        double seconds = runner.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d frames, %d skipped cycles in %.3f s%n", chip8.getFrameCount(), chip8.getSkippedCycles(), seconds);
+        System.out.printf("Set-up to first instruction: %.1f ms%n", setupNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        System.out.printf("Framebuffer hash: %016x%n", runner.getFramebufferHash());
+    }
+}
@@ -0,0 +1,36 @@
+package com.chip8.chip8.system;
+
+public final class TraceFilter {
+    private static final TraceFilter ALL = new TraceFilter(0, Integer.MAX_VALUE, null);
+
+    private final int pcStart;
+    private final int pcEnd;
+    private final Opcode opcode;
+
+    private TraceFilter(int pcStart, int pcEnd, Opcode opcode) {
+        this.pcStart = pcStart;
+        this.pcEnd = pcEnd;
+        this.opcode = opcode;
+    }
+
+    public static TraceFilter all() {
+        return ALL;
+    }
+
+    // pcStart inclusive, pcEnd exclusive
+    public TraceFilter pcRange(int pcStart, int pcEnd) {
+        if (pcStart < 0 || pcEnd < pcStart) {
+            throw new IllegalArgumentException(String.format("Invalid PC range: 0x%03X-0x%03X", pcStart, pcEnd));
+        }
+        return new TraceFilter(pcStart, pcEnd, opcode);
+    }
+
+    public TraceFilter opcode(Opcode opcode) {
+        return new TraceFilter(pcStart, pcEnd, opcode);
+    }
+
+    // The profile decides what raw means, e.g. 5XY2 is SAVE_VX_VY on XO-CHIP and UNKNOWN elsewhere
+    public boolean matches(int pc, int raw, MachineProfile profile) {
+        return pc >= pcStart && pc < pcEnd && (opcode == null || Instruction.decode(raw, profile).getOpcode() == opcode);
+    }
+}
@@ -0,0 +1,6 @@
+package com.chip8.chip8.system;
+
+public enum TraceOverflowPolicy {
+    DROP,
+    BLOCK
+}
@@ -0,0 +1,148 @@
+package com.chip8.chip8.system;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Streams a file written by TraceRecorder one block at a time, so memory use does not depend on the
+// size of the trace.
+public class TraceReader implements Closeable {
+    private final FileChannel channel;
+    private final Inflater inflater;
+    private final ByteBuffer blockHeader;
+    private final MachineProfile profile;
+    private ByteBuffer compressed;
+    private ByteBuffer records;
+
+    public TraceReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        inflater = new Inflater();
+        blockHeader = ByteBuffer.allocate(TraceRecorder.BLOCK_HEADER_SIZE);
+        compressed = ByteBuffer.allocateDirect(0);
+        records = ByteBuffer.allocateDirect(0);
+
+        ByteBuffer header = ByteBuffer.allocate(TraceRecorder.HEADER_SIZE);
+        try {
+            if (!readFully(header)) {
+                throw new EOFException("Truncated trace header");
+            }
+            if (header.getInt() != TraceRecorder.MAGIC) {
+                throw new IOException("Not a Chip-8 trace: " + path);
+            }
+            short version = header.getShort();
+            if (version != TraceRecorder.VERSION) {
+                throw new IOException("Unsupported trace version: " + version);
+            }
+            int traceProfile = header.get();
+            if (traceProfile < 0 || traceProfile >= MachineProfile.values().length) {
+                throw new IOException("Unknown machine profile: " + traceProfile);
+            }
+            profile = MachineProfile.values()[traceProfile];
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // The profile of the machine that was traced, which the opcodes are decoded for
+    public MachineProfile getProfile() {
+        return profile;
+    }
+
+    // Passes every matching record to the visitor and returns how many matched. The index is the
+    // record's position in the whole trace.
+    public long read(TraceFilter filter, TraceVisitor visitor) throws IOException {
+        long index = 0;
+        long matched = 0;
+
+        while (nextBlock()) {
+            while (records.hasRemaining()) {
+                int pc = records.getShort() & 0xFFFF;
+                int opcode = records.getShort() & 0xFFFF;
+                int i = records.getShort() & 0xFFFF;
+                int written = records.getShort() & 0xFFFF;
+                int vx = records.get() & 0xFF;
+                int vf = records.get() & 0xFF;
+
+                if (filter.matches(pc, opcode, profile)) {
+                    visitor.visit(index, pc, opcode, i, written, vx, vf);
+                    matched++;
+                }
+                index++;
+            }
+        }
+
+        return matched;
+    }
+
+    private boolean nextBlock() throws IOException {
+        blockHeader.clear();
+        if (!readFully(blockHeader)) {
+            return false;
+        }
+        int count = blockHeader.getInt();
+        int length = blockHeader.getInt();
+        if (count < 0 || length < 0 || length > TraceRecorder.compressBound(count * TraceRecorder.RECORD_SIZE)) {
+            throw new IOException(String.format("Corrupt trace block: %d records in %d bytes", count, length));
+        }
+
+        if (compressed.capacity() < length) {
+            compressed = ByteBuffer.allocateDirect(length);
+        }
+        compressed.clear().limit(length);
+        if (!readFully(compressed)) {
+            throw new EOFException("Truncated trace block");
+        }
+
+        int size = count * TraceRecorder.RECORD_SIZE;
+        if (records.capacity() < size) {
+            records = ByteBuffer.allocateDirect(size);
+        }
+        records.clear().limit(size);
+
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            while (records.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(records) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt trace block", e);
+        }
+        if (records.hasRemaining()) {
+            throw new IOException("Corrupt trace block: expected " + count + " records");
+        }
+        records.flip();
+        return true;
+    }
+
+    // Returns false on a clean end of file before anything was read
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        boolean started = false;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (started) {
+                    throw new EOFException("Truncated trace");
+                }
+                return false;
+            }
+            started = true;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,198 @@
+package com.chip8.chip8.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+// Records one fixed-size entry per executed instruction into an off-heap ring buffer. A writer
+// thread drains the ring in chunks, deflates each chunk and appends it to the trace file, so the
+// emulation thread never touches the disk. Only the emulation thread may call record().
+//
+// File layout: magic, version, the machine profile's ordinal (so opcodes decode as they ran), then
+// blocks of (record count, compressed length, deflated records). Each record is PC, raw opcode, I,
+// a mask of the registers the instruction wrote (bit n for Vn, all shorts), then the new values of
+// Vx and VF. The other registers of a range load (FX65, 5XY3, FX85) are whatever it read from
+// memory at I or from the flags.
+public class TraceRecorder implements Closeable {
+    public static final int MAGIC = 0x43385452;
+    public static final short VERSION = 3;
+    public static final int RECORD_SIZE = 10;
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Byte.BYTES;
+    static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int CHUNK_RECORDS = 1 << 14;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final FileChannel channel;
+    private final ByteBuffer ring;
+    private final int mask;
+    private final TraceOverflowPolicy overflowPolicy;
+    private final AtomicLong writeSequence;
+    private final AtomicLong readSequence;
+    private final ByteBuffer chunk;
+    private final ByteBuffer compressed;
+    private final Deflater deflater;
+    private final Thread writer;
+    private long head;
+    private long dropped;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // capacity is the number of records the ring holds and is rounded up to a power of two
+    public TraceRecorder(Path path, MachineProfile profile, int capacity, TraceOverflowPolicy overflowPolicy) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(CHUNK_RECORDS, capacity) - 1) << 1;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ring = ByteBuffer.allocateDirect(slots * RECORD_SIZE);
+        mask = slots - 1;
+        this.overflowPolicy = overflowPolicy;
+        writeSequence = new AtomicLong();
+        readSequence = new AtomicLong();
+        chunk = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE);
+        compressed = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + compressBound(chunk.capacity()));
+        deflater = new Deflater(Deflater.BEST_SPEED);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.put((byte) profile.ordinal());
+        header.flip();
+        writeFully(header);
+
+        writer = new Thread(this::drain, "chip8-trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static int compressBound(int length) {
+        return length + (length >>> 3) + 64;
+    }
+
+    public void record(int pc, Instruction instruction, CPU cpu) {
+        if (head - readSequence.get() > mask) {
+            if (overflowPolicy == TraceOverflowPolicy.DROP) {
+                dropped++;
+                return;
+            }
+            while (head - readSequence.get() > mask && !closing) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS / 100);
+            }
+        }
+
+        int written = writtenRegisters(instruction);
+        // FX0A writes nothing until it stops waiting and moves on
+        if (instruction.getOpcode() == Opcode.LD_VX_K && (cpu.getPC() & 0xFFFF) == pc) {
+            written = 0;
+        }
+        int offset = (int) (head & mask) * RECORD_SIZE;
+        ring.putShort(offset, (short) pc);
+        ring.putShort(offset + 2, (short) instruction.getRaw());
+        ring.putShort(offset + 4, cpu.getI());
+        ring.putShort(offset + 6, (short) written);
+        ring.put(offset + 8, cpu.getV(instruction.getX()));
+        ring.put(offset + 9, cpu.getV(0xF));
+        writeSequence.lazySet(++head);
+    }
+
+    static int writtenRegisters(Instruction instruction) {
+        int x = instruction.getX();
+        return switch (instruction.getOpcode()) {
+            case LD_VX_NN, ADD_VX_NN, LD_VX_VY, OR_VX_VY, AND_VX_VY, XOR_VX_VY, RND_VX_NN, LD_VX_DT, LD_VX_K -> 1 << x;
+            case ADD_VX_VY, SUB_VX_VY, SHR_VX, SUBN_VX_VY, SHL_VX -> 1 << x | 1 << 0xF;
+            case ADD_I_VX, DRW -> 1 << 0xF;
+            case LD_VX_I, LD_VX_R -> (2 << x) - 1;
+            case LOAD_VX_VY -> {
+                int low = Math.min(x, instruction.getY());
+                int high = Math.max(x, instruction.getY());
+                yield (2 << high) - (1 << low);
+            }
+            default -> 0;
+        };
+    }
+
+    public long getRecorded() {
+        return head;
+    }
+
+    // Records thrown away because the ring was full. Always zero with TraceOverflowPolicy.BLOCK.
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Stops the writer after it has flushed everything recorded so far
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                long tail = readSequence.get();
+                long available = writeSequence.get() - tail;
+
+                if (available == 0) {
+                    if (closing && writeSequence.get() == tail) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                // At most two runs, one up to the end of the ring and one from its start
+                int count = (int) Math.min(available, CHUNK_RECORDS);
+                int first = (int) (tail & mask);
+                int run = Math.min(count, mask + 1 - first);
+                chunk.clear();
+                chunk.put(0, ring, first * RECORD_SIZE, run * RECORD_SIZE);
+                chunk.put(run * RECORD_SIZE, ring, 0, (count - run) * RECORD_SIZE);
+                chunk.limit(count * RECORD_SIZE);
+                readSequence.lazySet(tail + count);
+                writeBlock(count);
+            }
+        } catch (IOException e) {
+            failure = e;
+            // Keep the emulation thread from blocking on a ring that will never drain
+            readSequence.set(Long.MAX_VALUE / 2);
+        }
+    }
+
+    private void writeBlock(int count) throws IOException {
+        compressed.clear();
+        compressed.position(BLOCK_HEADER_SIZE);
+        deflater.reset();
+        deflater.setInput(chunk);
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflater.deflate(compressed);
+        }
+        compressed.putInt(0, count);
+        compressed.putInt(Integer.BYTES, compressed.position() - BLOCK_HEADER_SIZE);
+        compressed.flip();
+        writeFully(compressed);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
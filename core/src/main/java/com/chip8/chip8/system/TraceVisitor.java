@@ -0,0 +1,8 @@
+package com.chip8.chip8.system;
+
+@FunctionalInterface
+public interface TraceVisitor {
+    // written has bit n set for each register Vn the instruction wrote; vx and vf are the values of Vx
+    // and VF after it ran, whether or not they were written
+    void visit(long index, int pc, int opcode, int i, int written, int vx, int vf);
+}
@@ -0,0 +1,281 @@
+package com.chip8.chip8.system;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Each row is packed into width / 64 longs, most significant bit first, so pixel (0, y) is bit 63
+// of the row's first word. Dirty rows are tracked as one bit per row.
+//
+// XO-CHIP machines have several bitplanes. Each plane gets PLANE_WORDS longs; clearing, drawing and
+// scrolling apply to the planes selected by the plane mask.
+public class VideoMemory {
+    public static final int MAX_WIDTH = 128;
+    public static final int MAX_HEIGHT = 64;
+    public static final int MAX_PLANES = 2;
+    public static final int PLANE_WORDS = MAX_WIDTH / Long.SIZE * MAX_HEIGHT;
+
+    private final int planes;
+    private final long[] memory;
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private int planeMask;
+    private long dirtyRows;
+    private boolean fullUpdateFlag;
+
+    public VideoMemory() {
+        this(Chip8.SCREEN_WIDTH, Chip8.SCREEN_HEIGHT);
+    }
+
+    public VideoMemory(int width, int height) {
+        this(width, height, 1);
+    }
+
+    public VideoMemory(int width, int height, int planes) {
+        if (planes <= 0 || planes > MAX_PLANES) {
+            throw new IllegalArgumentException("Invalid plane count: " + planes);
+        }
+        this.planes = planes;
+        memory = new long[PLANE_WORDS * planes];
+        planeMask = 1;
+        setSize(width, height);
+        dirtyRows = 0;
+        fullUpdateFlag = false;
+    }
+
+    public VideoMemory copy() {
+        VideoMemory copy = new VideoMemory(width, height, planes);
+        System.arraycopy(memory, 0, copy.memory, 0, memory.length);
+        copy.planeMask = planeMask;
+        copy.dirtyRows = dirtyRows;
+        copy.fullUpdateFlag = fullUpdateFlag;
+        return copy;
+    }
+
+    private void setSize(int width, int height) {
+        if (width <= 0 || width > MAX_WIDTH || width % Long.SIZE != 0 || height <= 0 || height > MAX_HEIGHT) {
+            throw new IllegalArgumentException(String.format("Invalid screen size: %dx%d", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = width / Long.SIZE;
+    }
+
+    // Switches between low and high resolution. Every plane is cleared.
+    public void setResolution(int width, int height) {
+        setSize(width, height);
+        Arrays.fill(memory, 0);
+        markAllDirty();
+        fullUpdateFlag = true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    public int getPlanes() {
+        return planes;
+    }
+
+    public int getPlaneMask() {
+        return planeMask;
+    }
+
+    public void setPlaneMask(int planeMask) {
+        this.planeMask = planeMask & ((1 << planes) - 1);
+    }
+
+    public void clear() {
+        for (int plane = 0; plane < planes; plane++) {
+            if (isSelected(plane)) {
+                Arrays.fill(memory, plane * PLANE_WORDS, plane * PLANE_WORDS + wordsPerRow * height, 0);
+            }
+        }
+        markAllDirty();
+        fullUpdateFlag = false;
+    }
+
+    private boolean isSelected(int plane) {
+        return (planeMask & (1 << plane)) != 0;
+    }
+
+    public boolean getMemory(int x, int y) {
+        if ((x >= width || y >= height) || (x < 0 || y < 0)) {
+            return false;
+        }
+        return (memory[y * wordsPerRow + (x >>> 6)] & (Long.MIN_VALUE >>> (x & 63))) != 0;
+    }
+
+    public long getRowWord(int y, int word) {
+        return memory[y * wordsPerRow + word];
+    }
+
+    public long getRowWord(int plane, int y, int word) {
+        return memory[plane * PLANE_WORDS + y * wordsPerRow + word];
+    }
+
+    // Copies the visible words of every plane, each plane starting at a multiple of PLANE_WORDS
+    public void copyTo(long[] target) {
+        int words = wordsPerRow * height;
+        for (int plane = 0; plane < planes; plane++) {
+            System.arraycopy(memory, plane * PLANE_WORDS, target, plane * PLANE_WORDS, words);
+        }
+    }
+
+    // XORs a sprite row onto the screen. spriteBits holds spriteWidth pixels right-aligned with the
+    // leftmost pixel in the highest bit. Pixels past the screen edges are clipped.
+    // Returns true if any set pixel was turned off.
+    public boolean drawSpriteRow(int x, int y, int spriteBits, int spriteWidth) {
+        return drawSpriteRow(0, x, y, spriteBits, spriteWidth);
+    }
+
+    public boolean drawSpriteRow(int plane, int x, int y, int spriteBits, int spriteWidth) {
+        if (y < 0 || y >= height || x >= width || x <= -spriteWidth) {
+            return false;
+        }
+
+        long sprite = (spriteBits & ((1L << spriteWidth) - 1)) << (Long.SIZE - spriteWidth);
+        if (x < 0) {
+            sprite <<= -x;
+            x = 0;
+        }
+        if (sprite == 0) {
+            return false;
+        }
+
+        int index = plane * PLANE_WORDS + y * wordsPerRow + (x >>> 6);
+        int shift = x & 63;
+        long bits = sprite >>> shift;
+        boolean collision = (memory[index] & bits) != 0;
+        memory[index] ^= bits;
+
+        if (shift != 0 && (x >>> 6) + 1 < wordsPerRow) {
+            long spill = sprite << (Long.SIZE - shift);
+            collision |= (memory[index + 1] & spill) != 0;
+            memory[index + 1] ^= spill;
+        }
+
+        dirtyRows |= 1L << y;
+        return collision;
+    }
+
+    // Scrolls move whole rows with arraycopy and shift pixels across word boundaries; only the
+    // selected planes move
+    public void scrollDown(int rows) {
+        rows = Math.min(rows, height);
+        for (int plane = 0; plane < planes; plane++) {
+            if (isSelected(plane)) {
+                int base = plane * PLANE_WORDS;
+                System.arraycopy(memory, base, memory, base + rows * wordsPerRow, (height - rows) * wordsPerRow);
+                Arrays.fill(memory, base, base + rows * wordsPerRow, 0);
+            }
+        }
+        markAllDirty();
+    }
+
+    public void scrollUp(int rows) {
+        rows = Math.min(rows, height);
+        for (int plane = 0; plane < planes; plane++) {
+            if (isSelected(plane)) {
+                int base = plane * PLANE_WORDS;
+                System.arraycopy(memory, base + rows * wordsPerRow, memory, base, (height - rows) * wordsPerRow);
+                Arrays.fill(memory, base + (height - rows) * wordsPerRow, base + height * wordsPerRow, 0);
+            }
+        }
+        markAllDirty();
+    }
+
+    // pixels must be between 1 and 63, so each word only takes bits from its direct neighbour
+    public void scrollRight(int pixels) {
+        for (int plane = 0; plane < planes; plane++) {
+            if (isSelected(plane)) {
+                for (int row = plane * PLANE_WORDS, end = row + height * wordsPerRow; row < end; row += wordsPerRow) {
+                    for (int word = wordsPerRow - 1; word > 0; word--) {
+                        memory[row + word] = (memory[row + word] >>> pixels) | (memory[row + word - 1] << (Long.SIZE - pixels));
+                    }
+                    memory[row] >>>= pixels;
+                }
+            }
+        }
+        markAllDirty();
+    }
+
+    public void scrollLeft(int pixels) {
+        for (int plane = 0; plane < planes; plane++) {
+            if (isSelected(plane)) {
+                for (int row = plane * PLANE_WORDS, end = row + height * wordsPerRow; row < end; row += wordsPerRow) {
+                    for (int word = 0; word < wordsPerRow - 1; word++) {
+                        memory[row + word] = (memory[row + word] << pixels) | (memory[row + word + 1] >>> (Long.SIZE - pixels));
+                    }
+                    memory[row + wordsPerRow - 1] <<= pixels;
+                }
+            }
+        }
+        markAllDirty();
+    }
+
+    public long getDirtyRows() {
+        return dirtyRows;
+    }
+
+    public long takeDirtyRows() {
+        long rows = fullUpdateFlag ? allRows() : dirtyRows;
+        dirtyRows = 0;
+        fullUpdateFlag = false;
+        return rows;
+    }
+
+    public void markAllDirty() {
+        dirtyRows = allRows();
+    }
+
+    private long allRows() {
+        return height == Long.SIZE ? -1L : (1L << height) - 1;
+    }
+
+    public boolean isFullUpdateFlag() {
+        return fullUpdateFlag;
+    }
+
+    public void setFullUpdateFlag(boolean fullUpdateFlag) {
+        this.fullUpdateFlag = fullUpdateFlag;
+    }
+
+    // The whole plane buffers are saved so the state size does not change with the resolution
+    int stateSize() {
+        return 2 * Short.BYTES + 2 * Byte.BYTES + memory.length * Long.BYTES;
+    }
+
+    void saveState(ByteBuffer buffer) {
+        buffer.putShort((short) width);
+        buffer.putShort((short) height);
+        buffer.put((byte) planes);
+        buffer.put((byte) planeMask);
+        for (long word : memory) {
+            buffer.putLong(word);
+        }
+    }
+
+    void loadState(ByteBuffer buffer) {
+        int stateWidth = buffer.getShort();
+        int stateHeight = buffer.getShort();
+        int statePlanes = buffer.get();
+        if (statePlanes != planes) {
+            throw new IllegalArgumentException(String.format("Plane count mismatch: %d != %d", statePlanes, planes));
+        }
+        setSize(stateWidth, stateHeight);
+        planeMask = buffer.get();
+        for (int i = 0; i < memory.length; i++) {
+            memory[i] = buffer.getLong();
+        }
+        markAllDirty();
+    }
+}
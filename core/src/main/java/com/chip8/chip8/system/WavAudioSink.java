@@ -0,0 +1,88 @@
+package com.chip8.chip8.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes the samples to a PCM WAV file. The chunk sizes in the header are filled in on close.
+public class WavAudioSink implements AudioSink {
+    private static final int HEADER_SIZE = 44;
+
+    private final Path path;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long dataSize;
+
+    public WavAudioSink(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void open(int sampleRate) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952); // RIFF
+        header.putInt(0);
+        header.putInt(0x45564157); // WAVE
+        header.putInt(0x20746D66); // fmt
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) 1);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * Short.BYTES);
+        header.putShort((short) Short.BYTES);
+        header.putShort((short) Short.SIZE);
+        header.putInt(0x61746164); // data
+        header.putInt(0);
+        header.flip();
+        writeFully(header);
+        dataSize = 0;
+    }
+
+    @Override
+    public void write(byte[] samples, int length) throws IOException {
+        if (buffer == null || buffer.array() != samples) {
+            buffer = ByteBuffer.wrap(samples);
+        }
+        buffer.clear().limit(length);
+        writeFully(buffer);
+        dataSize += length;
+    }
+
+    @Override
+    public boolean isDrained() {
+        return false;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteBuffer size = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            size.putInt(0, (int) (HEADER_SIZE - 8 + dataSize));
+            channel.write(size, 4);
+            size.clear();
+            size.putInt(0, (int) dataSize);
+            channel.write(size, HEADER_SIZE - Integer.BYTES);
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.chip8.chip8.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
 public class RomUtils {
     private static final Logger log = Logger.getLogger(RomUtils.class.getName());
@@ -15,4 +18,13 @@ public class RomUtils {
             return null;
         }
     }
+
+    public static byte[] mapRomFromFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] romData = new byte[buffer.remaining()];
+            buffer.get(romData);
+            return romData;
+        }
+    }
 }
@@ -0,0 +1,10 @@
+module com.chip8.core {
+    requires java.logging;
+    requires java.management;
+    requires java.desktop;
+
+    exports com.chip8.chip8.system;
+    exports com.chip8.chip8.library;
+    exports com.chip8.chip8.utils;
+    exports com.chip8.chip8.env;
+}
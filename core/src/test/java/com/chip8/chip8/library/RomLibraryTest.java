@@ -0,0 +1,102 @@
+package com.chip8.chip8.library;
+
+import com.chip8.chip8.system.Quirks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RomLibraryTest {
+    private Path directory;
+    private RomLibrary library;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("chip8-library");
+        library = new RomLibrary(directory.resolve("index.bin"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private RomEntry only() {
+        assertEquals(1, library.size());
+        return library.getEntries().get(0);
+    }
+
+    @Test
+    void settingsReachEntryReplacedByRescan() throws IOException {
+        Path rom = Files.write(directory.resolve("game.ch8"), new byte[]{0x12, 0x00});
+        library.scan(directory);
+        RomEntry held = only();
+
+        Files.write(rom, new byte[]{0x12, 0x00, 0x00, (byte) 0xE0});
+        Files.setLastModifiedTime(rom, FileTime.fromMillis(held.getModified() + 2000));
+        library.rescan();
+        assertNotSame(held, only());
+
+        library.setInstructionsPerSecond(held, 900);
+        library.markPlayed(held);
+        assertEquals(900, only().getInstructionsPerSecond());
+        assertTrue(only().getLastPlayed() > 0);
+        assertEquals(900, held.getInstructionsPerSecond());
+    }
+
+    @Test
+    void settingsFollowMovedFile() throws IOException {
+        Path rom = Files.write(directory.resolve("game.ch8"), new byte[]{0x12, 0x00});
+        library.scan(directory);
+        RomEntry held = only();
+
+        Files.move(rom, directory.resolve("renamed.ch8"));
+        library.rescan();
+        assertEquals(directory.resolve("renamed.ch8").toAbsolutePath().normalize(), only().getPath());
+
+        library.setInstructionsPerSecond(held, 1200);
+        assertEquals(1200, only().getInstructionsPerSecond());
+    }
+
+    @Test
+    void rescanKeepsSettings() throws IOException {
+        Path rom = Files.write(directory.resolve("game.ch8"), new byte[]{0x12, 0x00});
+        library.scan(directory);
+        library.setInstructionsPerSecond(only(), 600);
+
+        Files.setLastModifiedTime(rom, FileTime.fromMillis(only().getModified() + 2000));
+        library.rescan();
+        assertEquals(600, only().getInstructionsPerSecond());
+    }
+
+    @Test
+    void quirksReachReplacedEntryAndIndex() throws IOException {
+        Path rom = Files.write(directory.resolve("game.ch8"), new byte[]{0x12, 0x00});
+        library.scan(directory);
+        RomEntry held = only();
+
+        Files.setLastModifiedTime(rom, FileTime.fromMillis(held.getModified() + 2000));
+        library.rescan();
+        library.setQuirks(held, Quirks.SHIFT_VY | Quirks.JUMP_VX);
+        assertEquals(Quirks.SHIFT_VY | Quirks.JUMP_VX, only().getQuirks());
+
+        library.save();
+        library = new RomLibrary(directory.resolve("index.bin"));
+        library.load();
+        assertEquals(Quirks.SHIFT_VY | Quirks.JUMP_VX, only().getQuirks());
+    }
+}
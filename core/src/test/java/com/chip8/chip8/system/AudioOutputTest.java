@@ -0,0 +1,135 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioOutputTest {
+
+    private static final class CapturingSink implements AudioSink {
+        private final ByteArrayOutputStream samples = new ByteArrayOutputStream();
+        private int largestWrite;
+
+        @Override
+        public void open(int sampleRate) {
+        }
+
+        @Override
+        public void write(byte[] samples, int length) {
+            this.samples.write(samples, 0, length);
+            largestWrite = Math.max(largestWrite, length / Short.BYTES);
+        }
+
+        @Override
+        public boolean isDrained() {
+            return false;
+        }
+
+        @Override
+        public boolean isRealTime() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void offlineSinkGetsEveryFrameInChunks() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        try (AudioOutput audio = new AudioOutput(sink)) {
+            audio.submitFrame(true, false, null, Chip8.DEFAULT_PITCH);
+            audio.submitFrame(false, false, null, Chip8.DEFAULT_PITCH);
+            audio.submitFrame(true, false, null, Chip8.DEFAULT_PITCH);
+        }
+
+        byte[] samples = sink.samples.toByteArray();
+        int frameBytes = AudioOutput.FRAME_SAMPLES * Short.BYTES;
+        assertEquals(3 * frameBytes, samples.length);
+        assertEquals(AudioOutput.CHUNK_SAMPLES, sink.largestWrite);
+        for (int frame = 0; frame < 3; frame++) {
+            boolean silent = true;
+            for (int i = frame * frameBytes; i < (frame + 1) * frameBytes; i++) {
+                silent &= samples[i] == 0;
+            }
+            assertEquals(frame == 1, silent, "frame " + frame);
+        }
+    }
+
+    @Test
+    void pitchPowersUpAt64() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 0);
+        assertEquals(64, chip8.getPitch());
+    }
+
+    // Blocks in every write until the test lets it go, like a full device buffer
+    private static final class BlockingSink implements AudioSink {
+        private final Semaphore entered = new Semaphore(0);
+        private final Semaphore proceed = new Semaphore(0);
+        private final List<Boolean> silentWrites = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void open(int sampleRate) {
+        }
+
+        @Override
+        public void write(byte[] samples, int length) {
+            assertEquals(AudioOutput.CHUNK_SAMPLES * Short.BYTES, length);
+            boolean silent = true;
+            for (int i = 0; i < length; i++) {
+                silent &= samples[i] == 0;
+            }
+            silentWrites.add(silent);
+            entered.release();
+            proceed.acquireUninterruptibly();
+        }
+
+        @Override
+        public boolean isDrained() {
+            return false;
+        }
+
+        @Override
+        public boolean isRealTime() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Two frames arrive while the first chunk of a silent frame is being written: the rest of that
+    // frame and the older of the two are skipped, so the tone starts with the very next chunk
+    @Test
+    void realTimeSinkCutsToNewestFrame() throws Exception {
+        BlockingSink sink = new BlockingSink();
+        AudioOutput audio = new AudioOutput(sink);
+        try {
+            audio.submitFrame(false, false, null, Chip8.DEFAULT_PITCH);
+            assertTrue(sink.entered.tryAcquire(5, TimeUnit.SECONDS));
+            audio.submitFrame(false, false, null, Chip8.DEFAULT_PITCH);
+            audio.submitFrame(true, false, null, Chip8.DEFAULT_PITCH);
+            sink.proceed.release(100);
+        } finally {
+            audio.close();
+        }
+
+        int chunksPerFrame = AudioOutput.FRAME_SAMPLES / AudioOutput.CHUNK_SAMPLES;
+        assertEquals(1 + chunksPerFrame, sink.silentWrites.size());
+        assertTrue(sink.silentWrites.get(0));
+        for (int i = 1; i < sink.silentWrites.size(); i++) {
+            assertFalse(sink.silentWrites.get(i), "write " + i);
+        }
+        assertEquals(1, audio.getDroppedFrames());
+    }
+}
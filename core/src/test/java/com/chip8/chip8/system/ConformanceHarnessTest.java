@@ -0,0 +1,20 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConformanceHarnessTest {
+
+    // A bounded slice of what the command line runs; about a second on one core
+    @Test
+    void interpreterMatchesReference() throws InterruptedException {
+        ConformanceHarness harness = new ConformanceHarness(1);
+        harness.setParallelism(1);
+        Map<String, List<ConformanceHarness.Failure>> failures = harness.run(20_000);
+        assertTrue(failures.isEmpty(), () -> "Failing patterns: " + failures);
+    }
+}
@@ -0,0 +1,86 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForkTest {
+
+    @Test
+    void forkRunsOnWithoutTouchingParent() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Chip8 parent = TestPrograms.machine(TestPrograms.BUSY, 21);
+            parent.setExecutionMode(mode);
+            TestPrograms.runFrames(parent, 50);
+            byte[] atFork = TestPrograms.state(parent);
+
+            Chip8 fork = parent.fork();
+            assertArrayEquals(atFork, TestPrograms.state(fork), mode.toString());
+            TestPrograms.runFrames(fork, 100);
+            assertEquals(150, fork.getFrameCount());
+            assertArrayEquals(atFork, TestPrograms.state(parent), mode.toString());
+
+            // The same frames on the parent catch it up to the fork exactly
+            TestPrograms.runFrames(parent, 100);
+            assertArrayEquals(TestPrograms.state(fork), TestPrograms.state(parent), mode.toString());
+        }
+    }
+
+    @Test
+    void forkKeepsIdleLoopState() {
+        Chip8 parent = TestPrograms.machine(new int[]{0x1200}, 23);
+        TestPrograms.runFrames(parent, 3);
+        assertTrue(parent.getSkippedCycles() > 0);
+
+        Chip8 fork = parent.fork();
+        assertArrayEquals(TestPrograms.state(parent), TestPrograms.state(fork));
+        assertEquals(parent.isIdleUntilInput(), fork.isIdleUntilInput());
+
+        TestPrograms.runFrames(parent, 3);
+        TestPrograms.runFrames(fork, 3);
+        assertArrayEquals(TestPrograms.state(parent), TestPrograms.state(fork));
+    }
+
+    @Test
+    void writesStayOnTheirSide() {
+        Chip8 parent = TestPrograms.machine(TestPrograms.BUSY, 22);
+        Chip8 fork = parent.fork();
+        Memory parentMemory = parent.getMemory();
+        Memory forkMemory = fork.getMemory();
+        assertEquals(parentMemory.getSharedPageCount(), forkMemory.getSharedPageCount());
+        assertTrue(forkMemory.getSharedPageCount() > 0);
+
+        forkMemory.setMemory(0x300, 0xAB);
+        parentMemory.setMemory(0x301, 0xCD);
+        assertEquals(0, parentMemory.getMemory(0x300));
+        assertEquals(0xAB, forkMemory.getMemory(0x300));
+        assertEquals(0, forkMemory.getMemory(0x301));
+        assertEquals(0xCD, parentMemory.getMemory(0x301));
+
+        // Registers and keys are copies too
+        fork.getCpu().setV(3, (byte) 0x42);
+        fork.getInput().setKeyMask(0x10);
+        assertEquals(0, parent.getCpu().getV(3));
+        assertEquals(0, parent.getInput().getKeyMask());
+    }
+
+    @Test
+    void forkedCodeSeesItsOwnWrites() {
+        // The fork patches the jump at 0x204 into a jump to itself; the parent's cached block must
+        // not pick up the patch and the fork's must not miss it
+        int[] program = {0x7001, 0x7101, 0x1200};
+        Chip8 parent = TestPrograms.machine(program, 0);
+        parent.setExecutionMode(ExecutionMode.TIERED);
+        TestPrograms.runFrames(parent, 5);
+        Chip8 fork = parent.fork();
+        fork.getMemory().setMemory(0x205, 0x04);
+
+        TestPrograms.runFrames(fork, 5);
+        TestPrograms.runFrames(parent, 5);
+        assertEquals(0x204, fork.getCpu().getPC() & 0xFFFF);
+        assertNotEquals(parent.getCpu().getV(0), fork.getCpu().getV(0));
+    }
+}
@@ -0,0 +1,61 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsTest {
+
+    @Test
+    void framesRecordInstructionsThatRan() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            // FX0A stops the frame after one instruction
+            Metrics metrics = new Metrics();
+            Chip8 chip8 = TestPrograms.machine(new int[]{0xF00A}, 0);
+            chip8.setExecutionMode(mode);
+            chip8.setMetrics(metrics);
+            TestPrograms.runFrames(chip8, 3);
+            assertEquals(3, metrics.getInstructionCount(), mode.toString());
+            assertEquals(3, metrics.getEmulatedFrameCount());
+
+            // A jump to itself runs once per frame and the rest of the frame is skipped
+            metrics = new Metrics();
+            chip8 = TestPrograms.machine(new int[]{0x1200}, 0);
+            chip8.setExecutionMode(mode);
+            chip8.setMetrics(metrics);
+            TestPrograms.runFrames(chip8, 3);
+            assertEquals(3, metrics.getInstructionCount(), mode.toString());
+            assertEquals(3L * (chip8.getInstructionsPerFrame() - 1), metrics.getSkippedCycleCount());
+        }
+    }
+
+    @Test
+    void detachingReleasesOpcodeCounter() {
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < 10; i++) {
+            Chip8 chip8 = TestPrograms.machine(new int[]{0x7001, 0x1200}, 0);
+            chip8.setExecutionMode(ExecutionMode.INTERPRETER);
+            chip8.setIdleSkipping(false);
+            chip8.setMetrics(metrics);
+            chip8.runInstructions(4);
+            chip8.setMetrics(null);
+        }
+        assertEquals(0, metrics.getOpcodeCounterCount());
+        assertEquals(20, metrics.getOpcodeFamilyCount(0x7));
+        assertEquals(20, metrics.getOpcodeFamilyCount(0x1));
+
+        metrics.reset();
+        assertEquals(0, metrics.getOpcodeFamilyCount(0x7));
+    }
+
+    @Test
+    void movingToNewMetricsReleasesOldCounter() {
+        Metrics first = new Metrics();
+        Metrics second = new Metrics();
+        Chip8 chip8 = TestPrograms.machine(new int[]{0x1200}, 0);
+        chip8.setMetrics(first);
+        chip8.setMetrics(second);
+        assertEquals(0, first.getOpcodeCounterCount());
+        assertEquals(1, second.getOpcodeCounterCount());
+    }
+}
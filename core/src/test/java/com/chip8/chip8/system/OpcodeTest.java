@@ -0,0 +1,134 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// One case per opcode the conformance harness caught reading registers signed or comparing the
+// wrong register
+class OpcodeTest {
+
+    private static Chip8 run(int[] program, Consumer<CPU> setup, int instructions) {
+        Chip8 chip8 = TestPrograms.machine(program, 0);
+        chip8.setExecutionMode(ExecutionMode.INTERPRETER);
+        setup.accept(chip8.getCpu());
+        chip8.runInstructions(instructions);
+        return chip8;
+    }
+
+    private static int v(Chip8 chip8, int register) {
+        return chip8.getCpu().getV(register) & 0xFF;
+    }
+
+    private static int pc(Chip8 chip8) {
+        return chip8.getCpu().getPC() & 0xFFFF;
+    }
+
+    @Test
+    void seVxVyComparesVy() {
+        Chip8 chip8 = run(new int[]{0x5120}, cpu -> {
+            cpu.setV(0, (byte) 9);
+            cpu.setV(1, (byte) 5);
+            cpu.setV(2, (byte) 5);
+        }, 1);
+        assertEquals(0x204, pc(chip8));
+    }
+
+    @Test
+    void jpV0AddsV0Unsigned() {
+        Chip8 chip8 = run(new int[]{0xB300}, cpu -> cpu.setV(0, (byte) 0xF0), 1);
+        assertEquals(0x3F0, pc(chip8));
+
+        chip8 = run(new int[]{0xBFFF}, cpu -> cpu.setV(0, (byte) 0xFF), 1);
+        assertEquals(0x0FE, pc(chip8));
+    }
+
+    @Test
+    void subVxVyFlagsUnsignedAndEqual() {
+        Chip8 chip8 = run(new int[]{0x8125}, cpu -> {
+            cpu.setV(1, (byte) 0x80);
+            cpu.setV(2, (byte) 0x10);
+        }, 1);
+        assertEquals(0x70, v(chip8, 1));
+        assertEquals(1, v(chip8, 0xF));
+
+        chip8 = run(new int[]{0x8125}, cpu -> {
+            cpu.setV(1, (byte) 0x20);
+            cpu.setV(2, (byte) 0x20);
+        }, 1);
+        assertEquals(0, v(chip8, 1));
+        assertEquals(1, v(chip8, 0xF));
+    }
+
+    @Test
+    void subnVxVyFlagsUnsignedAndSurvivesVfDestination() {
+        Chip8 chip8 = run(new int[]{0x8127}, cpu -> {
+            cpu.setV(1, (byte) 0x10);
+            cpu.setV(2, (byte) 0x80);
+        }, 1);
+        assertEquals(0x70, v(chip8, 1));
+        assertEquals(1, v(chip8, 0xF));
+
+        chip8 = run(new int[]{0x8F27}, cpu -> {
+            cpu.setV(0xF, (byte) 0x30);
+            cpu.setV(2, (byte) 0x10);
+        }, 1);
+        assertEquals(0, v(chip8, 0xF));
+    }
+
+    @Test
+    void addVxVyFlagSurvivesVfDestination() {
+        Chip8 chip8 = run(new int[]{0x8FE4}, cpu -> {
+            cpu.setV(0xF, (byte) 0xFF);
+            cpu.setV(0xE, (byte) 0x01);
+        }, 1);
+        assertEquals(1, v(chip8, 0xF));
+    }
+
+    @Test
+    void rndCanProduceEveryByte() {
+        Chip8 chip8 = run(new int[]{0xC0FF, 0x1200}, cpu -> {
+        }, 0);
+        Set<Integer> values = new HashSet<>();
+        for (int i = 0; i < 8192 && values.size() < 256; i++) {
+            chip8.runInstructions(2);
+            values.add(v(chip8, 0));
+        }
+        assertEquals(256, values.size());
+    }
+
+    @Test
+    void seVxNnComparesUnsigned() {
+        Chip8 chip8 = run(new int[]{0x31F0}, cpu -> cpu.setV(1, (byte) 0xF0), 1);
+        assertEquals(0x204, pc(chip8));
+    }
+
+    @Test
+    void bcdOfHighByte() {
+        Chip8 chip8 = run(new int[]{0xA300, 0xF133}, cpu -> cpu.setV(1, (byte) 0xFF), 2);
+        Memory memory = chip8.getMemory();
+        assertEquals(2, memory.getMemory(0x300));
+        assertEquals(5, memory.getMemory(0x301));
+        assertEquals(5, memory.getMemory(0x302));
+    }
+
+    @Test
+    void delayTimerAbove7FCountsDown() {
+        Chip8 chip8 = run(new int[]{0x1200}, cpu -> cpu.setDT((byte) 0xC8), 0);
+        chip8.runFrame();
+        assertEquals(0xC7, chip8.getCpu().getDT() & 0xFF);
+    }
+
+    @Test
+    void drawWrapsStartCoordinates() {
+        // Font digit 0 drawn at x = 70, which wraps to 6
+        Chip8 chip8 = run(new int[]{0xA000, 0xD015}, cpu -> cpu.setV(0, (byte) 70), 2);
+        VideoMemory video = chip8.getMemory().getVideoMemory();
+        assertEquals(true, video.getMemory(6, 0));
+        assertEquals(false, video.getMemory(5, 0));
+    }
+}
@@ -0,0 +1,115 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compiled opcodes are checked in both execution modes, with the loop run long enough for TIERED to
+// compile its body
+class QuirksTest {
+
+    private static Chip8 run(int[] program, int quirks, ExecutionMode mode, Consumer<CPU> setup, int instructions) {
+        Chip8 chip8 = TestPrograms.machine(program, 0);
+        chip8.setExecutionMode(mode);
+        chip8.setIdleSkipping(false);
+        chip8.setQuirks(quirks);
+        setup.accept(chip8.getCpu());
+        chip8.runInstructions(instructions);
+        return chip8;
+    }
+
+    private static Chip8 loop(int[] program, int quirks, ExecutionMode mode, Consumer<CPU> setup) {
+        return run(program, quirks, mode, setup, program.length * 2 * BlockCache.COMPILE_THRESHOLD);
+    }
+
+    private static int v(Chip8 chip8, int register) {
+        return chip8.getCpu().getV(register) & 0xFF;
+    }
+
+    @Test
+    void shiftVyShiftsVyIntoVx() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Chip8 chip8 = loop(new int[]{0x6283, 0x8126, 0x1200}, Quirks.SHIFT_VY, mode, cpu -> {
+            });
+            assertEquals(0x41, v(chip8, 1), mode::name);
+            assertEquals(1, v(chip8, 0xF), mode::name);
+
+            chip8 = loop(new int[]{0x6283, 0x812E, 0x1200}, Quirks.SHIFT_VY, mode, cpu -> {
+            });
+            assertEquals(0x06, v(chip8, 1), mode::name);
+            assertEquals(1, v(chip8, 0xF), mode::name);
+        }
+
+        Chip8 chip8 = run(new int[]{0x8126}, 0, ExecutionMode.INTERPRETER, cpu -> {
+            cpu.setV(1, (byte) 0x10);
+            cpu.setV(2, (byte) 0x83);
+        }, 1);
+        assertEquals(0x08, v(chip8, 1));
+    }
+
+    @Test
+    void vfResetClearsVfAfterLogicOps() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            for (int opcode : new int[]{0x8121, 0x8122, 0x8123}) {
+                Chip8 chip8 = loop(new int[]{0x6F05, opcode, 0x1200}, Quirks.VF_RESET, mode, cpu -> {
+                });
+                assertEquals(0, v(chip8, 0xF), mode::name);
+            }
+        }
+
+        Chip8 chip8 = run(new int[]{0x6F05, 0x8121}, 0, ExecutionMode.INTERPRETER, cpu -> {
+        }, 2);
+        assertEquals(5, v(chip8, 0xF));
+    }
+
+    @Test
+    void loadStoreIncrementAdvancesI() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            // Loads font digit 0
+            Chip8 chip8 = loop(new int[]{0xA000, 0xF265, 0x1200}, Quirks.LOAD_STORE_INCREMENT_I, mode, cpu -> {
+            });
+            assertEquals(0xF0, v(chip8, 0), mode::name);
+            assertEquals(0x90, v(chip8, 2), mode::name);
+            assertEquals(3, chip8.getCpu().getI() & 0xFFFF, mode::name);
+        }
+
+        Chip8 chip8 = run(new int[]{0xA300, 0xF155}, Quirks.LOAD_STORE_INCREMENT_I, ExecutionMode.INTERPRETER,
+                cpu -> cpu.setV(1, (byte) 0x42), 2);
+        assertEquals(0x42, chip8.getMemory().getMemory(0x301));
+        assertEquals(0x302, chip8.getCpu().getI() & 0xFFFF);
+
+        chip8 = run(new int[]{0xA300, 0xF155}, 0, ExecutionMode.INTERPRETER, cpu -> {
+        }, 2);
+        assertEquals(0x300, chip8.getCpu().getI() & 0xFFFF);
+    }
+
+    @Test
+    void jumpVxAddsVx() {
+        Chip8 chip8 = run(new int[]{0xB320}, Quirks.JUMP_VX, ExecutionMode.INTERPRETER, cpu -> {
+            cpu.setV(0, (byte) 0x01);
+            cpu.setV(3, (byte) 0x10);
+        }, 1);
+        assertEquals(0x330, chip8.getCpu().getPC() & 0xFFFF);
+    }
+
+    @Test
+    void quirksSurviveSaveStateAndFork() {
+        Chip8 chip8 = loop(new int[]{0x6283, 0x8126, 0x1200}, Quirks.SHIFT_VY | Quirks.VF_RESET,
+                ExecutionMode.TIERED, cpu -> {
+                });
+
+        Chip8 loaded = TestPrograms.machine(new int[]{0x1200}, 0);
+        loaded.loadState(ByteBuffer.wrap(TestPrograms.state(chip8)));
+        assertEquals(Quirks.SHIFT_VY | Quirks.VF_RESET, loaded.getQuirks());
+        assertEquals(Quirks.SHIFT_VY | Quirks.VF_RESET, chip8.fork().getQuirks());
+
+        Chip8 fork = chip8.fork();
+        chip8.runInstructions(300);
+        fork.runInstructions(300);
+        assertArrayEquals(TestPrograms.state(chip8), TestPrograms.state(fork));
+    }
+}
@@ -0,0 +1,73 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RewindBufferTest {
+
+    @Test
+    void stepBackRestoresEarlierFramesAcrossKeyframes() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 11);
+        chip8.setRewindSeconds(5);
+        List<byte[]> states = new ArrayList<>();
+        for (int frame = 0; frame < 130; frame++) {
+            chip8.runFrame();
+            states.add(TestPrograms.state(chip8));
+        }
+
+        // Back past the keyframe at frame 120 and into the previous segment's deltas
+        chip8.setRewinding(true);
+        for (int frame = 128; frame >= 80; frame--) {
+            chip8.runFrame();
+            assertArrayEquals(states.get(frame), TestPrograms.state(chip8), "frame " + frame);
+        }
+        chip8.setRewinding(false);
+
+        // Running on from the rewound frame replays the same frames, RNG included
+        for (int frame = 81; frame < 130; frame++) {
+            chip8.runFrame();
+            assertArrayEquals(states.get(frame), TestPrograms.state(chip8), "frame " + frame);
+        }
+    }
+
+    @Test
+    void stepBackStopsAtOldestFrame() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 12);
+        RewindBuffer rewind = new RewindBuffer(1, chip8.getStateSize());
+        chip8.runFrame();
+        rewind.record(chip8);
+        byte[] first = TestPrograms.state(chip8);
+        chip8.runFrame();
+        rewind.record(chip8);
+
+        assertTrue(rewind.stepBack(chip8));
+        assertArrayEquals(first, TestPrograms.state(chip8));
+        assertFalse(rewind.stepBack(chip8));
+        assertEquals(1, rewind.getRecordedFrames());
+    }
+
+    @Test
+    void capacityDropsOldestSegments() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 13);
+        RewindBuffer rewind = new RewindBuffer(1, chip8.getStateSize());
+        for (int frame = 0; frame < 10 * EmulationLoop.FRAME_RATE; frame++) {
+            chip8.runFrame();
+            rewind.record(chip8);
+        }
+        int recorded = rewind.getRecordedFrames();
+        assertTrue(recorded >= EmulationLoop.FRAME_RATE, "recorded " + recorded);
+        assertTrue(recorded <= EmulationLoop.FRAME_RATE + 2 * RewindBuffer.KEYFRAME_INTERVAL, "recorded " + recorded);
+        int steps = 0;
+        while (rewind.stepBack(chip8)) {
+            steps++;
+        }
+        assertEquals(recorded - 1, steps);
+    }
+}
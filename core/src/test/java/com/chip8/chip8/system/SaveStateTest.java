@@ -0,0 +1,78 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SaveStateTest {
+
+    @Test
+    void loadedMachineMatchesUninterruptedRun() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Chip8 original = TestPrograms.machine(TestPrograms.BUSY, 7);
+            original.setExecutionMode(mode);
+            TestPrograms.runFrames(original, 100);
+            byte[] saved = TestPrograms.state(original);
+            TestPrograms.runFrames(original, 200);
+
+            // A different seed, so the RNG and seed can only match if the state restored them
+            Chip8 restored = TestPrograms.machine(TestPrograms.BUSY, 8);
+            restored.setExecutionMode(mode);
+            restored.loadState(ByteBuffer.wrap(saved));
+            assertEquals(100, restored.getFrameCount());
+            TestPrograms.runFrames(restored, 200);
+
+            assertArrayEquals(TestPrograms.state(original), TestPrograms.state(restored), mode.toString());
+            assertEquals(original.getSeed(), restored.getSeed());
+            assertEquals(300, restored.getFrameCount());
+            assertEquals(RomRunner.hash(original.getMemory().getVideoMemory()),
+                    RomRunner.hash(restored.getMemory().getVideoMemory()));
+        }
+    }
+
+    @Test
+    void loadingIntoSameMachineDiscardsCachedCode() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 3);
+        chip8.setExecutionMode(ExecutionMode.TIERED);
+        TestPrograms.runFrames(chip8, 50);
+        byte[] saved = TestPrograms.state(chip8);
+        TestPrograms.runFrames(chip8, 150);
+        byte[] expected = TestPrograms.state(chip8);
+
+        chip8.loadState(ByteBuffer.wrap(saved));
+        TestPrograms.runFrames(chip8, 150);
+        assertArrayEquals(expected, TestPrograms.state(chip8));
+    }
+
+    @Test
+    void fileRoundTrip() throws Exception {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 5);
+        TestPrograms.runFrames(chip8, 30);
+        byte[] expected = TestPrograms.state(chip8);
+        Path file = Files.createTempFile("chip8", ".state");
+        try {
+            for (boolean memoryMapped : new boolean[]{false, true}) {
+                chip8.saveState(file, memoryMapped);
+                Chip8 restored = TestPrograms.machine(TestPrograms.BUSY, 6);
+                restored.loadState(file, memoryMapped);
+                assertArrayEquals(expected, TestPrograms.state(restored));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 0);
+        byte[] state = TestPrograms.state(chip8);
+        state[Integer.BYTES + 1]--;
+        assertThrows(IllegalArgumentException.class, () -> chip8.loadState(ByteBuffer.wrap(state)));
+    }
+}
@@ -0,0 +1,49 @@
+package com.chip8.chip8.system;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+final class TestPrograms {
+    // Draws font digits at random positions, stores a BCD counter and keeps both timers busy, so
+    // memory, video, the registers, the RNG and the timers all change from frame to frame
+    static final int[] BUSY = {
+            0xC03F, // V0 = random x
+            0xC11F, // V1 = random y
+            0xA000, // I = digit 0
+            0xD015, // draw
+            0x7201, // V2++
+            0xA300, // I = 0x300
+            0xF233, // BCD of V2
+            0xF215, // DT = V2
+            0xF218, // ST = V2
+            0x1200
+    };
+
+    private TestPrograms() {
+    }
+
+    static ROM rom(int... program) {
+        byte[] rom = new byte[program.length * 2];
+        for (int i = 0; i < program.length; i++) {
+            rom[2 * i] = (byte) (program[i] >>> 8);
+            rom[2 * i + 1] = (byte) program[i];
+        }
+        return new ROM(rom);
+    }
+
+    static Chip8 machine(int[] program, long seed) {
+        return new RomRunner(rom(program), MachineProfile.CHIP8, seed).getChip8();
+    }
+
+    static byte[] state(Chip8 chip8) {
+        ByteBuffer buffer = ByteBuffer.allocate(chip8.getStateSize());
+        chip8.saveState(buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static void runFrames(Chip8 chip8, int frames) {
+        for (int i = 0; i < frames; i++) {
+            chip8.runFrame();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.chip8.chip8.system;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceTest {
+
+    private static Path trace(Chip8 chip8, int instructions) throws Exception {
+        Path file = Files.createTempFile("chip8", ".c8t");
+        TraceRecorder recorder = new TraceRecorder(file, chip8.getProfile(), 0, TraceOverflowPolicy.BLOCK);
+        chip8.setTraceRecorder(recorder);
+        chip8.runInstructions(instructions);
+        chip8.setTraceRecorder(null);
+        recorder.close();
+        return file;
+    }
+
+    @Test
+    void opcodesDecodeWithTracedProfile() throws Exception {
+        // 5012 is SAVE_VX_VY on XO-CHIP and UNKNOWN on CHIP-8
+        ROM rom = TestPrograms.rom(0xA300, 0x5012, 0x1204);
+        Chip8 chip8 = new RomRunner(rom, MachineProfile.XOCHIP, 0).getChip8();
+        Path file = trace(chip8, 3);
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(MachineProfile.XOCHIP, reader.getProfile());
+            assertEquals(1, reader.read(TraceFilter.all().opcode(Opcode.SAVE_VX_VY), (index, pc, opcode, i, written, vx, vf) -> {
+                assertEquals(0x202, pc);
+                assertEquals(0x5012, opcode);
+            }));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void recordsEveryWrittenRegister() throws Exception {
+        Chip8 chip8 = TestPrograms.machine(new int[]{
+                0x600A, // V0 = 10
+                0x61FF, // V1 = 0xFF
+                0x8014, // V0 += V1, carry into VF
+                0xA300, // I = 0x300
+                0xF265, // V0..V2 = memory at I
+                0xF00A  // waits, as no key is pressed
+        }, 0);
+        chip8.setExecutionMode(ExecutionMode.INTERPRETER);
+        Path file = trace(chip8, 6);
+        List<int[]> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(file)) {
+            reader.read(TraceFilter.all(), (index, pc, opcode, i, written, vx, vf) -> records.add(new int[]{written, vx, vf}));
+        } finally {
+            Files.delete(file);
+        }
+
+        assertEquals(6, records.size());
+        assertEquals(0x0001, records.get(0)[0]);
+        assertEquals(0x0002, records.get(1)[0]);
+        assertEquals(0x8001, records.get(2)[0]);
+        assertEquals(9, records.get(2)[1]);
+        assertEquals(1, records.get(2)[2]);
+        assertEquals(0x0000, records.get(3)[0]);
+        assertEquals(0x0007, records.get(4)[0]);
+        assertEquals(0x0000, records.get(5)[0]);
+    }
+
+    @Test
+    void rangeLoadMasks() {
+        assertEquals(0x0038, TraceRecorder.writtenRegisters(Instruction.decode(0x5533, MachineProfile.XOCHIP)));
+        assertEquals(0x0038, TraceRecorder.writtenRegisters(Instruction.decode(0x5353, MachineProfile.XOCHIP)));
+        assertEquals(0x000F, TraceRecorder.writtenRegisters(Instruction.decode(0xF385, MachineProfile.SCHIP)));
+        assertEquals(0x0000, TraceRecorder.writtenRegisters(Instruction.decode(0xF375, MachineProfile.SCHIP)));
+        assertEquals(0x8000, TraceRecorder.writtenRegisters(Instruction.decode(0xF31E)));
+    }
+
+    @Test
+    void recordsSurviveRingWrapAround() throws Exception {
+        // Enough records to wrap the smallest ring several times
+        Chip8 chip8 = TestPrograms.machine(new int[]{0x7001, 0x1200}, 0);
+        chip8.setExecutionMode(ExecutionMode.INTERPRETER);
+        chip8.setIdleSkipping(false);
+        int count = 100_001;
+        Path file = trace(chip8, count);
+        int[] expected = {0};
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(count, reader.read(TraceFilter.all(), (index, pc, opcode, i, written, vx, vf) -> {
+                assertEquals(index % 2 == 0 ? 0x200 : 0x202, pc);
+                if (pc == 0x200) {
+                    assertEquals(++expected[0] & 0xFF, vx);
+                }
+            }));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void stopTraceKeepsEveryRecordOfRunningMachine() throws Exception {
+        Chip8 chip8 = TestPrograms.machine(TestPrograms.BUSY, 0);
+        chip8.setTurbo(true);
+        Path file = Files.createTempFile("chip8", ".c8t");
+        try {
+            chip8.setTraceRecorder(new TraceRecorder(file, chip8.getProfile(), 0, TraceOverflowPolicy.BLOCK));
+            chip8.startEmulation(false);
+            Thread.sleep(200);
+            TraceRecorder recorder = chip8.stopTrace();
+            assertTrue(chip8.isRunning());
+            recorder.close();
+            chip8.pauseEmulation();
+            assertTrue(recorder.getRecorded() > 0);
+
+            try (TraceReader reader = new TraceReader(file)) {
+                assertEquals(recorder.getRecorded(), reader.read(TraceFilter.all(), (index, pc, opcode, i, written, vx, vf) -> {
+                }));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
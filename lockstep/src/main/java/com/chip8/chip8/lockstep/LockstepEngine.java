@@ -0,0 +1,655 @@
+package com.chip8.chip8.lockstep;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.EmulationLoop;
+import com.chip8.chip8.system.Instruction;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.system.RomRunner;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// Many CHIP-8 machines running the same ROM, stored as structure-of-arrays: each register, timer and
+// screen row is one primitive array with a slot per machine, so the same register of every machine
+// is contiguous. While all machines sit on the same PC over unmodified code, one decoded instruction
+// is applied to all of them at once, with the vector API doing the ALU work and sprite XOR. When
+// their PCs split (a skip taken by some, a key wait, a write to code) each machine steps on its own
+// until the PCs line up again.
+//
+// Behaves as a plain CHIP-8 Chip8 with the same seed and key masks, frame for frame, except that a
+// memory access out of range stops just that machine for good instead of throwing.
+public class LockstepEngine {
+    public static final int MEMORY_SIZE = Chip8.MEMORY_SIZE;
+    public static final int SCREEN_HEIGHT = Chip8.SCREEN_HEIGHT;
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final long RANDOM_MULTIPLIER = 0x5DEECE66DL;
+    private static final long RANDOM_ADDEND = 0xBL;
+    private static final long RANDOM_MASK = (1L << 48) - 1;
+
+    private final int count;
+    // Slots per register; a multiple of the widest vector so vector loops need no tail. The padding
+    // slots take part in vector operations but belong to no machine.
+    private final int stride;
+
+    private final byte[] v;
+    private final int[] stack;
+    private final int[] pc;
+    private final int[] index;
+    private final int[] sp;
+    private final int[] dt;
+    private final int[] st;
+    private final long[] screen;
+    private final long[] random;
+    private final int[] keys;
+    private final int[] heldKey;
+    private final boolean[] waiting;
+    private final boolean[] faulted;
+
+    // Every machine starts from this image. Addresses any machine has written are marked dirty and
+    // from then on read from the machine's own copy in memory.
+    private final byte[] image;
+    private final boolean[] dirty;
+    private final byte[] memory;
+    private final Instruction[] decoded;
+
+    private boolean converged;
+    private int sharedPc;
+    private int waitingCount;
+    private int faultedCount;
+    private int instructionsPerFrame;
+    private long frameCount;
+    private long machineSteps;
+    private long lockstepSteps;
+
+    // Machine m is seeded with seed + m
+    public LockstepEngine(ROM rom, int count, long seed) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one machine is needed");
+        }
+        this.count = count;
+        stride = (count + BYTES.length() - 1) / BYTES.length() * BYTES.length();
+
+        v = new byte[Chip8.REGISTER_COUNT * stride];
+        stack = new int[Chip8.STACK_SIZE * stride];
+        pc = new int[stride];
+        index = new int[stride];
+        sp = new int[stride];
+        dt = new int[stride];
+        st = new int[stride];
+        screen = new long[SCREEN_HEIGHT * stride];
+        random = new long[stride];
+        keys = new int[stride];
+        heldKey = new int[stride];
+        waiting = new boolean[stride];
+        faulted = new boolean[stride];
+
+        image = new byte[MEMORY_SIZE];
+        for (int i = 0; i < Chip8.FONT.length; i++) {
+            image[i] = (byte) Chip8.FONT[i];
+        }
+        byte[] romData = rom.getRomData();
+        System.arraycopy(romData, 0, image, Chip8.PC_START, Math.min(romData.length, MEMORY_SIZE - Chip8.PC_START));
+        dirty = new boolean[MEMORY_SIZE];
+        memory = new byte[count * MEMORY_SIZE];
+        for (int m = 0; m < count; m++) {
+            System.arraycopy(image, 0, memory, m * MEMORY_SIZE, MEMORY_SIZE);
+        }
+        decoded = new Instruction[MEMORY_SIZE];
+
+        Arrays.fill(heldKey, -1);
+        for (int m = 0; m < count; m++) {
+            setSeed(m, seed + m);
+        }
+        converged = true;
+        sharedPc = Chip8.PC_START;
+        instructionsPerFrame = Math.round((float) Chip8.IPS_NORMAL / EmulationLoop.FRAME_RATE);
+    }
+
+    public int getMachineCount() {
+        return count;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public void setInstructionsPerFrame(int instructionsPerFrame) {
+        this.instructionsPerFrame = Math.max(1, instructionsPerFrame);
+    }
+
+    // Same generator state a Chip8 reset with this seed starts from
+    public void setSeed(int machine, long seed) {
+        random[machine] = (seed ^ RANDOM_MULTIPLIER) & RANDOM_MASK;
+    }
+
+    // Takes effect from the next frame, as Input.latch() does
+    public void setKeyMask(int machine, int mask) {
+        keys[machine] = mask & ((1 << Chip8.KEY_COUNT) - 1);
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    // Instructions executed, summed over all machines
+    public long getMachineSteps() {
+        return machineSteps;
+    }
+
+    // The part of getMachineSteps() executed once for all machines together
+    public long getLockstepSteps() {
+        return lockstepSteps;
+    }
+
+    public int getPC(int machine) {
+        return converged ? sharedPc : pc[machine];
+    }
+
+    public int getI(int machine) {
+        return index[machine];
+    }
+
+    public int getSp(int machine) {
+        return sp[machine];
+    }
+
+    public int getDT(int machine) {
+        return dt[machine];
+    }
+
+    public int getST(int machine) {
+        return st[machine];
+    }
+
+    public int getV(int machine, int register) {
+        return v[register * stride + machine] & 0xFF;
+    }
+
+    public int getMemory(int machine, int address) {
+        return read(machine, address);
+    }
+
+    public long getRowWord(int machine, int y) {
+        return screen[y * stride + machine];
+    }
+
+    public boolean isFaulted(int machine) {
+        return faulted[machine];
+    }
+
+    // The hash RomRunner prints for the same screen
+    public long getFramebufferHash(int machine) {
+        long hash = RomRunner.FNV_OFFSET;
+        for (int y = 0; y < SCREEN_HEIGHT; y++) {
+            long bits = screen[y * stride + machine];
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash ^ (bits >>> (i * 8) & 0xFF)) * RomRunner.FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    public void runFrames(long frames) {
+        for (long frame = 0; frame < frames; frame++) {
+            runFrame();
+        }
+    }
+
+    // Machines waiting in FX0A sit out the rest of the frame, as they do in Chip8
+    public void runFrame() {
+        Arrays.fill(waiting, 0, count, false);
+        waitingCount = 0;
+        if (!converged) {
+            tryConverge();
+        }
+        for (int i = 0; i < instructionsPerFrame; i++) {
+            step();
+        }
+        tickTimers();
+        frameCount++;
+    }
+
+    private void tickTimers() {
+        for (int m = 0; m < stride; m += INTS.length()) {
+            IntVector.fromArray(INTS, dt, m).sub(1).max(0).intoArray(dt, m);
+            IntVector.fromArray(INTS, st, m).sub(1).max(0).intoArray(st, m);
+        }
+    }
+
+    public void step() {
+        if (converged) {
+            Instruction instruction = sharedInstruction(sharedPc);
+            if (instruction != null && executeShared(instruction)) {
+                machineSteps += count;
+                lockstepSteps += count;
+                return;
+            }
+            Arrays.fill(pc, 0, count, sharedPc);
+            converged = false;
+        }
+
+        for (int m = 0; m < count; m++) {
+            if (!waiting[m] && !faulted[m]) {
+                executeOne(m);
+                machineSteps++;
+            }
+        }
+        tryConverge();
+    }
+
+    private void tryConverge() {
+        if (waitingCount > 0 || faultedCount > 0) {
+            return;
+        }
+        int first = pc[0];
+        int m = 0;
+        for (; m < INTS.loopBound(count); m += INTS.length()) {
+            if (IntVector.fromArray(INTS, pc, m).compare(VectorOperators.NE, first).anyTrue()) {
+                return;
+            }
+        }
+        for (; m < count; m++) {
+            if (pc[m] != first) {
+                return;
+            }
+        }
+        converged = true;
+        sharedPc = first;
+    }
+
+    // The instruction every machine would fetch at address, or null if some machine may have changed it
+    private Instruction sharedInstruction(int address) {
+        if (address + 1 >= MEMORY_SIZE || dirty[address] || dirty[address + 1]) {
+            return null;
+        }
+        Instruction instruction = decoded[address];
+        if (instruction == null) {
+            instruction = Instruction.decode((image[address] & 0xFF) << 8 | image[address + 1] & 0xFF);
+            decoded[address] = instruction;
+        }
+        return instruction;
+    }
+
+    private int read(int machine, int address) {
+        return (dirty[address] ? memory[machine * MEMORY_SIZE + address] : image[address]) & 0xFF;
+    }
+
+    // Marking first means an address past the end throws before it can reach the next machine's copy
+    private void write(int machine, int address, int value) {
+        dirty[address] = true;
+        memory[machine * MEMORY_SIZE + address] = (byte) value;
+    }
+
+    // Runs the instruction on every machine at once. Returns false, having changed nothing, when the
+    // machines could take different paths, which leaves it to executeOne.
+    private boolean executeShared(Instruction instruction) {
+        int x = instruction.getX();
+        int y = instruction.getY();
+        switch (instruction.getOpcode()) {
+            case CLS -> Arrays.fill(screen, 0);
+            case JP -> {
+                sharedPc = instruction.getNNN();
+                return true;
+            }
+            case LD_VX_NN -> Arrays.fill(v, x * stride, (x + 1) * stride, (byte) instruction.getNN());
+            case ADD_VX_NN -> {
+                byte nn = (byte) instruction.getNN();
+                for (int m = 0; m < stride; m += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, v, x * stride + m).add(nn).intoArray(v, x * stride + m);
+                }
+            }
+            case LD_VX_VY, OR_VX_VY, AND_VX_VY, XOR_VX_VY, ADD_VX_VY, SUB_VX_VY, SHR_VX, SUBN_VX_VY, SHL_VX ->
+                    arithmetic(instruction, x, y);
+            case LD_I_NNN -> Arrays.fill(index, instruction.getNNN());
+            case RND_VX_NN -> {
+                int nn = instruction.getNN();
+                for (int m = 0; m < count; m++) {
+                    long state = (random[m] * RANDOM_MULTIPLIER + RANDOM_ADDEND) & RANDOM_MASK;
+                    random[m] = state;
+                    // nextInt(256) is the top 8 bits of the 48-bit state
+                    v[x * stride + m] = (byte) (state >>> 40 & nn);
+                }
+            }
+            case DRW -> {
+                if (!drawShared(x, y, instruction.getN())) {
+                    return false;
+                }
+            }
+            case LD_VX_DT -> {
+                for (int m = 0; m < count; m++) {
+                    v[x * stride + m] = (byte) dt[m];
+                }
+            }
+            case LD_DT_VX -> {
+                for (int m = 0; m < count; m++) {
+                    dt[m] = v[x * stride + m] & 0xFF;
+                }
+            }
+            case LD_ST_VX -> {
+                for (int m = 0; m < count; m++) {
+                    st[m] = v[x * stride + m] & 0xFF;
+                }
+            }
+            case ADD_I_VX -> {
+                for (int m = 0; m < count; m++) {
+                    int sum = index[m] + (v[x * stride + m] & 0xFF);
+                    index[m] = sum & 0xFFFF;
+                    v[0xF * stride + m] = (byte) (sum > 0xFFF ? 1 : 0);
+                }
+            }
+            case LD_F_VX -> {
+                for (int m = 0; m < count; m++) {
+                    index[m] = (v[x * stride + m] & 0xF) * 5;
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+        sharedPc += 2;
+        return true;
+    }
+
+    // 8XYN across all machines. VF is written after Vx so the flag survives when x is F.
+    private void arithmetic(Instruction instruction, int x, int y) {
+        for (int m = 0; m < stride; m += BYTES.length()) {
+            ByteVector vx = ByteVector.fromArray(BYTES, v, x * stride + m);
+            ByteVector vy = ByteVector.fromArray(BYTES, v, y * stride + m);
+            ByteVector result;
+            ByteVector flag = null;
+            switch (instruction.getOpcode()) {
+                case LD_VX_VY -> result = vy;
+                case OR_VX_VY -> result = vx.or(vy);
+                case AND_VX_VY -> result = vx.and(vy);
+                case XOR_VX_VY -> result = vx.lanewise(VectorOperators.XOR, vy);
+                case ADD_VX_VY -> {
+                    result = vx.add(vy);
+                    flag = ByteVector.zero(BYTES).blend((byte) 1, result.compare(VectorOperators.UNSIGNED_LT, vx));
+                }
+                case SUB_VX_VY -> {
+                    result = vx.sub(vy);
+                    flag = ByteVector.zero(BYTES).blend((byte) 1, vx.compare(VectorOperators.UNSIGNED_GE, vy));
+                }
+                case SUBN_VX_VY -> {
+                    result = vy.sub(vx);
+                    flag = ByteVector.zero(BYTES).blend((byte) 1, vy.compare(VectorOperators.UNSIGNED_GE, vx));
+                }
+                case SHR_VX -> {
+                    result = vx.lanewise(VectorOperators.LSHR, 1);
+                    flag = vx.and((byte) 1);
+                }
+                case SHL_VX -> {
+                    result = vx.lanewise(VectorOperators.LSHL, 1);
+                    flag = vx.lanewise(VectorOperators.LSHR, 7);
+                }
+                default -> throw new IllegalArgumentException(instruction.toString());
+            }
+            result.intoArray(v, x * stride + m);
+            if (flag != null) {
+                flag.intoArray(v, 0xF * stride + m);
+            }
+        }
+    }
+
+    // Draws for every machine with one XOR per row when they all draw the same sprite at the same
+    // place, which is the common case for anything not driven by input or RND
+    private boolean drawShared(int x, int y, int height) {
+        if (!isShared(x) || !isShared(y) || !isShared(index)) {
+            return false;
+        }
+        int address = index[0];
+        if (address + height > MEMORY_SIZE) {
+            return false;
+        }
+        for (int row = 0; row < height; row++) {
+            if (dirty[address + row]) {
+                return false;
+            }
+        }
+
+        int left = (v[x * stride] & 0xFF) % Chip8.SCREEN_WIDTH;
+        int top = (v[y * stride] & 0xFF) % SCREEN_HEIGHT;
+        int rows = Math.min(height, SCREEN_HEIGHT - top);
+        for (int m = 0; m < stride; m += LONGS.length()) {
+            VectorMask<Long> collision = LONGS.maskAll(false);
+            for (int row = 0; row < rows; row++) {
+                long sprite = (long) (image[address + row] & 0xFF) << 56 >>> left;
+                if (sprite == 0) {
+                    continue;
+                }
+                int offset = (top + row) * stride + m;
+                LongVector old = LongVector.fromArray(LONGS, screen, offset);
+                collision = collision.or(old.and(sprite).compare(VectorOperators.NE, 0));
+                old.lanewise(VectorOperators.XOR, sprite).intoArray(screen, offset);
+            }
+            long hits = collision.toLong();
+            for (int lane = 0; lane < LONGS.length(); lane++) {
+                v[0xF * stride + m + lane] = (byte) (hits >>> lane & 1);
+            }
+        }
+        return true;
+    }
+
+    private boolean isShared(int register) {
+        byte first = v[register * stride];
+        int offset = register * stride;
+        int m = 0;
+        for (; m < BYTES.loopBound(count); m += BYTES.length()) {
+            if (ByteVector.fromArray(BYTES, v, offset + m).compare(VectorOperators.NE, first).anyTrue()) {
+                return false;
+            }
+        }
+        for (; m < count; m++) {
+            if (v[offset + m] != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isShared(int[] values) {
+        int first = values[0];
+        int m = 0;
+        for (; m < INTS.loopBound(count); m += INTS.length()) {
+            if (IntVector.fromArray(INTS, values, m).compare(VectorOperators.NE, first).anyTrue()) {
+                return false;
+            }
+        }
+        for (; m < count; m++) {
+            if (values[m] != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void executeOne(int m) {
+        int address = pc[m];
+        if (address + 1 >= MEMORY_SIZE) {
+            fault(m);
+            return;
+        }
+        Instruction instruction = sharedInstruction(address);
+        if (instruction == null) {
+            instruction = Instruction.decode(read(m, address) << 8 | read(m, address + 1));
+        }
+        try {
+            execute(m, instruction);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            fault(m);
+        }
+    }
+
+    private void fault(int m) {
+        faulted[m] = true;
+        faultedCount++;
+    }
+
+    // One instruction on one machine, with Chip8's CHIP-8 semantics. Out-of-range memory accesses
+    // throw ArrayIndexOutOfBoundsException part way through, as Memory's checks do.
+    private void execute(int m, Instruction instruction) {
+        int x = instruction.getX();
+        int y = instruction.getY();
+        int vxAt = x * stride + m;
+        int vfAt = 0xF * stride + m;
+        int vx = v[vxAt] & 0xFF;
+        int vy = v[y * stride + m] & 0xFF;
+
+        switch (instruction.getOpcode()) {
+            case CLS -> {
+                for (int row = 0; row < SCREEN_HEIGHT; row++) {
+                    screen[row * stride + m] = 0;
+                }
+            }
+            case RET -> {
+                if (sp[m] == 0) {
+                    return;
+                }
+                pc[m] = stack[sp[m] * stride + m] + 2;
+                sp[m]--;
+                return;
+            }
+            case JP -> {
+                pc[m] = instruction.getNNN();
+                return;
+            }
+            case CALL -> {
+                if (sp[m] == Chip8.STACK_SIZE - 1) {
+                    return;
+                }
+                sp[m]++;
+                stack[sp[m] * stride + m] = pc[m];
+                pc[m] = instruction.getNNN();
+                return;
+            }
+            case SE_VX_NN -> {
+                pc[m] += vx == instruction.getNN() ? 4 : 2;
+                return;
+            }
+            case SNE_VX_NN -> {
+                pc[m] += vx != instruction.getNN() ? 4 : 2;
+                return;
+            }
+            case SE_VX_VY -> {
+                pc[m] += vx == vy ? 4 : 2;
+                return;
+            }
+            case SNE_VX_VY -> {
+                pc[m] += vx != vy ? 4 : 2;
+                return;
+            }
+            case LD_VX_NN -> v[vxAt] = (byte) instruction.getNN();
+            case ADD_VX_NN -> v[vxAt] = (byte) (vx + instruction.getNN());
+            case LD_VX_VY -> v[vxAt] = (byte) vy;
+            case OR_VX_VY -> v[vxAt] = (byte) (vx | vy);
+            case AND_VX_VY -> v[vxAt] = (byte) (vx & vy);
+            case XOR_VX_VY -> v[vxAt] = (byte) (vx ^ vy);
+            case ADD_VX_VY -> {
+                v[vxAt] = (byte) (vx + vy);
+                v[vfAt] = (byte) (vx + vy >>> 8);
+            }
+            case SUB_VX_VY -> {
+                v[vxAt] = (byte) (vx - vy);
+                v[vfAt] = (byte) (vx >= vy ? 1 : 0);
+            }
+            case SHR_VX -> {
+                v[vxAt] = (byte) (vx >>> 1);
+                v[vfAt] = (byte) (vx & 1);
+            }
+            case SUBN_VX_VY -> {
+                v[vxAt] = (byte) (vy - vx);
+                v[vfAt] = (byte) (vy >= vx ? 1 : 0);
+            }
+            case SHL_VX -> {
+                v[vxAt] = (byte) (vx << 1);
+                v[vfAt] = (byte) (vx >>> 7);
+            }
+            case LD_I_NNN -> index[m] = instruction.getNNN();
+            case JP_V0_NNN -> {
+                pc[m] = (instruction.getNNN() + (v[m] & 0xFF)) & 0xFFF;
+                return;
+            }
+            case RND_VX_NN -> {
+                long state = (random[m] * RANDOM_MULTIPLIER + RANDOM_ADDEND) & RANDOM_MASK;
+                random[m] = state;
+                v[vxAt] = (byte) (state >>> 40 & instruction.getNN());
+            }
+            case DRW -> {
+                int left = vx % Chip8.SCREEN_WIDTH;
+                int top = vy % SCREEN_HEIGHT;
+                int address = index[m];
+                boolean collision = false;
+                for (int row = 0; row < instruction.getN(); row++) {
+                    long sprite = (long) read(m, address + row) << 56 >>> left;
+                    if (top + row < SCREEN_HEIGHT && sprite != 0) {
+                        int at = (top + row) * stride + m;
+                        collision |= (screen[at] & sprite) != 0;
+                        screen[at] ^= sprite;
+                    }
+                }
+                v[vfAt] = (byte) (collision ? 1 : 0);
+            }
+            case SKP_VX -> {
+                pc[m] += (keys[m] & 1 << (vx & 0xF)) != 0 ? 4 : 2;
+                return;
+            }
+            case SKNP_VX -> {
+                pc[m] += (keys[m] & 1 << (vx & 0xF)) == 0 ? 4 : 2;
+                return;
+            }
+            case LD_VX_DT -> v[vxAt] = (byte) dt[m];
+            case LD_VX_K -> {
+                // Press and release, like Chip8; the machine sits out the rest of the frame meanwhile
+                if (heldKey[m] < 0) {
+                    if (keys[m] != 0) {
+                        heldKey[m] = Integer.numberOfTrailingZeros(keys[m]);
+                    }
+                } else if ((keys[m] & 1 << heldKey[m]) == 0) {
+                    v[vxAt] = (byte) heldKey[m];
+                    heldKey[m] = -1;
+                    pc[m] += 2;
+                    return;
+                }
+                waiting[m] = true;
+                waitingCount++;
+                return;
+            }
+            case LD_DT_VX -> dt[m] = vx;
+            case LD_ST_VX -> st[m] = vx;
+            case ADD_I_VX -> {
+                int sum = index[m] + vx;
+                index[m] = sum & 0xFFFF;
+                v[vfAt] = (byte) (sum > 0xFFF ? 1 : 0);
+            }
+            case LD_F_VX -> index[m] = (vx & 0xF) * 5;
+            case LD_B_VX -> {
+                write(m, index[m], vx / 100);
+                write(m, index[m] + 1, vx / 10 % 10);
+                write(m, index[m] + 2, vx % 10);
+            }
+            case LD_I_VX -> {
+                for (int r = 0; r <= x; r++) {
+                    write(m, index[m] + r, v[r * stride + m]);
+                }
+            }
+            case LD_VX_I -> {
+                for (int r = 0; r <= x; r++) {
+                    v[r * stride + m] = (byte) read(m, index[m] + r);
+                }
+            }
+            default -> {
+                // Unknown instructions stall on the same PC
+                return;
+            }
+        }
+        pc[m] += 2;
+    }
+}
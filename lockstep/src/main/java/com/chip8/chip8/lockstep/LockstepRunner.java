@@ -0,0 +1,157 @@
+package com.chip8.chip8.lockstep;
+
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.ExecutionMode;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.system.RomRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Runs a ROM on a LockstepEngine and reports machine-steps per second. The first --verify machines
+// are also run as ordinary Chip8 instances with the same seeds and keys, which checks the engine
+// and gives the one-object-graph-per-machine throughput to compare against. Both are warmed up on
+// throwaway machines first, since the vector code only pays off once C2 has compiled it.
+public class LockstepRunner {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // Every machine gets its own key sequence: with probability 1 in changeEvery per frame the mask
+    // becomes a single random key or nothing
+    private static int[][] keyMasks(int machines, long frames, long seed, int changeEvery) {
+        int[][] masks = new int[(int) frames][machines];
+        for (int m = 0; m < machines; m++) {
+            SplittableRandom random = new SplittableRandom(seed ^ m * GOLDEN_GAMMA);
+            int mask = 0;
+            for (int frame = 0; frame < frames; frame++) {
+                if (changeEvery > 0 && random.nextInt(changeEvery) == 0) {
+                    mask = random.nextBoolean() ? 1 << random.nextInt(Chip8.KEY_COUNT) : 0;
+                }
+                masks[frame][m] = mask;
+            }
+        }
+        return masks;
+    }
+
+    // Idle skipping would make the Chip8 side skip instructions the engine executes
+    private static RomRunner chip8(ROM rom, long seed) {
+        RomRunner runner = new RomRunner(rom, MachineProfile.CHIP8, seed);
+        runner.getChip8().setExecutionMode(ExecutionMode.INTERPRETER);
+        runner.getChip8().setIdleSkipping(false);
+        return runner;
+    }
+
+    // Key masks repeat when running past the end of the table
+    private static void run(LockstepEngine engine, int[][] masks, long frames) {
+        for (long frame = 0; frame < frames; frame++) {
+            int[] frameMasks = masks[(int) (frame % masks.length)];
+            for (int m = 0; m < engine.getMachineCount(); m++) {
+                engine.setKeyMask(m, frameMasks[m]);
+            }
+            engine.runFrame();
+        }
+    }
+
+    // Returns false if the machine faulted
+    private static boolean run(RomRunner runner, int[][] masks, int machine, long frames) {
+        Chip8 chip8 = runner.getChip8();
+        try {
+            for (long frame = 0; frame < frames; frame++) {
+                chip8.getInput().setKeyMask(masks[(int) (frame % masks.length)][machine]);
+                chip8.runFrame();
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LockstepRunner <rom> [--machines N] [--frames N] [--seed N] [--keys N] [--verify N] [--warmup N]");
+            System.exit(2);
+        }
+
+        int machines = 1024;
+        long frames = 600;
+        long seed = 0;
+        int keyChange = 8;
+        int verify = 16;
+        long warmup = 6000;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i++]) {
+                case "--machines" -> machines = Integer.parseInt(value);
+                case "--frames" -> frames = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--keys" -> keyChange = Integer.parseInt(value);
+                case "--verify" -> verify = Integer.parseInt(value);
+                case "--warmup" -> warmup = Long.parseLong(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+                }
+            }
+        }
+        verify = Math.min(verify, machines);
+
+        ROM rom = new ROM(Files.readAllBytes(Path.of(args[0])));
+        int[][] masks = keyMasks(machines, frames, seed, keyChange);
+
+        if (warmup > 0 && frames > 0) {
+            run(new LockstepEngine(rom, machines, seed), masks, warmup);
+            for (int m = 0; m < Math.min(verify, 16); m++) {
+                run(chip8(rom, seed + m), masks, m, warmup);
+            }
+        }
+
+        LockstepEngine engine = new LockstepEngine(rom, machines, seed);
+        long start = System.nanoTime();
+        run(engine, masks, frames);
+        long elapsed = System.nanoTime() - start;
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d machines, %d frames: %d machine-steps in %.3f s (%.1f M machine-steps/s), %.1f%% in lockstep%n",
+                machines, frames, engine.getMachineSteps(), seconds, engine.getMachineSteps() / seconds / 1e6,
+                100.0 * engine.getLockstepSteps() / Math.max(1, engine.getMachineSteps()));
+
+        if (verify == 0) {
+            return;
+        }
+        int mismatches = 0;
+        long scalarNanos = 0;
+        for (int m = 0; m < verify; m++) {
+            RomRunner runner = chip8(rom, seed + m);
+            Chip8 chip8 = runner.getChip8();
+            long machineStart = System.nanoTime();
+            boolean faulted = !run(runner, masks, m, frames);
+            scalarNanos += System.nanoTime() - machineStart;
+
+            if (faulted != engine.isFaulted(m)) {
+                System.out.printf("machine %d: faulted %b, engine %b%n", m, faulted, engine.isFaulted(m));
+                mismatches++;
+            } else if (!faulted && (runner.getFramebufferHash() != engine.getFramebufferHash(m)
+                    || (chip8.getCpu().getPC() & 0xFFFF) != engine.getPC(m) || (chip8.getCpu().getI() & 0xFFFF) != engine.getI(m))) {
+                System.out.printf("machine %d: PC %03X I %03X hash %016x, engine PC %03X I %03X hash %016x%n", m,
+                        chip8.getCpu().getPC() & 0xFFFF, chip8.getCpu().getI() & 0xFFFF, runner.getFramebufferHash(),
+                        engine.getPC(m), engine.getI(m), engine.getFramebufferHash(m));
+                mismatches++;
+            }
+        }
+        // Chip8 does not count instructions, and a frame cut short by FX0A runs fewer than
+        // getInstructionsPerFrame(), so credit each instance with the engine's average
+        double steps = (double) engine.getMachineSteps() / machines * verify;
+        double scalarSeconds = scalarNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d Chip8 instances: %.1f M machine-steps/s, %d mismatches%n", verify,
+                steps / scalarSeconds / 1e6, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
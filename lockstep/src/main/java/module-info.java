@@ -0,0 +1,6 @@
+module com.chip8.lockstep {
+    requires com.chip8.core;
+    requires jdk.incubator.vector;
+
+    exports com.chip8.chip8.lockstep;
+}
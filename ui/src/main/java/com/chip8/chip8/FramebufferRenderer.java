@@ -0,0 +1,89 @@
+package com.chip8.chip8;
+
+import com.chip8.chip8.system.FrameConverter;
+import com.chip8.chip8.system.FrameExchange;
+import com.chip8.chip8.system.VideoMemory;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.util.Callback;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Expands published frames into a native-resolution PixelBuffer and draws it scaled up with
+// nearest-neighbour filtering, so a frame costs one image upload and one draw call.
+public class FramebufferRenderer {
+    // Indexed by the pixel's plane bits: off, plane 0 only, plane 1 only, both planes
+    private static final int[] PALETTE = {0xFF000000, 0xFFFFFFFF, 0xFFAAAAAA, 0xFF555555};
+
+    private final GraphicsContext graphicsContext;
+    private final double displayWidth;
+    private final double displayHeight;
+    private final FrameConverter converter;
+    private final Rectangle2D[] bands;
+    private final Callback<PixelBuffer<IntBuffer>, Rectangle2D> dirtyBand;
+    private int width;
+    private int height;
+    private IntBuffer buffer;
+    private PixelBuffer<IntBuffer> pixelBuffer;
+    private WritableImage image;
+
+    public FramebufferRenderer(GraphicsContext graphicsContext, double displayWidth, double displayHeight) {
+        this.graphicsContext = graphicsContext;
+        this.displayWidth = displayWidth;
+        this.displayHeight = displayHeight;
+        converter = new FrameConverter(PALETTE);
+        bands = new Rectangle2D[VideoMemory.MAX_HEIGHT * VideoMemory.MAX_HEIGHT];
+        dirtyBand = b -> band(converter.getFirstDirtyRow(), converter.getLastDirtyRow());
+        graphicsContext.setImageSmoothing(false);
+    }
+
+    public void reset() {
+        converter.reset();
+    }
+
+    // Returns true if a new frame was drawn
+    public boolean render(FrameExchange frameExchange) {
+        FrameExchange.Frame frame = frameExchange.acquire();
+
+        if (frame == null) {
+            return false;
+        }
+
+        ensureSize(frame.getWidth(), frame.getHeight());
+        if (converter.convert(frame, buffer)) {
+            pixelBuffer.updateBuffer(dirtyBand);
+            graphicsContext.drawImage(image, 0, 0, displayWidth, displayHeight);
+            return true;
+        }
+        return false;
+    }
+
+    private Rectangle2D band(int firstRow, int lastRow) {
+        int index = firstRow * VideoMemory.MAX_HEIGHT + lastRow;
+
+        if (bands[index] == null) {
+            bands[index] = new Rectangle2D(0, firstRow, width, lastRow - firstRow + 1);
+        }
+        return bands[index];
+    }
+
+    private void ensureSize(int width, int height) {
+        if (buffer != null && this.width == width && this.height == height) {
+            return;
+        }
+
+        this.width = width;
+        this.height = height;
+        buffer = ByteBuffer.allocateDirect(width * height * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+        image = new WritableImage(pixelBuffer);
+        Arrays.fill(bands, null);
+        converter.reset();
+    }
+}
@@ -0,0 +1,90 @@
+package com.chip8.chip8;
+
+import com.chip8.chip8.system.Chip8;
+import javafx.scene.input.KeyCode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+// Maps host keys onto the 16 Chip-8 keys through a table indexed by KeyCode ordinal. The mapping is
+// read from a properties file of KEY_CODE=index lines, e.g. "Z=0" or "DIGIT1=1".
+public class KeyMap {
+    private static final int UNMAPPED = -1;
+    private static final KeyCode[] DEFAULT_KEYS = {
+            KeyCode.Z, KeyCode.DIGIT1, KeyCode.DIGIT2, KeyCode.DIGIT3,
+            KeyCode.Q, KeyCode.W, KeyCode.E, KeyCode.A,
+            KeyCode.S, KeyCode.D, KeyCode.LESS, KeyCode.X,
+            KeyCode.DIGIT4, KeyCode.R, KeyCode.F, KeyCode.C
+    };
+
+    private final int[] table;
+
+    public KeyMap() {
+        table = new int[KeyCode.values().length];
+        Arrays.fill(table, UNMAPPED);
+        for (int key = 0; key < DEFAULT_KEYS.length; key++) {
+            bind(DEFAULT_KEYS[key], key);
+        }
+    }
+
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".chip8", "keys.properties");
+    }
+
+    // Returns the default mapping if the file does not exist
+    public static KeyMap load(Path path) throws IOException {
+        KeyMap keyMap = new KeyMap();
+        if (!Files.exists(path)) {
+            return keyMap;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        Arrays.fill(keyMap.table, UNMAPPED);
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                keyMap.bind(KeyCode.valueOf(name), Integer.decode(properties.getProperty(name).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(String.format("Invalid key mapping %s=%s in %s", name, properties.getProperty(name), path), e);
+            }
+        }
+        return keyMap;
+    }
+
+    public void save(Path path) throws IOException {
+        Properties properties = new Properties();
+        KeyCode[] codes = KeyCode.values();
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != UNMAPPED) {
+                properties.setProperty(codes[i].name(), String.valueOf(table[i]));
+            }
+        }
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, "Chip-8 key mapping");
+        }
+    }
+
+    public void bind(KeyCode code, int key) {
+        if (key >= Chip8.KEY_COUNT || key < 0) {
+            throw new IllegalArgumentException(String.format("Invalid key index: %d", key));
+        }
+        table[code.ordinal()] = key;
+    }
+
+    public void unbind(KeyCode code) {
+        table[code.ordinal()] = UNMAPPED;
+    }
+
+    // The Chip-8 key for code, or -1 if it is not mapped
+    public int getKey(KeyCode code) {
+        return table[code.ordinal()];
+    }
+}
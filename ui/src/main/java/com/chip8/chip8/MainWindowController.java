@@ -0,0 +1,486 @@
+package com.chip8.chip8;
+
+import com.chip8.chip8.library.RomEntry;
+import com.chip8.chip8.library.RomLibrary;
+import com.chip8.chip8.system.AudioOutput;
+import com.chip8.chip8.system.Chip8;
+import com.chip8.chip8.system.InputMovie;
+import com.chip8.chip8.system.LineAudioSink;
+import com.chip8.chip8.system.MachineProfile;
+import com.chip8.chip8.system.Metrics;
+import com.chip8.chip8.system.Quirks;
+import com.chip8.chip8.system.ROM;
+import com.chip8.chip8.system.RewindBuffer;
+import com.chip8.chip8.system.TraceOverflowPolicy;
+import com.chip8.chip8.system.TraceRecorder;
+import javafx.animation.AnimationTimer;
+import javafx.fxml.FXML;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.input.KeyCode;
+import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class MainWindowController {
+    private static final Logger log = Logger.getLogger(MainWindowController.class.getName());
+    private static final int SCALE = 15;
+    private static final KeyCode REWIND_KEY = KeyCode.BACK_SPACE;
+    @FXML
+    private Canvas canvas;
+    @FXML
+    private MenuItem menuEmulationContinue;
+    @FXML
+    private MenuItem menuEmulationPause;
+    @FXML
+    private MenuItem menuEmulationTrace;
+    @FXML
+    private MenuItem menuEmulationMovie;
+    @FXML
+    private CheckMenuItem menuEmulationQuirkShiftVy;
+    @FXML
+    private CheckMenuItem menuEmulationQuirkVfReset;
+    @FXML
+    private CheckMenuItem menuEmulationQuirkLoadStore;
+    @FXML
+    private CheckMenuItem menuEmulationQuirkJumpVx;
+
+    private final Chip8 chip8 = new Chip8();
+    private GraphicsContext graphicsContext;
+    private FramebufferRenderer renderer;
+    private AnimationTimer screenTimer;
+    private Metrics metrics;
+    private RomLibrary library;
+    private RomEntry libraryEntry;
+    // The machine picked in the Emulation menu, used for ROMs whose extension doesn't name one
+    private MachineProfile selectedProfile = MachineProfile.CHIP8;
+    private KeyMap keyMap;
+
+    @FXML
+    private void initialize() {
+        graphicsContext = canvas.getGraphicsContext2D();
+        renderer = new FramebufferRenderer(graphicsContext, Chip8.SCREEN_WIDTH * SCALE, Chip8.SCREEN_HEIGHT * SCALE);
+        try {
+            keyMap = KeyMap.load(KeyMap.defaultFile());
+        } catch (IOException e) {
+            log.warning("Using the default key mapping: " + e.getMessage());
+            keyMap = new KeyMap();
+        }
+        metrics = new Metrics();
+        metrics.register();
+        chip8.setMetrics(metrics);
+
+        try {
+            chip8.setAudioOutput(new AudioOutput(new LineAudioSink()));
+        } catch (IOException e) {
+            log.warning("Sound disabled: " + e.getMessage());
+        }
+    }
+
+    @FXML
+    private void onMenuEmulationContinue() {
+        chip8.startEmulation(false);
+        screenTimer.start();
+        menuEmulationPause.setDisable(false);
+        menuEmulationContinue.setDisable(true);
+    }
+
+    @FXML
+    private void onMenuEmulationPause() {
+        chip8.pauseEmulation();
+        screenTimer.stop();
+        menuEmulationPause.setDisable(true);
+        menuEmulationContinue.setDisable(false);
+    }
+
+    @FXML
+    private void onMenuEmulationSpeedSlow() {
+        setInstructionsPerSecond(Chip8.IPS_SLOW);
+    }
+
+    @FXML
+    private void onMenuEmulationSpeedNormal() {
+        setInstructionsPerSecond(Chip8.IPS_NORMAL);
+    }
+
+    @FXML
+    private void onMenuEmulationSpeedFast() {
+        setInstructionsPerSecond(Chip8.IPS_FAST);
+    }
+
+    private void setInstructionsPerSecond(int instructionsPerSecond) {
+        if (chip8.isRecordingMovie()) {
+            log.warning("Speed can't change while recording a movie");
+            return;
+        }
+        chip8.setTurbo(false);
+        chip8.setInstructionsPerSecond(instructionsPerSecond);
+
+        if (libraryEntry != null) {
+            library.setInstructionsPerSecond(libraryEntry, instructionsPerSecond);
+            try {
+                library.save();
+            } catch (IOException e) {
+                log.warning("Unable to save ROM library: " + e.getMessage());
+            }
+        }
+    }
+
+    @FXML
+    private void onMenuEmulationSpeedTurbo() {
+        chip8.setTurbo(true);
+    }
+
+    @FXML
+    private void onMenuEmulationMachineChip8() {
+        setProfile(MachineProfile.CHIP8);
+    }
+
+    @FXML
+    private void onMenuEmulationMachineSchip() {
+        setProfile(MachineProfile.SCHIP);
+    }
+
+    @FXML
+    private void onMenuEmulationMachineXochip() {
+        setProfile(MachineProfile.XOCHIP);
+    }
+
+    // Switching machines restarts the current ROM
+    private void setProfile(MachineProfile profile) {
+        if (chip8.isRecordingMovie()) {
+            log.warning("The machine can't change while recording a movie");
+            return;
+        }
+        selectedProfile = profile;
+        chip8.setProfile(profile);
+
+        ROM rom = chip8.getRom();
+        if (rom != null) {
+            clearScreen();
+            startRom(rom);
+        }
+    }
+
+    @FXML
+    private void onMenuEmulationQuirkShiftVy() {
+        setQuirk(Quirks.SHIFT_VY, menuEmulationQuirkShiftVy.isSelected());
+    }
+
+    @FXML
+    private void onMenuEmulationQuirkVfReset() {
+        setQuirk(Quirks.VF_RESET, menuEmulationQuirkVfReset.isSelected());
+    }
+
+    @FXML
+    private void onMenuEmulationQuirkLoadStore() {
+        setQuirk(Quirks.LOAD_STORE_INCREMENT_I, menuEmulationQuirkLoadStore.isSelected());
+    }
+
+    @FXML
+    private void onMenuEmulationQuirkJumpVx() {
+        setQuirk(Quirks.JUMP_VX, menuEmulationQuirkJumpVx.isSelected());
+    }
+
+    // Quirks apply straight away and are remembered for the library entry being played
+    private void setQuirk(int quirk, boolean enabled) {
+        if (chip8.isRecordingMovie()) {
+            log.warning("Quirks can't change while recording a movie");
+            showQuirks(chip8.getQuirks());
+            return;
+        }
+        int quirks = enabled ? chip8.getQuirks() | quirk : chip8.getQuirks() & ~quirk;
+        chip8.setQuirks(quirks);
+
+        if (libraryEntry != null) {
+            library.setQuirks(libraryEntry, quirks);
+            try {
+                library.save();
+            } catch (IOException e) {
+                log.warning("Unable to save ROM library: " + e.getMessage());
+            }
+        }
+    }
+
+    private void setQuirks(int quirks) {
+        chip8.setQuirks(quirks);
+        showQuirks(quirks);
+    }
+
+    private void showQuirks(int quirks) {
+        menuEmulationQuirkShiftVy.setSelected(Quirks.has(quirks, Quirks.SHIFT_VY));
+        menuEmulationQuirkVfReset.setSelected(Quirks.has(quirks, Quirks.VF_RESET));
+        menuEmulationQuirkLoadStore.setSelected(Quirks.has(quirks, Quirks.LOAD_STORE_INCREMENT_I));
+        menuEmulationQuirkJumpVx.setSelected(Quirks.has(quirks, Quirks.JUMP_VX));
+    }
+
+    @FXML
+    private void onMenuEmulationRewind() {
+        RewindBuffer rewindBuffer = chip8.getRewindBuffer();
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(chip8.getRewindSeconds()));
+        dialog.setTitle("Rewind");
+        dialog.setHeaderText(rewindBuffer == null ? "Hold Backspace to rewind. Nothing recorded yet." :
+                String.format("Hold Backspace to rewind. %d frames recorded, using %d KB.",
+                        rewindBuffer.getRecordedFrames(), rewindBuffer.getMemoryUsage() / 1024));
+        dialog.setContentText("Capacity in seconds (0 disables):");
+        dialog.showAndWait().ifPresent(value -> {
+            try {
+                chip8.setRewindSeconds(Math.max(0, Integer.parseInt(value.trim())));
+            } catch (NumberFormatException e) {
+                log.warning("Invalid rewind capacity: " + value);
+            }
+        });
+    }
+
+    @FXML
+    private void onMenuEmulationMovie() {
+        if (!chip8.isRecordingMovie()) {
+            if (chip8.getRom() == null) {
+                return;
+            }
+            clearScreen();
+            chip8.startMovieRecording();
+            screenTimer.start();
+            menuEmulationPause.setDisable(false);
+            menuEmulationContinue.setDisable(true);
+            menuEmulationMovie.setText("Stop Recording...");
+            return;
+        }
+
+        InputMovie movie = chip8.stopMovieRecording();
+        menuEmulationMovie.setText("Record Movie");
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Movie");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Chip-8 Movies", "*.c8m"));
+        File file = fileChooser.showSaveDialog(canvas.getScene().getWindow());
+
+        if (file != null) {
+            try {
+                movie.save(file.toPath());
+                log.info(String.format("Saved %d frames of input to %s", movie.getLength(), file));
+            } catch (IOException e) {
+                log.severe("Unable to save movie: " + e.getMessage());
+            }
+        }
+    }
+
+    @FXML
+    private void onMenuEmulationTrace() {
+        if (chip8.getTraceRecorder() != null) {
+            TraceRecorder traceRecorder = chip8.stopTrace();
+            try {
+                traceRecorder.close();
+                log.info(String.format("Trace stopped: %d instructions recorded, %d dropped",
+                        traceRecorder.getRecorded(), traceRecorder.getDropped()));
+            } catch (IOException e) {
+                log.severe("Unable to write trace: " + e.getMessage());
+            }
+            menuEmulationTrace.setText("Start Trace...");
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Record Trace");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Chip-8 Traces", "*.c8t"));
+        File file = fileChooser.showSaveDialog(canvas.getScene().getWindow());
+
+        if (file != null) {
+            try {
+                chip8.setTraceRecorder(new TraceRecorder(file.toPath(), chip8.getProfile(), TraceRecorder.DEFAULT_CAPACITY, TraceOverflowPolicy.DROP));
+                menuEmulationTrace.setText("Stop Trace");
+            } catch (IOException e) {
+                log.severe("Unable to start trace: " + e.getMessage());
+            }
+        }
+    }
+
+    @FXML
+    private void onMenuFileOpenClick() {
+        Scene scene = canvas.getScene();
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Chip-8 ROM");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Chip-8 ROMS", "*.ch8", "*.sc8", "*.xo8"),
+                new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fileChooser.showOpenDialog(scene.getWindow());
+
+        clearScreen();
+
+        if (file != null) {
+            log.info("Loading " + file);
+            libraryEntry = null;
+            setQuirks(0);
+            chip8.setProfile(RomLibrary.profile(file.toPath(), selectedProfile));
+            startRom(new ROM(file.getPath()));
+        }
+    }
+
+    @FXML
+    private void onMenuFileLibrary() {
+        RomLibrary library = getLibrary();
+
+        if (library.size() == 0) {
+            onMenuFileLibraryAddFolder();
+            if (library.size() == 0) {
+                return;
+            }
+        } else {
+            Thread rescan = new Thread(() -> {
+                try {
+                    library.rescan();
+                    library.save();
+                } catch (IOException e) {
+                    log.warning("Unable to rescan ROM library: " + e.getMessage());
+                }
+            }, "chip8-library-rescan");
+            rescan.setDaemon(true);
+            rescan.start();
+        }
+
+        List<RomEntry> entries = library.getEntries();
+        List<RomEntry> recent = library.getRecentlyPlayed();
+        ChoiceDialog<RomEntry> dialog = new ChoiceDialog<>(recent.isEmpty() ? entries.get(0) : recent.get(0), entries);
+        dialog.setTitle("ROM Library");
+        dialog.setHeaderText(String.format("%d ROMs", entries.size()));
+        dialog.setContentText("ROM:");
+        dialog.showAndWait().ifPresent(entry -> {
+            try {
+                ROM rom = library.load(entry);
+                log.info("Loading " + entry.getPath());
+                libraryEntry = entry;
+                setQuirks(entry.getQuirks());
+                chip8.setProfile(RomLibrary.profile(entry.getPath(), selectedProfile));
+                clearScreen();
+                startRom(rom);
+                if (entry.getInstructionsPerSecond() > 0) {
+                    chip8.setInstructionsPerSecond(entry.getInstructionsPerSecond());
+                }
+                library.markPlayed(entry);
+                library.save();
+            } catch (IOException e) {
+                log.severe("Unable to load " + entry.getPath() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @FXML
+    private void onMenuFileLibraryAddFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Add ROM Folder");
+        File directory = directoryChooser.showDialog(canvas.getScene().getWindow());
+
+        if (directory != null) {
+            try {
+                getLibrary().scan(directory.toPath());
+                getLibrary().save();
+            } catch (IOException e) {
+                log.severe("Unable to scan " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private RomLibrary getLibrary() {
+        if (library == null) {
+            library = new RomLibrary(RomLibrary.defaultIndexFile());
+            try {
+                library.load();
+            } catch (IOException e) {
+                log.warning("Unable to read ROM library index, starting empty: " + e.getMessage());
+            }
+        }
+        return library;
+    }
+
+    private void startRom(ROM rom) {
+        Scene scene = canvas.getScene();
+        chip8.setRom(rom);
+        chip8.startEmulation(true);
+
+        if (screenTimer != null) {
+            screenTimer.stop();
+        }
+        screenTimer = getAnimationTimer();
+        screenTimer.start();
+
+        menuEmulationPause.setDisable(false);
+        menuEmulationContinue.setDisable(true);
+
+        scene.setOnKeyPressed(e -> {
+            if (e.getCode() == REWIND_KEY) {
+                chip8.setRewinding(true);
+            } else if (keyMap.getKey(e.getCode()) >= 0) {
+                chip8.getInput().pressKey(keyMap.getKey(e.getCode()));
+            }
+        });
+        scene.setOnKeyReleased(e -> {
+            if (e.getCode() == REWIND_KEY) {
+                chip8.setRewinding(false);
+            } else if (keyMap.getKey(e.getCode()) >= 0) {
+                chip8.getInput().releaseKey(keyMap.getKey(e.getCode()));
+            }
+        });
+    }
+
+    private AnimationTimer getAnimationTimer() {
+        return new AnimationTimer() {
+            private long lastFrame;
+
+            @Override
+            public void handle(long now) {
+                if (lastFrame != 0) {
+                    metrics.recordRenderFrameTime(now - lastFrame);
+                }
+                lastFrame = now;
+                updateScreen();
+            }
+
+            @Override
+            public void stop() {
+                super.stop();
+                lastFrame = 0;
+            }
+        };
+    }
+
+    @FXML
+    private void onMenuFileQuit() {
+        System.exit(0);
+    }
+
+    @FXML
+    private void onMenuHelpAbout() {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("About");
+        alert.setHeaderText("Java Chip-8 Emulator");
+        alert.showAndWait().ifPresent(action -> {
+            if (action == ButtonType.OK) {
+                alert.close();
+            }
+        });
+    }
+
+    private void clearScreen() {
+        graphicsContext.setFill(Color.BLACK);
+        graphicsContext.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        renderer.reset();
+    }
+
+    private void updateScreen() {
+        if (renderer.render(chip8.getFrameExchange())) {
+            metrics.recordRenderedFrame();
+        }
+    }
+}
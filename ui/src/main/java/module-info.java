@@ -4,7 +4,8 @@ module com.chip8.chip8 {
 
     requires org.controlsfx.controls;
     requires java.logging;
+    requires com.chip8.core;
 
     opens com.chip8.chip8 to javafx.fxml;
     exports com.chip8.chip8;
-}
\ No newline at end of file
+}